@@ -0,0 +1,68 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.StringLiteral;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building long sequences and alternations one component at a time with
+ * the builders. Chaining <code>andThen</code>/<code>or</code> is measured
+ * by
+ * {@link io.github.reggert.reb4j.benchmarks.baseline.ChainedConstructionBenchmark},
+ * which also runs against 3.2.1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ConstructionBenchmark
+{
+	@Param({"10", "1000", "10000"})
+	public int size;
+
+	private StringLiteral[] literals;
+
+	@Setup
+	public void setUp()
+	{
+		final String[] keywords = Expressions.keywords(size);
+		literals = new StringLiteral[size];
+		for (int i = 0; i < size; i++)
+			literals[i] = Literal.literal(keywords[i]);
+	}
+
+	@Benchmark
+	public Sequence sequenceBuilder()
+	{
+		final Sequence.Builder builder = Sequence.builder();
+		for (final StringLiteral literal : literals)
+			builder.andThen(literal);
+		return builder.build();
+	}
+
+	@Benchmark
+	public Alternation alternationBuilder()
+	{
+		final Alternation.Builder builder = Alternation.builder();
+		for (final StringLiteral literal : literals)
+			builder.or(literal);
+		return builder.build();
+	}
+}
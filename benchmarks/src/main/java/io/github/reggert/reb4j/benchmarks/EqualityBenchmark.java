@@ -0,0 +1,65 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hashing and comparing deep trees, as when expressions are used as keys.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EqualityBenchmark
+{
+	@Param({"10", "100", "1000", "10000"})
+	public int depth;
+
+	private Expression tree;
+	private Expression equalTree;
+	private Expression differentTree;
+	private Map<Expression, Boolean> map;
+
+	@Setup
+	public void setUp()
+	{
+		tree = Expressions.deepTree('z', depth);
+		equalTree = Expressions.deepTree('z', depth);
+		differentTree = Expressions.deepTree('w', depth);
+		map = new HashMap<Expression, Boolean>();
+		map.put(tree, Boolean.TRUE);
+	}
+
+	@Benchmark
+	public int hashCodeOfTree()
+	{return equalTree.hashCode();}
+
+	@Benchmark
+	public boolean equalsEqualTree()
+	{return tree.equals(equalTree);}
+
+	@Benchmark
+	public boolean equalsDifferentTree()
+	{return tree.equals(differentTree);}
+
+	@Benchmark
+	public Boolean mapLookup()
+	{return map.get(equalTree);}
+}
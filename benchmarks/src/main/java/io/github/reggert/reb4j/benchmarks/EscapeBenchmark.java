@@ -0,0 +1,65 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.StringLiteral;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering long string literals, made either of plain text (with the
+ * occasional character that needs escaping) or of punctuation (which is
+ * rendered quoted).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class EscapeBenchmark
+{
+	static final String TEXT = "text";
+	static final String PUNCTUATION = "punctuation";
+
+	@Param({"16", "256", "4096"})
+	public int length;
+
+	@Param({TEXT, PUNCTUATION})
+	public String content;
+
+	private StringLiteral literal;
+	private StringBuilder builder;
+
+	@Setup
+	public void setUp()
+	{
+		final String alphabet = TEXT.equals(content) ? "abcdefghijklmnopqrstuvwxyz0123456789 ." : "()[]{}.*+?$^|\\-";
+		final Random random = new Random(14);
+		final StringBuilder unescaped = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			unescaped.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		literal = Literal.literal(unescaped.toString());
+		builder = new StringBuilder(4 * length);
+	}
+
+	@Benchmark
+	public int appendTo()
+	{
+		builder.setLength(0);
+		literal.appendTo(builder);
+		return builder.length();
+	}
+}
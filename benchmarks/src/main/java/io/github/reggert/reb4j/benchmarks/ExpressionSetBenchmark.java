@@ -0,0 +1,105 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.automaton.ExpressionSet;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Determining which of many expressions occur in each of 256 log lines,
+ * by looping over the pattern compiled from each expression and with an
+ * {@link ExpressionSet}. Each expression is a keyword followed by
+ * <code>=</code> and digits; about one word in ten of each line is taken
+ * from the keywords.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionSetBenchmark
+{
+	private static final int LINES = 256;
+
+	@Param({"10", "100", "2000"})
+	public int expressions;
+
+	private String[] lines;
+	private Pattern[] patterns;
+	private ExpressionSet set;
+	private final BitSet matched = new BitSet();
+
+	@Setup
+	public void setUp()
+	{
+		final String[] words = Expressions.keywords(expressions);
+		final Expression[] members = new Expression[expressions];
+		patterns = new Pattern[expressions];
+		for (int i = 0; i < expressions; i++)
+		{
+			members[i] = Literal.literal(words[i] + "=").andThen(Perl.DIGIT.atLeastOnce());
+			patterns[i] = members[i].toPattern();
+		}
+		set = ExpressionSet.compile(members);
+		final Random random = new Random(LINES);
+		lines = new String[LINES];
+		for (int i = 0; i < LINES; i++)
+		{
+			final StringBuilder line = new StringBuilder();
+			while (line.length() < 120)
+			{
+				if (random.nextInt(10) == 0)
+					line.append(words[random.nextInt(words.length)]);
+				else
+					line.append(Expressions.word(random));
+				line.append('=').append(random.nextInt(1000)).append(' ');
+			}
+			lines[i] = line.toString();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void patterns(final Blackhole blackhole)
+	{
+		for (final String line : lines)
+		{
+			matched.clear();
+			for (int i = 0; i < patterns.length; i++)
+				if (patterns[i].matcher(line).find())
+					matched.set(i);
+			blackhole.consume(matched.cardinality());
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(LINES)
+	public void expressionSet(final Blackhole blackhole)
+	{
+		for (final String line : lines)
+		{
+			set.find(line, matched);
+			blackhole.consume(matched.cardinality());
+		}
+	}
+}
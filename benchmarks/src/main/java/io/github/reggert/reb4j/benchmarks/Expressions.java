@@ -0,0 +1,75 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.benchmarks.baseline.Inputs;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import java.util.Random;
+
+/**
+ * Representative expression trees and inputs shared by the benchmarks,
+ * extending those in {@link Inputs} with ones that use the current API.
+ * Everything is generated from fixed seeds, so that runs are comparable.
+ */
+final class Expressions
+{
+	private Expressions() {}
+
+	/**
+	 * Names of the trees available from {@link #tree(String)}.
+	 */
+	static final String IPV4 = "ipv4", DEEP = "deep", KEYWORDS = "keywords";
+
+	static Expression tree(final String name)
+	{
+		if (IPV4.equals(name))
+			return DottedDecimalIPv4Address.dottedDecimalIPAddress;
+		if (DEEP.equals(name))
+			return deepTree('z', 100);
+		if (KEYWORDS.equals(name))
+			return keywordAlternation(keywords(1000));
+		throw new IllegalArgumentException("Unknown tree: " + name);
+	}
+
+	static Expression deepTree(final char innermost, final int depth)
+	{return Inputs.deepTree(innermost, depth);}
+
+	static String[] keywords(final int count)
+	{return Inputs.keywords(count);}
+
+	static String word(final Random random)
+	{return Inputs.word(random);}
+
+	static Alternation keywordAlternation(final String[] keywords)
+	{
+		final Alternation.Builder builder = Alternation.builder();
+		for (final String keyword : keywords)
+			builder.or(Literal.literal(keyword));
+		return builder.build();
+	}
+
+	/**
+	 * Generates text of roughly the specified length, consisting of random
+	 * words separated by spaces, one in <var>keywordRatio</var> of which is
+	 * taken from <var>keywords</var>.
+	 */
+	static String text(final String[] keywords, final int length, final int keywordRatio)
+	{
+		final Random random = new Random(length);
+		final StringBuilder builder = new StringBuilder(length + 16);
+		while (builder.length() < length)
+		{
+			if (random.nextInt(keywordRatio) == 0)
+				builder.append(keywords[random.nextInt(keywords.length)]);
+			else
+				builder.append(word(random).toUpperCase());
+			builder.append(' ');
+		}
+		return builder.toString();
+	}
+
+	static String[] addresses(final int count)
+	{return Inputs.addresses(count);}
+}
@@ -0,0 +1,64 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.automaton.Automaton;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matching <code>(a+)+b</code> against runs of 'a' with no 'b', which
+ * takes time exponential in the length of the run for a backtracking
+ * engine and linear time for the automaton.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HostileInputBenchmark
+{
+	@Param({"8", "16", "24"})
+	public int length;
+
+	private String input;
+	private Pattern pattern;
+	private Automaton automaton;
+
+	@Setup
+	public void setUp()
+	{
+		final Expression expression = Group.capture(Literal.literal('a').atLeastOnce())
+			.atLeastOnce()
+			.andThen(Literal.literal('b'));
+		final StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < length; i++)
+			builder.append('a');
+		input = builder.append('!').toString();
+		pattern = expression.toPattern();
+		automaton = Automaton.compile(expression);
+	}
+
+	@Benchmark
+	public boolean pattern()
+	{return pattern.matcher(input).matches();}
+
+	@Benchmark
+	public boolean automaton()
+	{return automaton.matches(input);}
+}
@@ -0,0 +1,84 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.AlternationFactoring;
+import io.github.reggert.reb4j.automaton.AhoCorasick;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding every occurrence of a large set of keywords in 16K characters
+ * of text, with the pattern compiled from the alternation, with the
+ * pattern compiled from the factored alternation, and with the
+ * Aho-Corasick matcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeywordBenchmark
+{
+	@Param({"1000", "10000", "100000"})
+	public int keywords;
+
+	private String text;
+	private Pattern pattern;
+	private Pattern factoredPattern;
+	private AhoCorasick ahoCorasick;
+
+	@Setup
+	public void setUp()
+	{
+		final String[] words = Expressions.keywords(keywords);
+		final Alternation alternation = Expressions.keywordAlternation(words);
+		text = Expressions.text(words, 16384, 10);
+		pattern = alternation.toPattern();
+		factoredPattern = AlternationFactoring.factor(alternation).toPattern();
+		ahoCorasick = AhoCorasick.compile(alternation);
+	}
+
+	@Benchmark
+	public int pattern()
+	{
+		int count = 0;
+		final Matcher matcher = pattern.matcher(text);
+		while (matcher.find())
+			count++;
+		return count;
+	}
+
+	@Benchmark
+	public int factoredPattern()
+	{
+		int count = 0;
+		final Matcher matcher = factoredPattern.matcher(text);
+		while (matcher.find())
+			count++;
+		return count;
+	}
+
+	@Benchmark
+	public int ahoCorasick()
+	{
+		int count = 0;
+		for (AhoCorasick.Match match = ahoCorasick.firstMatch(text, 0); match != null; match = ahoCorasick.firstMatch(text, match.end()))
+			count++;
+		return count;
+	}
+}
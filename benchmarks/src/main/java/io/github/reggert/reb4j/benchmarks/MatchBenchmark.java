@@ -0,0 +1,96 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.automaton.Automaton;
+import io.github.reggert.reb4j.automaton.CompiledAutomaton;
+import io.github.reggert.reb4j.matching.MatcherPool;
+import io.github.reggert.reb4j.matching.PrefilteredMatcher;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * End-to-end matching of dotted-decimal IPv4 addresses, about half of
+ * them valid, with each of the available matchers. Matching with the
+ * expression's {@link java.util.regex.Pattern} is measured by
+ * {@link io.github.reggert.reb4j.benchmarks.baseline.PatternMatchBenchmark},
+ * which also runs against 3.2.1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MatchBenchmark
+{
+	private static final int ADDRESSES = 1024;
+
+	private String[] addresses;
+	private Automaton automaton;
+	private CompiledAutomaton compiled;
+	private PrefilteredMatcher prefiltered;
+	private MatcherPool pool;
+
+	@Setup
+	public void setUp()
+	{
+		addresses = Expressions.addresses(ADDRESSES);
+		automaton = Automaton.compile(DottedDecimalIPv4Address.dottedDecimalIPAddress);
+		compiled = CompiledAutomaton.compile(DottedDecimalIPv4Address.dottedDecimalIPAddress);
+		prefiltered = new PrefilteredMatcher(DottedDecimalIPv4Address.dottedDecimalIPAddress);
+		pool = DottedDecimalIPv4Address.dottedDecimalIPAddress.matching();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void pooled(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(pool.matches(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void automaton(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(automaton.matches(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void compiled(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(compiled.matches(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void prefiltered(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(prefiltered.matches(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void parse(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(DottedDecimalIPv4Address.parse(address));
+	}
+}
@@ -0,0 +1,101 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.matching.MatchBudget;
+import io.github.reggert.reb4j.matching.MatcherPool;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Overhead of {@link MatchBudget}: matching 1,024 dotted-decimal strings,
+ * where the cost of guarding each input dominates, and searching 64K
+ * characters of words for a pattern that is never found, where the cost
+ * of counting each character read dominates; each without a budget, with
+ * a step budget and with a timeout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MatchBudgetBenchmark
+{
+	private static final int ADDRESSES = 1024;
+	private static final int LENGTH = 64 << 10;
+	private static final MatchBudget STEPS = MatchBudget.steps(Long.MAX_VALUE - 1);
+	private static final MatchBudget TIMEOUT = MatchBudget.timeout(1, TimeUnit.MINUTES);
+
+	private String[] addresses;
+	private MatcherPool addressPool;
+	private String text;
+	private MatcherPool scanPool;
+
+	@Setup
+	public void setUp()
+	{
+		addresses = Expressions.addresses(ADDRESSES);
+		addressPool = DottedDecimalIPv4Address.dottedDecimalIPAddress.matching();
+		final Random random = new Random(LENGTH);
+		final StringBuilder builder = new StringBuilder(LENGTH + 16);
+		while (builder.length() < LENGTH)
+			builder.append(Expressions.word(random)).append(' ');
+		text = builder.toString();
+		// Every word is tried, and then fails to be followed by a digit.
+		final Expression absent = Perl.WORD.atLeastOnce().andThen(Literal.literal(' ')).andThen(Perl.DIGIT);
+		scanPool = absent.matching();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void matchUnbudgeted(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(addressPool.matches(address));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void matchWithSteps(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(addressPool.matches(address, STEPS));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void matchWithTimeout(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(addressPool.matches(address, TIMEOUT));
+	}
+
+	@Benchmark
+	public boolean scanUnbudgeted()
+	{return scanPool.find(text);}
+
+	@Benchmark
+	public boolean scanWithSteps()
+	{return scanPool.find(text, STEPS);}
+
+	@Benchmark
+	public boolean scanWithTimeout()
+	{return scanPool.find(text, TIMEOUT);}
+}
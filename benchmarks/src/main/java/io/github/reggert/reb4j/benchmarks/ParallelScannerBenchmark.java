@@ -0,0 +1,98 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.matching.ParallelScanner;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Finding every <code>key=digits</code> pair in 64M characters of log
+ * lines with a single <code>find()</code> loop, and with
+ * {@link ParallelScanner} dividing the input on line boundaries and with
+ * overlapping chunks, on pools of 1 to 8 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParallelScannerBenchmark
+{
+	private static final int LENGTH = 64 << 20;
+
+	@Param({"1", "2", "4", "8"})
+	public int threads;
+
+	private String text;
+	private Pattern pattern;
+	private ForkJoinPool pool;
+	private ParallelScanner records;
+	private ParallelScanner overlapping;
+
+	@Setup
+	public void setUp()
+	{
+		final Expression expression = Group.capture(Perl.WORD.repeat(1, 16))
+			.andThen(Literal.literal('='))
+			.andThen(Group.capture(Perl.DIGIT.repeat(1, 9)));
+		final Random random = new Random(LENGTH);
+		final StringBuilder builder = new StringBuilder(LENGTH + 256);
+		while (builder.length() < LENGTH)
+		{
+			for (int i = random.nextInt(8); i >= 0; i--)
+			{
+				builder.append(Expressions.word(random)).append(random.nextBoolean() ? '=' : ' ');
+				builder.append(random.nextInt(1000000)).append(' ');
+			}
+			builder.append('\n');
+		}
+		text = builder.toString();
+		pattern = expression.toPattern();
+		pool = new ForkJoinPool(threads);
+		records = ParallelScanner.records(expression, '\n').withPool(pool);
+		overlapping = ParallelScanner.overlapping(expression).withPool(pool);
+	}
+
+	@TearDown
+	public void tearDown()
+	{pool.shutdown();}
+
+	@Benchmark
+	public int sequential()
+	{
+		int count = 0;
+		final Matcher matcher = pattern.matcher(text);
+		while (matcher.find())
+			count++;
+		return count;
+	}
+
+	@Benchmark
+	public int records()
+	{return records.findAll(text).length();}
+
+	@Benchmark
+	public int overlapping()
+	{return overlapping.findAll(text).length();}
+}
@@ -0,0 +1,65 @@
+package io.github.reggert.reb4j.benchmarks;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.LiteralCoalescing;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering representative trees into a fresh buffer, bypassing the cached
+ * string: the work done the first time an expression is rendered.
+ * {@link #renderCoalesced()} renders the tree after
+ * {@link LiteralCoalescing} has merged its adjacent literals. The cached
+ * string, compiled pattern and bounded length are measured by
+ * {@link io.github.reggert.reb4j.benchmarks.baseline.PatternBenchmark},
+ * which also runs against 3.2.1.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RenderBenchmark
+{
+	@Param({Expressions.IPV4, Expressions.DEEP, Expressions.KEYWORDS})
+	public String tree;
+
+	private Expression expression;
+	private Expression coalesced;
+
+	@Setup
+	public void setUp()
+	{
+		expression = Expressions.tree(tree);
+		coalesced = LiteralCoalescing.coalesce(expression);
+	}
+
+	@Benchmark
+	public String render()
+	{
+		final StringBuilder builder = new StringBuilder();
+		expression.appendTo(builder);
+		return builder.toString();
+	}
+
+	@Benchmark
+	public String renderCoalesced()
+	{
+		final StringBuilder builder = new StringBuilder();
+		coalesced.appendTo(builder);
+		return builder.toString();
+	}
+}
@@ -0,0 +1,65 @@
+package io.github.reggert.reb4j.benchmarks.baseline;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.StringLiteral;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building long sequences and alternations one component at a time, by
+ * chaining <code>andThen</code>/<code>or</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChainedConstructionBenchmark
+{
+	@Param({"10", "1000", "10000"})
+	public int size;
+
+	private StringLiteral[] literals;
+
+	@Setup
+	public void setUp()
+	{
+		final String[] keywords = Inputs.keywords(size);
+		literals = new StringLiteral[size];
+		for (int i = 0; i < size; i++)
+			literals[i] = Literal.literal(keywords[i]);
+	}
+
+	@Benchmark
+	public Sequence chainedAndThen()
+	{
+		Sequence sequence = literals[0].andThen(literals[1]);
+		for (int i = 2; i < literals.length; i++)
+			sequence = sequence.andThen(literals[i]);
+		return sequence;
+	}
+
+	@Benchmark
+	public Alternation chainedOr()
+	{
+		Alternation alternation = literals[0].or(literals[1]);
+		for (int i = 2; i < literals.length; i++)
+			alternation = alternation.or(literals[i]);
+		return alternation;
+	}
+}
@@ -0,0 +1,134 @@
+package io.github.reggert.reb4j.benchmarks.baseline;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Representative expression trees and inputs, built with nothing newer
+ * than the reb4j 3.2.1 API so that the suites in this package can be run
+ * against that release. Everything is generated from fixed seeds, so that
+ * runs are comparable.
+ */
+public final class Inputs
+{
+	private Inputs() {}
+
+	/**
+	 * Names of the trees available from {@link #tree(String)}.
+	 */
+	public static final String IPV4 = "ipv4", DEEP = "deep", KEYWORDS = "keywords";
+
+	static Expression tree(final String name)
+	{
+		if (IPV4.equals(name))
+			return dottedDecimalIPAddress();
+		if (DEEP.equals(name))
+			return deepTree('z', 100);
+		if (KEYWORDS.equals(name))
+			return chainedAlternation(keywords(1000));
+		throw new IllegalArgumentException("Unknown tree: " + name);
+	}
+
+	/**
+	 * Builds the same tree as the prefab
+	 * <code>DottedDecimalIPv4Address.dottedDecimalIPAddress</code>, which
+	 * is not published with 3.2.1.
+	 */
+	static Sequence dottedDecimalIPAddress()
+	{
+		final Alternative twoDigitOctet = CharClass.range('1', '9').andThen(Perl.DIGIT);
+		final Alternation threeDigitOctet = Alternation.alternatives(
+				Literal.literal('1').andThen(Perl.DIGIT.repeat(2)),
+				Sequence.sequence(Literal.literal('2'), CharClass.range('0', '4'), Perl.DIGIT),
+				Literal.literal("25").andThen(CharClass.range('0', '5'))
+			);
+		final Alternation octet = Alternation.alternatives(Perl.DIGIT, twoDigitOctet, threeDigitOctet);
+		final Literal dot = Literal.literal('.');
+		return Sequence.sequence(
+				Group.capture(octet), dot,
+				Group.capture(octet), dot,
+				Group.capture(octet), dot,
+				Group.capture(octet)
+			);
+	}
+
+	/**
+	 * Builds nested groups, quantifiers, sequences, alternations and
+	 * character classes to the specified depth.
+	 */
+	public static Expression deepTree(final char innermost, final int depth)
+	{
+		Expression expression = CharClass.characters('x', 'y', innermost)
+			.union(CharClass.range('0', '9'));
+		for (int i = 0; i < depth; i++)
+			expression = Group.nonCapturing(
+					Literal.literal('a')
+						.andThen(Group.capture(expression).anyTimes())
+						.or(CharClass.range('a', 'f'))
+				);
+		return expression;
+	}
+
+	/**
+	 * Generates distinct lowercase words of 3 to 10 letters.
+	 */
+	public static String[] keywords(final int count)
+	{
+		final Random random = new Random(count);
+		final Set<String> keywords = new LinkedHashSet<String>();
+		while (keywords.size() < count)
+			keywords.add(word(random));
+		return keywords.toArray(new String[count]);
+	}
+
+	public static String word(final Random random)
+	{
+		final char[] word = new char[3 + random.nextInt(8)];
+		for (int i = 0; i < word.length; i++)
+			word[i] = (char) ('a' + random.nextInt(26));
+		return new String(word);
+	}
+
+	/**
+	 * Builds an alternation of the keywords by chaining <code>or</code>.
+	 */
+	static Alternation chainedAlternation(final String[] keywords)
+	{
+		Alternation alternation = Literal.literal(keywords[0]).or(Literal.literal(keywords[1]));
+		for (int i = 2; i < keywords.length; i++)
+			alternation = alternation.or(Literal.literal(keywords[i]));
+		return alternation;
+	}
+
+	/**
+	 * Generates dotted-decimal strings, roughly half of which are valid
+	 * IPv4 addresses.
+	 */
+	public static String[] addresses(final int count)
+	{
+		final Random random = new Random(count);
+		final String[] addresses = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			final StringBuilder builder = new StringBuilder();
+			for (int octet = 0; octet < 4; octet++)
+			{
+				if (octet > 0)
+					builder.append('.');
+				builder.append(random.nextInt(i % 2 == 0 ? 256 : 300));
+			}
+			addresses[i] = builder.toString();
+		}
+		return addresses;
+	}
+}
@@ -0,0 +1,66 @@
+package io.github.reggert.reb4j.benchmarks.baseline;
+
+import io.github.reggert.reb4j.Expression;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Rendering, compiling and analyzing representative trees through the
+ * methods that every version of {@link Expression} has.
+ *
+ * Later versions cache the rendered string and compiled pattern, so on
+ * those {@link #toStringEager()}, {@link #toPattern()} and
+ * {@link #boundedLength()} measure the steady state seen by callers that
+ * reuse expressions, while {@link #compile()} measures compiling the
+ * rendered string afresh.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PatternBenchmark
+{
+	@Param({Inputs.IPV4, Inputs.DEEP, Inputs.KEYWORDS})
+	public String tree;
+
+	private Expression expression;
+	private String rendered;
+
+	@Setup
+	public void setUp()
+	{
+		expression = Inputs.tree(tree);
+		rendered = expression.expression().toStringEager();
+	}
+
+	@Benchmark
+	public String toStringEager()
+	{return expression.expression().toStringEager();}
+
+	@Benchmark
+	public Pattern compile()
+	{return Pattern.compile(rendered);}
+
+	@Benchmark
+	public Pattern toPattern()
+	{return expression.toPattern();}
+
+	@Benchmark
+	public Integer boundedLength()
+	{return expression.boundedLength();}
+}
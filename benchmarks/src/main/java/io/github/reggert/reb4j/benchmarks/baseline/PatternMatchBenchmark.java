@@ -0,0 +1,51 @@
+package io.github.reggert.reb4j.benchmarks.baseline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Matching dotted-decimal IPv4 addresses, about half of them valid, with
+ * the {@link Pattern} compiled from the expression: the reference point
+ * for the matchers in <code>MatchBenchmark</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PatternMatchBenchmark
+{
+	private static final int ADDRESSES = 1024;
+
+	private String[] addresses;
+	private Pattern pattern;
+
+	@Setup
+	public void setUp()
+	{
+		addresses = Inputs.addresses(ADDRESSES);
+		pattern = Inputs.dottedDecimalIPAddress().toPattern();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ADDRESSES)
+	public void pattern(final Blackhole blackhole)
+	{
+		for (final String address : addresses)
+			blackhole.consume(pattern.matcher(address).matches());
+	}
+}
@@ -1,27 +1,107 @@
 package io.github.reggert.reb4j;
 
+import io.github.reggert.reb4j.matching.CaptureIndex;
+import io.github.reggert.reb4j.matching.MatcherPool;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 import java.util.regex.Pattern;
 
+import fj.data.LazyString;
+
 
 /**
  * Base implementation of {@link Expression}.
  *
- * This class provides the canonical implementations of {@link #toString()}
- * and {@link #toPattern()}.
+ * This class provides the canonical implementations of {@link #toString()},
+ * {@link #expression()}, {@link #toPattern()}, {@link #matching()} and
+ * {@link #captureIndex()} in terms of {@link #appendTo(StringBuilder)}.
+ *
+ * Since expressions are immutable, the rendered expression string, the
+ * compiled {@link Pattern}, the {@link MatcherPool} and the
+ * {@link CaptureIndex} are computed lazily on first use and then cached
+ * for the lifetime of the object. Initialization is lock-free: concurrent
+ * first callers may each do the work, but exactly one result is published
+ * and returned to all of them. The caches are transient, so a deserialized
+ * expression recomputes them on demand.
  */
-public abstract class AbstractExpression implements Expression 
+public abstract class AbstractExpression implements Expression
 {
 	private static final long serialVersionUID = 1L;
 
+	private static final AtomicReferenceFieldUpdater<AbstractExpression, String> STRING =
+		AtomicReferenceFieldUpdater.newUpdater(AbstractExpression.class, String.class, "string");
+
+	private static final AtomicReferenceFieldUpdater<AbstractExpression, Pattern> PATTERN =
+		AtomicReferenceFieldUpdater.newUpdater(AbstractExpression.class, Pattern.class, "pattern");
+
+	private static final AtomicReferenceFieldUpdater<AbstractExpression, MatcherPool> MATCHING =
+		AtomicReferenceFieldUpdater.newUpdater(AbstractExpression.class, MatcherPool.class, "matching");
+
+	private static final AtomicReferenceFieldUpdater<AbstractExpression, CaptureIndex> CAPTURE_INDEX =
+		AtomicReferenceFieldUpdater.newUpdater(AbstractExpression.class, CaptureIndex.class, "captureIndex");
+
+	private transient volatile String string;
+	private transient volatile Pattern pattern;
+	private transient volatile MatcherPool matching;
+	private transient volatile CaptureIndex captureIndex;
+
 	/**
 	 * Always returns the same value as {@link io.github.reggert.reb4j.Expression#expression}.
 	 */
 	@Override
 	public final String toString()
-	{return expression().toStringEager();}
+	{
+		final String cached = string;
+		if (cached != null)
+			return cached;
+		final StringBuilder builder = new StringBuilder();
+		appendTo(builder);
+		STRING.compareAndSet(this, null, builder.toString());
+		return string;
+	}
+
+	/**
+	 * Returns the rendered form of this expression if it has already been
+	 * computed, or <code>null</code> otherwise.
+	 */
+	final String cachedString()
+	{return string;}
+
+	/**
+	 * Returns a view of the (cached) rendered expression.
+	 */
+	@Override
+	public LazyString expression()
+	{return LazyString.str(toString());}
 
 	@Override
 	public final Pattern toPattern()
-	{return Pattern.compile(toString());}
+	{
+		final Pattern cached = pattern;
+		if (cached != null)
+			return cached;
+		PATTERN.compareAndSet(this, null, Pattern.compile(toString()));
+		return pattern;
+	}
+
+	@Override
+	public final MatcherPool matching()
+	{
+		final MatcherPool cached = matching;
+		if (cached != null)
+			return cached;
+		MATCHING.compareAndSet(this, null, new MatcherPool(this));
+		return matching;
+	}
+
+	@Override
+	public final CaptureIndex captureIndex()
+	{
+		final CaptureIndex cached = captureIndex;
+		if (cached != null)
+			return cached;
+		CAPTURE_INDEX.compareAndSet(this, null, CaptureIndex.of(this));
+		return captureIndex;
+	}
 
 }
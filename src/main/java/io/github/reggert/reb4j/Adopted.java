@@ -16,14 +16,22 @@ public final class Adopted extends AbstractExpression
 {
 	private static final long serialVersionUID = 1L;
 	public final LazyString expression;
+	private final String rawExpression;
 	
 	private Adopted(final String expression)
-	{this.expression = LazyString.str(expression);}
+	{
+		this.expression = LazyString.str(expression);
+		this.rawExpression = expression;
+	}
 	
 	@Override
 	public LazyString expression() 
 	{return expression;}
 	
+	@Override
+	public void appendTo(final StringBuilder builder)
+	{builder.append(rawExpression);}
+	
 	/**
 	 * Adopts the regular expression represented by the specified
 	 * {@link java.util.regex.Pattern}.
@@ -45,7 +53,7 @@ public final class Adopted extends AbstractExpression
 	{
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + (expression.toString().hashCode());
+		result = prime * result + rawExpression.hashCode();
 		return result;
 	}
 
@@ -59,7 +67,7 @@ public final class Adopted extends AbstractExpression
 		if (getClass() != obj.getClass())
 			return false;
 		final Adopted other = (Adopted) obj;
-		return expression.toString().equals(other.expression.toString());
+		return rawExpression.equals(other.rawExpression);
 	}
 
 	@Override
@@ -1,7 +1,5 @@
 package io.github.reggert.reb4j;
 
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.List;
 
 /**
@@ -12,11 +10,17 @@ public final class Alternation extends AbstractExpression
 {
 	private static final long serialVersionUID = 1L;
 	public final List<Alternative> alternatives;
+	private final int hashCode;
+	private final Integer boundedLength;
+	private final boolean possiblyZeroLength;
 	
-	private Alternation(final List<Alternative> alternatives)
+	Alternation(final List<Alternative> alternatives)
 	{
 		if (alternatives == null) throw new NullPointerException("alternatives");
 		this.alternatives = alternatives;
+		this.hashCode = hashCode(this.alternatives);
+		this.boundedLength = boundedLength(this.alternatives);
+		this.possiblyZeroLength = possiblyZeroLength(this.alternatives);
 	}
 	
 	/**
@@ -35,6 +39,9 @@ public final class Alternation extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.alternatives = left.alternatives.append(right.alternatives);
+		this.hashCode = hashCode(this.alternatives);
+		this.boundedLength = boundedLength(this.alternatives);
+		this.possiblyZeroLength = possiblyZeroLength(this.alternatives);
 	}
 	
 	/**
@@ -53,6 +60,9 @@ public final class Alternation extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.alternatives = left.alternatives.append(List.single(right));
+		this.hashCode = hashCode(this.alternatives);
+		this.boundedLength = boundedLength(this.alternatives);
+		this.possiblyZeroLength = possiblyZeroLength(this.alternatives);
 	}
 	
 	/**
@@ -71,6 +81,9 @@ public final class Alternation extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.alternatives = right.alternatives.cons(left);
+		this.hashCode = hashCode(this.alternatives);
+		this.boundedLength = boundedLength(this.alternatives);
+		this.possiblyZeroLength = possiblyZeroLength(this.alternatives);
 	}
 	
 	/**
@@ -88,6 +101,9 @@ public final class Alternation extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.alternatives = List.list(left, right);
+		this.hashCode = hashCode(this.alternatives);
+		this.boundedLength = boundedLength(this.alternatives);
+		this.possiblyZeroLength = possiblyZeroLength(this.alternatives);
 	}
 	
 	/**
@@ -115,18 +131,93 @@ public final class Alternation extends AbstractExpression
 		return new Alternation(List.list(rest).cons(second).cons(first));
 	}
 	
+	/**
+	 * Creates a builder for assembling an alternation from many alternatives.
+	 * 
+	 * @return a new, empty builder.
+	 */
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+	
+	/**
+	 * Mutable accumulator for alternations with many alternatives.
+	 * 
+	 * Each call to {@link Alternation#or(Alternative)} copies all of the
+	 * alternatives accumulated so far, so building an <var>n</var>-way
+	 * alternation by chaining it takes quadratic time. A builder appends each
+	 * alternative in amortized constant time, and {@link #build()} produces
+	 * an alternation equal to the one that the equivalent chain of 
+	 * <code>or</code> calls would have produced.
+	 * 
+	 * Builders are not thread-safe. A builder may continue to be used
+	 * after {@link #build()} has been called; previously built alternations
+	 * are not affected.
+	 */
+	public static final class Builder
+	{
+		private final List.Buffer<Alternative> alternatives = new List.Buffer<Alternative>();
+		private int size = 0;
+		
+		private Builder()
+		{}
+		
+		/**
+		 * Appends an alternative to the alternation being built.
+		 * 
+		 * @param next
+		 * 	the alternative to append; must not be <code>null</code>.
+		 * @return this builder.
+		 * @throws NullPointerException
+		 * 	if <var>next</var> is <code>null</code>.
+		 */
+		public Builder or(final Alternative next)
+		{
+			if (next == null) throw new NullPointerException("next");
+			alternatives.snoc(next);
+			size++;
+			return this;
+		}
+		
+		/**
+		 * Appends the alternatives of another alternation to the alternation
+		 * being built.
+		 * 
+		 * @param next
+		 * 	the alternation whose alternatives are to be appended; 
+		 * 	must not be <code>null</code>.
+		 * @return this builder.
+		 * @throws NullPointerException
+		 * 	if <var>next</var> is <code>null</code>.
+		 */
+		public Builder or(final Alternation next)
+		{
+			if (next == null) throw new NullPointerException("next");
+			alternatives.append(next.alternatives);
+			size += next.alternatives.length();
+			return this;
+		}
+		
+		/**
+		 * Constructs an alternation from the alternatives appended so far.
+		 * 
+		 * @return a new alternation.
+		 * @throws IllegalStateException
+		 * 	if fewer than two alternatives have been appended.
+		 */
+		public Alternation build()
+		{
+			if (size < 2) 
+				throw new IllegalStateException("An alternation requires at least two alternatives, but " + size + " were supplied");
+			return new Alternation(alternatives.toList());
+		}
+	}
+	
 	@Override
-	public LazyString expression() 
-	{
-		return alternatives.tail().foldLeft(
-				new F2<LazyString, Alternative, LazyString>() 
-				{
-					@Override
-					public LazyString f(final LazyString a, final Alternative b)
-					{return a.append("|").append(b.expression());}
-				}, 
-				alternatives.head().expression()
-			);
+	public void appendTo(final StringBuilder builder) 
+	{
+		ExpressionRenderer.appendTo(this, builder);
 	}
 
 	@Override
@@ -137,14 +228,17 @@ public final class Alternation extends AbstractExpression
 	public Alternation or(final Alternative right) 
 	{return new Alternation(this, right);}
 	
-	@Override
-	public int hashCode()
+	private static int hashCode(final List<Alternative> alternatives)
 	{
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + alternatives.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -155,12 +249,10 @@ public final class Alternation extends AbstractExpression
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		final Alternation other = (Alternation) obj;
-		return alternatives.equals(other.alternatives);
+		return StructuralEquality.equal(this, (Alternation) obj);
 	}
 
-	@Override
-	public Integer boundedLength() 
+	private static Integer boundedLength(final List<Alternative> alternatives)
 	{
 		int maximumLength = 0;
 		for (final Alternative alternative : alternatives)
@@ -168,11 +260,25 @@ public final class Alternation extends AbstractExpression
 			final Integer alternativeLength = alternative.boundedLength();
 			if (alternativeLength == null)
 				return null;
-			if (alternativeLength > maximumLength)
-				maximumLength = alternativeLength;
+			if (alternativeLength.intValue() > maximumLength)
+				maximumLength = alternativeLength.intValue();
 		}
 		return maximumLength;
 	}
+	
+	private static boolean possiblyZeroLength(final List<Alternative> alternatives)
+	{
+		for (final Alternative a : alternatives)
+			if (a.possiblyZeroLength())
+				return true;
+		return false;
+	}
+
+	@Override
+	public Integer boundedLength() 
+	{
+		return boundedLength;
+	}
 
 	@Override
 	public boolean repetitionInvalidatesBounds() 
@@ -183,10 +289,7 @@ public final class Alternation extends AbstractExpression
 	@Override
 	public boolean possiblyZeroLength() 
 	{
-		for (final Alternative a : alternatives)
-			if (a.possiblyZeroLength())
-				return true;
-		return false;
+		return possiblyZeroLength;
 	}
 }
 
@@ -0,0 +1,374 @@
+package io.github.reggert.reb4j;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import fj.data.List;
+
+/**
+ * Optimization that factors common literal prefixes out of alternations,
+ * turning <code>foobar|foobaz|food</code> into
+ * <code>foo(?:ba[rz]|d)</code>.
+ *
+ * A backtracking matcher scans a prefix shared by several alternatives
+ * once per alternative; after factoring, it scans it once, and rejects
+ * alternatives that begin with a different character after looking at that
+ * character alone.
+ *
+ * The factored expression matches exactly what the original does, with
+ * the same preference among alternatives and the same numbering of
+ * capturing groups, whether or not it is matched case-insensitively:
+ * <ul>
+ * <li>Alternatives are only reordered relative to alternatives that begin
+ * 	with a different literal character (compared case-insensitively), and
+ * 	so can never match at the same position.</li>
+ * <li>Alternatives that are empty, do not begin with a literal character
+ * 	other than whitespace, or contain capturing groups or adopted
+ * 	expressions are never moved; they split the alternation into runs
+ * 	that are factored separately.</li>
+ * <li>An alternative equal to an earlier one can never produce a match
+ * 	that the earlier one did not, and is dropped.</li>
+ * <li>Runs of single-character alternatives become character classes.</li>
+ * </ul>
+ */
+public final class AlternationFactoring
+{
+	private AlternationFactoring() {}
+
+	private static final ExpressionRewriter REWRITER = new ExpressionRewriter()
+	{
+		@Override
+		Expression rewriteNode(final Expression expression)
+		{
+			if (expression instanceof Alternation)
+				return factorAlternation((Alternation) expression);
+			return expression;
+		}
+	};
+
+	/**
+	 * Factors every alternation within the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to optimize; must not be <code>null</code>.
+	 * @return an equivalent expression, or <var>expression</var> itself if
+	 * 	nothing could be factored.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static Expression factor(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		return REWRITER.rewrite(expression);
+	}
+
+	/**
+	 * Factors the specified alternation, and every alternation within it.
+	 *
+	 * @param alternation
+	 * 	the alternation to optimize; must not be <code>null</code>.
+	 * @return an equivalent expression, or <var>alternation</var> itself if
+	 * 	nothing could be factored.
+	 * @throws NullPointerException
+	 * 	if <var>alternation</var> is <code>null</code>.
+	 */
+	public static Alternative factor(final Alternation alternation)
+	{
+		if (alternation == null) throw new NullPointerException("alternation");
+		return (Alternative) REWRITER.rewrite(alternation);
+	}
+
+	private static Alternative factorAlternation(final Alternation alternation)
+	{
+		final ArrayList<Branch> branches = new ArrayList<Branch>(alternation.alternatives.length());
+		for (final Alternative alternative : alternation.alternatives)
+			branches.add(Branch.of(alternative));
+		final ArrayList<Alternative> factored = factorBranches(branches);
+		if (factored.size() == 1)
+			return factored.get(0);
+		if (factored.size() == branches.size())
+		{
+			boolean changed = false;
+			for (int i = 0; i < branches.size(); i++)
+				changed |= factored.get(i) != branches.get(i).original;
+			if (!changed)
+				return alternation;
+		}
+		return new Alternation(List.iterableList(factored));
+	}
+
+	private static ArrayList<Alternative> factorBranches(final ArrayList<Branch> branches)
+	{
+		final ArrayList<Alternative> factored = new ArrayList<Alternative>();
+		final ArrayList<Branch> run = new ArrayList<Branch>();
+		final Set<Branch> seen = new HashSet<Branch>();
+		for (final Branch branch : branches)
+		{
+			if (!branch.kept && !seen.add(branch))
+				continue;
+			if (branch.pinned())
+			{
+				factorRun(run, factored);
+				run.clear();
+				factored.add(branch.toAlternative());
+			}
+			else
+				run.add(branch);
+		}
+		factorRun(run, factored);
+		return factored;
+	}
+
+	/*
+	 * Factors a run of movable branches, each of which begins with a literal
+	 * character, grouping them by that character.
+	 */
+	private static void factorRun(final ArrayList<Branch> run, final ArrayList<Alternative> factored)
+	{
+		final LinkedHashMap<Character, ArrayList<Branch>> groups = new LinkedHashMap<Character, ArrayList<Branch>>();
+		for (final Branch branch : run)
+		{
+			final Character key = fold(branch.prefix.charAt(0));
+			ArrayList<Branch> group = groups.get(key);
+			if (group == null)
+				groups.put(key, group = new ArrayList<Branch>());
+			group.add(branch);
+		}
+		final ArrayList<Branch> singles = new ArrayList<Branch>();
+		int singlesPosition = -1;
+		for (final ArrayList<Branch> group : groups.values())
+		{
+			if (allSingleCharacters(group))
+			{
+				if (singlesPosition < 0)
+				{
+					singlesPosition = factored.size();
+					factored.add(null);
+				}
+				singles.addAll(group);
+			}
+			else if (group.size() == 1)
+				factored.add(group.get(0).toAlternative());
+			else
+				factorGroup(group, factored);
+		}
+		if (singlesPosition >= 0)
+			factored.set(singlesPosition, singles.size() == 1 ? singles.get(0).toAlternative() : characterClass(singles));
+	}
+
+	/*
+	 * Factors the longest common prefix out of branches that begin with the
+	 * same character.
+	 */
+	private static void factorGroup(final ArrayList<Branch> group, final ArrayList<Alternative> factored)
+	{
+		final String common = commonPrefix(group);
+		if (common.isEmpty())
+		{
+			for (final Branch branch : group)
+				factored.add(branch.toAlternative());
+			return;
+		}
+		final ArrayList<Branch> suffixes = new ArrayList<Branch>(group.size());
+		for (final Branch branch : group)
+			suffixes.add(branch.withoutPrefix(common.length()));
+		final ArrayList<Alternative> tails = factorBranches(suffixes);
+		final Expression tail = tails.size() == 1 ? tails.get(0) : new Alternation(List.iterableList(tails));
+		if (tail instanceof Literal)
+			factored.add(Branch.literal(common + ((Literal) tail).unescaped()));
+		else if (tail instanceof Sequence)
+			factored.add(new Sequence(((Sequence) tail).components.cons(Branch.literal(common))));
+		else if (tail instanceof Sequenceable)
+			factored.add(new Sequence(List.list(Branch.literal(common), (Sequenceable) tail)));
+		else
+			factored.add(new Sequence(List.<Sequenceable>list(Branch.literal(common), Group.nonCapturing(tail))));
+	}
+
+	private static String commonPrefix(final ArrayList<Branch> group)
+	{
+		final String first = group.get(0).prefix;
+		int length = first.length();
+		for (final Branch branch : group)
+		{
+			int i = 0;
+			while (i < length && i < branch.prefix.length() && branch.prefix.charAt(i) == first.charAt(i))
+				i++;
+			length = i;
+		}
+		// Never separate the halves of a surrogate pair.
+		if (length > 0 && Character.isHighSurrogate(first.charAt(length - 1)))
+			length--;
+		return first.substring(0, length);
+	}
+
+	private static boolean allSingleCharacters(final ArrayList<Branch> group)
+	{
+		for (final Branch branch : group)
+		{
+			if (branch.prefix.length() != 1 || !branch.rest.isEmpty())
+				return false;
+			// Surrogates would pair up inside a class.
+			if (Character.isSurrogate(branch.prefix.charAt(0)))
+				return false;
+		}
+		return true;
+	}
+
+	private static CharClass characterClass(final ArrayList<Branch> singles)
+	{
+		final char[] others = new char[singles.size() - 2];
+		for (int i = 2; i < singles.size(); i++)
+			others[i - 2] = singles.get(i).prefix.charAt(0);
+		return CharClass.characters(singles.get(0).prefix.charAt(0), singles.get(1).prefix.charAt(0), others);
+	}
+
+	/*
+	 * Characters that match each other case-insensitively have the same key.
+	 */
+	private static Character fold(final char c)
+	{return Character.toLowerCase(Character.toUpperCase(c));}
+
+
+	/**
+	 * An alternative, split into the literal text it begins with and the
+	 * sequence components that follow.
+	 */
+	private static final class Branch
+	{
+		final String prefix;
+		final List<Sequenceable> rest;
+		/**
+		 * Whether the branch must stay where it is and must not be dropped
+		 * as a duplicate.
+		 */
+		final boolean kept;
+		/**
+		 * The alternative this branch was made from, if it is unchanged.
+		 */
+		final Alternative original;
+
+		private Branch(final String prefix, final List<Sequenceable> rest, final boolean kept, final Alternative original)
+		{
+			this.prefix = prefix;
+			this.rest = rest;
+			this.kept = kept;
+			this.original = original;
+		}
+
+		static Branch of(final Alternative alternative)
+		{
+			final String literal = literalOf(alternative);
+			if (literal != null)
+				return new Branch(literal, List.<Sequenceable>nil(), false, alternative);
+			if (alternative instanceof Sequence)
+			{
+				final StringBuilder prefix = new StringBuilder();
+				List<Sequenceable> rest = ((Sequence) alternative).components;
+				for (String head; rest.isNotEmpty() && (head = literalOf(rest.head())) != null; rest = rest.tail())
+					prefix.append(head);
+				boolean capturing = false;
+				for (final Sequenceable component : rest)
+					capturing |= isCapturing(component);
+				return new Branch(prefix.toString(), rest, capturing, alternative);
+			}
+			if (alternative instanceof Sequenceable)
+				return new Branch("", List.single((Sequenceable) alternative), isCapturing(alternative), alternative);
+			return new Branch("", List.<Sequenceable>nil(), true, alternative);
+		}
+
+		/**
+		 * Indicates whether the branch has to stay where it is. Literal
+		 * whitespace is ignored in comments mode, so a branch beginning with
+		 * whitespace does not necessarily begin with that character.
+		 */
+		boolean pinned()
+		{return prefix.isEmpty() || kept || Character.isWhitespace(prefix.charAt(0));}
+
+		Branch withoutPrefix(final int length)
+		{return new Branch(prefix.substring(length), rest, kept, null);}
+
+		Alternative toAlternative()
+		{
+			if (original != null)
+				return original;
+			if (rest.isEmpty())
+				return literal(prefix);
+			if (prefix.isEmpty())
+				return rest.tail().isEmpty() ? (Alternative) rest.head() : new Sequence(rest);
+			return new Sequence(rest.cons(literal(prefix)));
+		}
+
+		static Literal literal(final String text)
+		{return text.length() == 1 ? Literal.literal(text.charAt(0)) : Literal.literal(text);}
+
+		private static String literalOf(final Expression expression)
+		{
+			if (expression instanceof Literal)
+				return ((Literal) expression).unescaped();
+			if (expression instanceof Raw.EscapedLiteral)
+				return ((Raw.EscapedLiteral) expression).literal.unescaped();
+			if (expression instanceof Raw.Compound)
+			{
+				final StringBuilder builder = new StringBuilder();
+				for (final Raw component : ((Raw.Compound) expression).components)
+				{
+					final String literal = literalOf(component);
+					if (literal == null)
+						return null;
+					builder.append(literal);
+				}
+				return builder.toString();
+			}
+			return null;
+		}
+
+		/*
+		 * Adopted expressions may contain capturing groups or refer to them.
+		 */
+		private static boolean isCapturing(final Expression expression)
+		{
+			final CaptureFinder finder = new CaptureFinder();
+			finder.walk(expression);
+			return finder.found;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + prefix.hashCode();
+			result = prime * result + rest.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Branch))
+				return false;
+			final Branch other = (Branch) obj;
+			return prefix.equals(other.prefix) && rest.equals(other.rest);
+		}
+	}
+
+
+	private static final class CaptureFinder extends ExpressionVisitor
+	{
+		boolean found = false;
+
+		@Override
+		protected boolean enter(final Expression expression)
+		{
+			if (expression instanceof Group.Capture || expression instanceof Adopted)
+				found = true;
+			return !found;
+		}
+	}
+}
@@ -127,6 +127,10 @@ public final class CharLiteral extends Literal implements Quantifiable
 	public String unescaped()
 	{return Character.toString(unescapedChar);}
 
+	@Override
+	void appendEscaped(final StringBuilder builder)
+	{escapeChar(unescapedChar, builder);}
+
 	@Override
 	public int hashCode()
 	{
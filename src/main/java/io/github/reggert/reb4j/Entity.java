@@ -1,7 +1,6 @@
 package io.github.reggert.reb4j;
 
 import io.github.reggert.reb4j.Quantified.Mode;
-import fj.data.LazyString;
 
 /**
  * Class representing special pre-defined expressions.
@@ -10,8 +9,14 @@ public class Entity extends Raw implements Quantifiable
 {
 	private static final long serialVersionUID = 1L;
 
+	private final String rawExpression;
+	
 	private Entity(final String rawExpression)
-	{super(LazyString.str(rawExpression));}
+	{this.rawExpression = rawExpression;}
+	
+	@Override
+	public final void appendTo(final StringBuilder builder)
+	{builder.append(rawExpression);}
 	
 	@Override
 	public final Quantified.AnyTimes anyTimes(final Mode mode)
@@ -1,5 +1,8 @@
 package io.github.reggert.reb4j;
 
+import io.github.reggert.reb4j.matching.CaptureIndex;
+import io.github.reggert.reb4j.matching.MatcherPool;
+
 import java.io.Serializable;
 import java.util.regex.Pattern;
 
@@ -18,15 +21,63 @@ public interface Expression extends Serializable
 {
 	/**
 	 * Returns the regular expression represented by this object.
+	 * 
+	 * This is retained for compatibility; {@link #appendTo(StringBuilder)}
+	 * renders the expression without building intermediate lazy strings.
 	 */
 	LazyString expression();
 	
+	/**
+	 * Appends the regular expression represented by this object to the
+	 * specified buffer.
+	 * 
+	 * Each node writes its own syntax directly into the buffer and 
+	 * delegates to its sub-expressions, so an entire expression tree is
+	 * rendered in a single pass.
+	 * 
+	 * @param builder
+	 * 	the buffer to append to; must not be <code>null</code>.
+	 */
+	void appendTo(StringBuilder builder);
+	
 	/**
 	 * Passes the regular expression represented by this object to 
 	 * {@link java.util.regex.Pattern} and returns the result.
+	 *
+	 * The pattern is compiled at most once per expression object; subsequent
+	 * calls (from any thread) return the same instance.
 	 */
 	Pattern toPattern();
 	
+	/**
+	 * Returns a pool of reusable matchers for the pattern returned by
+	 * {@link #toPattern()}.
+	 *
+	 * Use {@link MatcherPool#matches(CharSequence)} and
+	 * {@link MatcherPool#find(CharSequence)} to test input without
+	 * allocating a new {@link java.util.regex.Matcher} each time.
+	 *
+	 * The default implementation creates a new pool on every call, so that
+	 * implementations compiled against earlier versions keep working.
+	 * {@link AbstractExpression} creates the pool at most once per
+	 * expression object; subsequent calls (from any thread) return the same
+	 * instance.
+	 */
+	default MatcherPool matching()
+	{return new MatcherPool(this);}
+	
+	/**
+	 * Returns the map from the capturing groups of this expression to their
+	 * group numbers.
+	 *
+	 * The default implementation computes the index on every call, so that
+	 * implementations compiled against earlier versions keep working.
+	 * {@link AbstractExpression} computes it at most once per expression
+	 * object; subsequent calls (from any thread) return the same instance.
+	 */
+	default CaptureIndex captureIndex()
+	{return CaptureIndex.of(this);}
+	
 	/**
 	 * Indicates the computed maximum length of the expression, if one can be 
 	 * determined.
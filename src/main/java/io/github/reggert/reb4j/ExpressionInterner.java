@@ -0,0 +1,92 @@
+package io.github.reggert.reb4j;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Canonicalizing factory for expression trees.
+ *
+ * Interning an expression returns a structurally equal expression in which
+ * every sub-expression that is equal to one interned previously is replaced
+ * by the previously interned instance. Rule sets that repeat the same
+ * sub-expressions many times thus share a single copy of each, and
+ * comparisons between interned expressions usually succeed on identity.
+ *
+ * {@link Sequence}, {@link Alternation}, {@link Group} and {@link Quantified}
+ * nodes are interned recursively; all other expressions (literals, character
+ * classes, entities and adopted expressions) are interned as whole nodes.
+ *
+ * Interned expressions are only weakly referenced, so an interner does not
+ * prevent expressions that are otherwise unreachable from being garbage
+ * collected. Instances of this class are thread-safe.
+ */
+public final class ExpressionInterner
+{
+	private final Map<Expression, WeakReference<Expression>> canonical =
+		new WeakHashMap<Expression, WeakReference<Expression>>();
+
+	private final ExpressionRewriter rewriter = new ExpressionRewriter()
+	{
+		@Override
+		Expression shortcut(final Expression expression)
+		{return lookup(expression);}
+
+		@Override
+		Expression rewriteNode(final Expression expression)
+		{return canonicalize(expression);}
+	};
+
+	/**
+	 * Returns the canonical instance of the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to intern; must not be <code>null</code>.
+	 * @return an expression of the same class that is equal to
+	 * 	<var>expression</var>, and all of whose sub-expressions are canonical.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public <E extends Expression> E intern(final E expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		@SuppressWarnings("unchecked")
+		final E result = (E) rewriter.rewrite(expression);
+		return result;
+	}
+
+	/**
+	 * Returns the number of canonical expressions currently held.
+	 *
+	 * Expressions that have been garbage collected are not counted.
+	 */
+	public int size()
+	{
+		synchronized (canonical)
+		{
+			return canonical.size();
+		}
+	}
+
+	private Expression lookup(final Expression expression)
+	{
+		synchronized (canonical)
+		{
+			final WeakReference<Expression> reference = canonical.get(expression);
+			return reference == null ? null : reference.get();
+		}
+	}
+
+	private Expression canonicalize(final Expression expression)
+	{
+		synchronized (canonical)
+		{
+			final WeakReference<Expression> reference = canonical.get(expression);
+			final Expression existing = reference == null ? null : reference.get();
+			if (existing != null)
+				return existing;
+			canonical.put(expression, new WeakReference<Expression>(expression));
+			return expression;
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package io.github.reggert.reb4j;
+
+/**
+ * Renders expression trees without recursion.
+ *
+ * Sub-expressions that have already been rendered (by calling
+ * {@link Object#toString()} on them) are copied rather than rendered again.
+ */
+final class ExpressionRenderer extends ExpressionVisitor
+{
+	private final StringBuilder builder;
+
+	private ExpressionRenderer(final StringBuilder builder)
+	{this.builder = builder;}
+
+	/**
+	 * Appends the rendered form of the specified expression to a buffer.
+	 */
+	static void appendTo(final Expression expression, final StringBuilder builder)
+	{
+		if (builder == null) throw new NullPointerException("builder");
+		new ExpressionRenderer(builder).walk(expression);
+	}
+
+	@Override
+	protected boolean enter(final Expression expression)
+	{
+		if (expression instanceof AbstractExpression)
+		{
+			final String cached = ((AbstractExpression) expression).cachedString();
+			if (cached != null)
+			{
+				builder.append(cached);
+				return false;
+			}
+		}
+		if (expression instanceof Group)
+		{
+			builder.append(((Group) expression).opening);
+			return true;
+		}
+		if (expression instanceof Sequence || expression instanceof Alternation || expression instanceof Quantified)
+			return true;
+		expression.appendTo(builder);
+		return false;
+	}
+
+	@Override
+	protected void between(final Expression expression)
+	{
+		if (expression instanceof Alternation)
+			builder.append('|');
+	}
+
+	@Override
+	protected void leave(final Expression expression)
+	{
+		if (expression instanceof Group)
+			builder.append(')');
+		else if (expression instanceof Quantified)
+			builder.append(((Quantified) expression).quantifier);
+	}
+}
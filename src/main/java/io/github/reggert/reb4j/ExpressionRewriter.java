@@ -0,0 +1,111 @@
+package io.github.reggert.reb4j;
+
+import java.util.ArrayList;
+
+import fj.data.List;
+
+/**
+ * Bottom-up transformation of expression trees.
+ *
+ * {@link #rewrite(Expression)} rewrites the children of {@link Sequence},
+ * {@link Alternation}, {@link Group} and {@link Quantified} nodes, rebuilds
+ * the node only if a child changed, and then hands the result to
+ * {@link #rewriteNode(Expression)}. All other expressions are leaves.
+ * The traversal is done by an {@link ExpressionVisitor}, so it does not
+ * recurse.
+ */
+abstract class ExpressionRewriter
+{
+	/**
+	 * Rewrites the specified expression and all of its sub-expressions.
+	 */
+	final Expression rewrite(final Expression expression)
+	{
+		final ArrayList<Expression> results = new ArrayList<Expression>();
+		new ExpressionVisitor()
+		{
+			@Override
+			protected boolean enter(final Expression node)
+			{
+				final Expression replacement = shortcut(node);
+				if (replacement == null)
+					return true;
+				results.add(replacement);
+				return false;
+			}
+
+			@Override
+			protected void leave(final Expression node)
+			{results.add(rewriteNode(withRewrittenChildren(node, results)));}
+		}.walk(expression);
+		return results.get(0);
+	}
+
+	/**
+	 * Returns the rewritten form of the specified node without visiting its
+	 * children, or <code>null</code> to rewrite it normally. Returns
+	 * <code>null</code> unless overridden.
+	 */
+	Expression shortcut(final Expression expression)
+	{return null;}
+
+	/**
+	 * Rewrites a single node, whose children have already been rewritten.
+	 * The result must be usable wherever the node is.
+	 */
+	abstract Expression rewriteNode(Expression expression);
+
+	/*
+	 * Returns the specified node with its children replaced by the rewritten
+	 * ones at the end of results, which are removed, or the node itself if no
+	 * child changed.
+	 */
+	private static Expression withRewrittenChildren(final Expression expression, final ArrayList<Expression> results)
+	{
+		if (expression instanceof Sequence)
+		{
+			final Sequence sequence = (Sequence) expression;
+			final int start = results.size() - sequence.components.length();
+			final List.Buffer<Sequenceable> components = new List.Buffer<Sequenceable>();
+			boolean changed = false;
+			int i = start;
+			for (final Sequenceable component : sequence.components)
+			{
+				final Sequenceable rewritten = (Sequenceable) results.get(i++);
+				changed |= rewritten != component;
+				components.snoc(rewritten);
+			}
+			results.subList(start, results.size()).clear();
+			return changed ? new Sequence(components.toList()) : sequence;
+		}
+		if (expression instanceof Alternation)
+		{
+			final Alternation alternation = (Alternation) expression;
+			final int start = results.size() - alternation.alternatives.length();
+			final List.Buffer<Alternative> alternatives = new List.Buffer<Alternative>();
+			boolean changed = false;
+			int i = start;
+			for (final Alternative alternative : alternation.alternatives)
+			{
+				final Alternative rewritten = (Alternative) results.get(i++);
+				changed |= rewritten != alternative;
+				alternatives.snoc(rewritten);
+			}
+			results.subList(start, results.size()).clear();
+			return changed ? new Alternation(alternatives.toList()) : alternation;
+		}
+		if (expression instanceof Group)
+		{
+			final Group group = (Group) expression;
+			final Expression nested = results.remove(results.size() - 1);
+			return nested != group.nested ? group.withNested(nested) : group;
+		}
+		if (expression instanceof Quantified)
+		{
+			final Quantified quantified = (Quantified) expression;
+			final Quantifiable base = (Quantifiable) results.remove(results.size() - 1);
+			return base != quantified.base ? quantified.withBase(base) : quantified;
+		}
+		return expression;
+	}
+}
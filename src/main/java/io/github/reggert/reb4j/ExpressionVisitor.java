@@ -0,0 +1,118 @@
+package io.github.reggert.reb4j;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Depth-first traversal of expression trees.
+ *
+ * {@link #walk(Expression)} visits the components of {@link Sequence}s, the
+ * alternatives of {@link Alternation}s, the contents of {@link Group}s and
+ * the bases of {@link Quantified} expressions, in the order in which they
+ * appear in the rendered expression. All other expressions are leaves.
+ *
+ * The traversal keeps its own stack on the heap rather than recursing, so
+ * the depth of the trees it can handle is limited only by available
+ * memory. Rendering and equality of expression trees are implemented
+ * with it, so that neither is limited by the size of the thread's stack.
+ *
+ * Visitors are not thread-safe unless a subclass makes them so.
+ */
+public abstract class ExpressionVisitor
+{
+	/**
+	 * Traverses the specified expression and all of its sub-expressions.
+	 *
+	 * @param expression
+	 * 	the root of the tree to traverse; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public final void walk(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+		if (enter(expression))
+			stack.push(new Frame(expression));
+		while (!stack.isEmpty())
+		{
+			final Frame frame = stack.peek();
+			if (frame.children.hasNext())
+			{
+				final Expression child = frame.children.next();
+				if (frame.visited++ > 0)
+					between(frame.expression);
+				if (enter(child))
+					stack.push(new Frame(child));
+			}
+			else
+			{
+				stack.pop();
+				leave(frame.expression);
+			}
+		}
+	}
+
+	/**
+	 * Called when the traversal reaches an expression, before any of its
+	 * sub-expressions are visited.
+	 *
+	 * @param expression
+	 * 	the expression being visited.
+	 * @return <code>true</code> to visit the sub-expressions and then call
+	 * 	{@link #leave(Expression)}; <code>false</code> to skip both.
+	 */
+	protected abstract boolean enter(Expression expression);
+
+	/**
+	 * Called between consecutive sub-expressions of an expression.
+	 * Does nothing by default.
+	 *
+	 * @param expression
+	 * 	the expression whose sub-expressions are being visited.
+	 */
+	protected void between(final Expression expression)
+	{}
+
+	/**
+	 * Called after all of the sub-expressions of an expression have been
+	 * visited. Does nothing by default.
+	 *
+	 * @param expression
+	 * 	the expression being left.
+	 */
+	protected void leave(final Expression expression)
+	{}
+
+	/**
+	 * Returns the sub-expressions that {@link #walk(Expression)} visits
+	 * within the specified expression, in order.
+	 */
+	static Iterator<? extends Expression> children(final Expression expression)
+	{
+		if (expression instanceof Sequence)
+			return ((Sequence) expression).components.iterator();
+		if (expression instanceof Alternation)
+			return ((Alternation) expression).alternatives.iterator();
+		if (expression instanceof Group)
+			return Collections.singletonList(((Group) expression).nested).iterator();
+		if (expression instanceof Quantified)
+			return Collections.singletonList(((Quantified) expression).base).iterator();
+		return Collections.<Expression>emptyList().iterator();
+	}
+
+
+	private static final class Frame
+	{
+		final Expression expression;
+		final Iterator<? extends Expression> children;
+		int visited = 0;
+
+		Frame(final Expression expression)
+		{
+			this.expression = expression;
+			this.children = children(expression);
+		}
+	}
+}
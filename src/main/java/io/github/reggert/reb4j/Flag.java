@@ -1,8 +1,5 @@
 package io.github.reggert.reb4j;
 
-import fj.data.Array;
-import fj.data.LazyString;
-
 
 /**
  * Flag that can be passed to the {@link java.util.regex.Pattern} 
@@ -31,12 +28,12 @@ public enum Flag
 		this.c = c;
 	}
 	
-	static LazyString toString(final Flag... flags)
+	static String toString(final Flag... flags)
 	{
-		return Array.array(flags).foldLeft(
-			(a, b) -> a.append(Character.toString(b.c)),
-				LazyString.empty
-			);
+		final StringBuilder builder = new StringBuilder(flags.length);
+		for (final Flag flag : flags)
+			builder.append(flag.c);
+		return builder.toString();
 	}
 	
 	/**
@@ -2,7 +2,6 @@ package io.github.reggert.reb4j;
 
 import java.util.Arrays;
 
-import fj.data.LazyString;
 import fj.data.List;
 
 /**
@@ -18,50 +17,74 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	 */
 	public final Expression nested;
 	
-	private final LazyString expression;
+	final String opening;
+	private final int hashCode;
+	private final Integer boundedLength;
+	private final boolean repetitionInvalidatesBounds;
+	private final boolean possiblyZeroLength;
 
-	private Group(final Expression nested, final LazyString opening)
+	private Group(final Expression nested, final String opening)
 	{
 		if (nested == null) throw new NullPointerException("nested");
 		assert opening != null;
 		this.nested = nested;
-		this.expression = opening.append(nested.expression()).append(")");
+		this.opening = opening;
+		this.hashCode = hashCode(opening, nested);
+		this.boundedLength = nested.boundedLength();
+		this.repetitionInvalidatesBounds = nested.repetitionInvalidatesBounds();
+		this.possiblyZeroLength = nested.possiblyZeroLength();
 	}
 	
 	@Override
-	public LazyString expression()
+	public void appendTo(final StringBuilder builder)
 	{
-		return expression;
+		ExpressionRenderer.appendTo(this, builder);
 	}
 	
+	/**
+	 * Constructs a group of the same kind (and with the same flags, if any)
+	 * enclosing a different expression.
+	 * 
+	 * @param nested
+	 * 	the expression to enclose; must not be <code>null</code>.
+	 * @return a new Group.
+	 * @throws IllegalArgumentException
+	 * 	if this is a look-behind group and <var>nested</var> is unbounded.
+	 */
+	abstract Group withNested(Expression nested);
+	
 	@Override
 	public final Integer boundedLength() 
 	{
-		return nested.boundedLength();
+		return boundedLength;
 	}
 	
 	@Override 
 	public final boolean repetitionInvalidatesBounds() 
 	{
-		return nested.repetitionInvalidatesBounds();
+		return repetitionInvalidatesBounds;
 	}
 			
 	@Override 
 	public final boolean possiblyZeroLength() 
 	{
-		return nested.possiblyZeroLength();
+		return possiblyZeroLength;
 	}
 	
 	
 	public final static class Capture extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(");
+		private static final String OPENING = "(";
 		
 		public Capture(final Expression nested)
 		{
 			super(nested, OPENING);
 		}
+		
+		@Override
+		Capture withNested(final Expression nested)
+		{return new Capture(nested);}
 	}
 	
 	/**
@@ -81,12 +104,16 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class NonCapturing extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?:");
+		private static final String OPENING = "(?:";
 		
 		public NonCapturing(final Expression nested)
 		{
 			super(nested, OPENING);
 		}
+		
+		@Override
+		NonCapturing withNested(final Expression nested)
+		{return new NonCapturing(nested);}
 	}
 	
 	/**
@@ -106,12 +133,16 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class Independent extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?>");
+		private static final String OPENING = "(?>";
 		
 		public Independent(final Expression nested)
 		{
 			super(nested, OPENING);
 		}
+		
+		@Override
+		Independent withNested(final Expression nested)
+		{return new Independent(nested);}
 	}
 	
 	/**
@@ -131,12 +162,16 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class PositiveLookAhead extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?=");
+		private static final String OPENING = "(?=";
 		
 		public PositiveLookAhead(final Expression nested)
 		{
 			super(nested, OPENING);
 		}
+		
+		@Override
+		PositiveLookAhead withNested(final Expression nested)
+		{return new PositiveLookAhead(nested);}
 	}
 	
 	/**
@@ -156,12 +191,16 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class NegativeLookAhead extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?!");
+		private static final String OPENING = "(?!";
 		
 		public NegativeLookAhead(final Expression nested)
 		{
 			super(nested, OPENING);
 		}
+		
+		@Override
+		NegativeLookAhead withNested(final Expression nested)
+		{return new NegativeLookAhead(nested);}
 	}
 	
 	/**
@@ -181,14 +220,27 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class PositiveLookBehind extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?<=");
+		private static final String OPENING = "(?<=";
 		
 		public PositiveLookBehind(final Expression nested) throws UnboundedLookBehindException
 		{
 			super(nested, OPENING);
-			if (nested.boundedLength() == null)
+			if (boundedLength() == null)
 				throw new UnboundedLookBehindException(nested);
 		}
+		
+		@Override
+		PositiveLookBehind withNested(final Expression nested)
+		{
+			try
+			{
+				return new PositiveLookBehind(nested);
+			}
+			catch (final UnboundedLookBehindException e)
+			{
+				throw new IllegalArgumentException(e);
+			}
+		}
 	}
 	
 	/**
@@ -210,14 +262,27 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 	public final static class NegativeLookBehind extends Group
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString OPENING = LazyString.str("(?<!");
+		private static final String OPENING = "(?<!";
 		
 		public NegativeLookBehind(final Expression nested) throws UnboundedLookBehindException
 		{
 			super(nested, OPENING);
-			if (nested.boundedLength() == null)
+			if (boundedLength() == null)
 				throw new UnboundedLookBehindException(nested);
 		}
+		
+		@Override
+		NegativeLookBehind withNested(final Expression nested)
+		{
+			try
+			{
+				return new NegativeLookBehind(nested);
+			}
+			catch (final UnboundedLookBehindException e)
+			{
+				throw new IllegalArgumentException(e);
+			}
+		}
 	}
 	
 	/**
@@ -242,9 +307,9 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 		private static final long serialVersionUID = 1L;
 		public final List<Flag> flags;
 		
-		private static LazyString opening(final Flag... flags)
+		private static String opening(final Flag... flags)
 		{
-			return LazyString.str("(?").append(Flag.toString(flags)).append(":");
+			return "(?" + Flag.toString(flags) + ":";
 		}
 		
 		public EnableFlags(final Expression nested, final Flag... flags)
@@ -252,6 +317,10 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 			super(nested, opening(flags));
 			this.flags = List.iterableList(Arrays.asList(flags));
 		}
+		
+		@Override
+		EnableFlags withNested(final Expression nested)
+		{return new EnableFlags(nested, flags.array(Flag[].class));}
 	}
 	
 	/**
@@ -275,9 +344,9 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 		private static final long serialVersionUID = 1L;
 		public final List<Flag> flags;
 		
-		private static LazyString opening(final Flag... flags)
+		private static String opening(final Flag... flags)
 		{
-			return LazyString.str("(?-").append(Flag.toString(flags)).append(":");
+			return "(?-" + Flag.toString(flags) + ":";
 		}
 		
 		public DisableFlags(final Expression nested, final Flag... flags)
@@ -285,6 +354,10 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 			super(nested, opening(flags));
 			this.flags = List.iterableList(Arrays.asList(flags));
 		}
+		
+		@Override
+		DisableFlags withNested(final Expression nested)
+		{return new DisableFlags(nested, flags.array(Flag[].class));}
 	}
 	/**
 	 * Constructs a group that disables the specified matcher flags.
@@ -302,15 +375,18 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 		return new DisableFlags(nested, flags);
 	}
 
-	@Override
-	public int hashCode()
+	private static int hashCode(final String opening, final Expression nested)
 	{
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + expression.hashCode();
+		result = prime * result + opening.hashCode();
 		result = prime * result + nested.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -321,8 +397,7 @@ public abstract class Group extends AbstractQuantifiableSequenceableAlternative
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		final Group other = (Group) obj;
-		return expression.equals(other.expression) && nested.equals(other.nested);
+		return StructuralEquality.equal(this, (Group) obj);
 	}
 
 }
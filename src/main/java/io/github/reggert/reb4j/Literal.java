@@ -1,7 +1,7 @@
 package io.github.reggert.reb4j;
 
-import fj.F2;
 import fj.Ord;
+import fj.P2;
 import fj.data.LazyString;
 import fj.data.List;
 import fj.data.Set;
@@ -35,7 +35,27 @@ public abstract class Literal extends AbstractSequenceableAlternative
 			.set('\f', "\\f")
 			.set('\u0007', "\\a")
 			.set('\u001b', "\\e")
-			.set('\0', "\\00");
+			.set('\0', "\\x00");
+	
+	/*
+	 * NEEDS_ESCAPE and specialEscapes as tables indexed by character.
+	 * All of the characters in both are ASCII.
+	 */
+	private static final boolean[] ASCII_NEEDS_ESCAPE = new boolean[128];
+	private static final String[] ASCII_SPECIAL_ESCAPES = new String[128];
+	static
+	{
+		for (final Character c : NEEDS_ESCAPE)
+			ASCII_NEEDS_ESCAPE[c.charValue()] = true;
+		for (final P2<Character, String> special : specialEscapes)
+			ASCII_SPECIAL_ESCAPES[special._1().charValue()] = special._2();
+	}
+	
+	/**
+	 * Number of characters that quoting a string with <code>\Q</code> and
+	 * <code>\E</code> adds to it.
+	 */
+	private static final int QUOTING_OVERHEAD = 4;
 	
 	/**
 	 * Helper function that escapes the specified character.
@@ -47,9 +67,36 @@ public abstract class Literal extends AbstractSequenceableAlternative
 	 */
 	public static LazyString escapeChar(final Character c)
 	{
-		return NEEDS_ESCAPE.member(c) ? 
-			LazyString.str("\\").append(c.toString()) 
-			: LazyString.str(specialEscapes.get(c).orSome(c.toString()));
+		final StringBuilder builder = new StringBuilder(4);
+		escapeChar(c.charValue(), builder);
+		return LazyString.str(builder.toString());
+	}
+	
+	/**
+	 * Helper function that appends the specified character to a buffer,
+	 * escaping it if necessary.
+	 * 
+	 * @param c the character to escape.
+	 * @param builder
+	 * 	the buffer to append to; must not be <code>null</code>.
+	 */
+	public static void escapeChar(final char c, final StringBuilder builder)
+	{
+		if (c < 128)
+		{
+			if (ASCII_NEEDS_ESCAPE[c])
+			{
+				builder.append('\\').append(c);
+				return;
+			}
+			final String special = ASCII_SPECIAL_ESCAPES[c];
+			if (special != null)
+			{
+				builder.append(special);
+				return;
+			}
+		}
+		builder.append(c);
 	}
 	
 	/**
@@ -63,15 +110,52 @@ public abstract class Literal extends AbstractSequenceableAlternative
 	 */
 	public static LazyString escape(final LazyString unescaped)
 	{
-		return unescaped.toStream().foldLeft(
-				new F2<LazyString, Character, LazyString>()
-				{
-					@Override
-					public LazyString f(final LazyString a, final Character b)
-					{return a.append(escapeChar(b));}
-				},
-				LazyString.empty
-			);
+		final StringBuilder builder = new StringBuilder();
+		escape(unescaped.toStringEager(), builder);
+		return LazyString.str(builder.toString());
+	}
+	
+	/**
+	 * Helper function that appends the specified string to a buffer,
+	 * escaping it as necessary.
+	 * 
+	 * Strings in which escaping each character would add more than the
+	 * four characters of <code>\Q...\E</code> are quoted instead, unless
+	 * they contain <code>\E</code> or ASCII control or space characters
+	 * (which would match differently inside quotes in comments mode).
+	 * 
+	 * @param unescaped
+	 * 	the string to escape; must not be <code>null</code>.
+	 * @param builder
+	 * 	the buffer to append to; must not be <code>null</code>.
+	 */
+	public static void escape(final CharSequence unescaped, final StringBuilder builder)
+	{
+		final int length = unescaped.length();
+		if (length > QUOTING_OVERHEAD && isQuotingShorter(unescaped))
+		{
+			builder.append("\\Q").append(unescaped).append("\\E");
+			return;
+		}
+		for (int i = 0; i < length; i++)
+			escapeChar(unescaped.charAt(i), builder);
+	}
+	
+	private static boolean isQuotingShorter(final CharSequence unescaped)
+	{
+		final int length = unescaped.length();
+		int escapes = 0;
+		for (int i = 0; i < length; i++)
+		{
+			final char c = unescaped.charAt(i);
+			if (c <= ' ' || c == '\u007f')
+				return false;
+			if (c == '\\' && i + 1 < length && unescaped.charAt(i + 1) == 'E')
+				return false;
+			if (c < 128 && ASCII_NEEDS_ESCAPE[c])
+				escapes++;
+		}
+		return escapes > QUOTING_OVERHEAD;
 	}
 	
 	/**
@@ -114,13 +198,18 @@ public abstract class Literal extends AbstractSequenceableAlternative
 	 */
 	public final LazyString escaped()
 	{
-		return escape(LazyString.str(unescaped()));
+		return expression();
 	}
 	
 	@Override
-	public final LazyString expression()
+	public final void appendTo(final StringBuilder builder)
+	{
+		appendEscaped(builder);
+	}
+	
+	void appendEscaped(final StringBuilder builder)
 	{
-		return escaped();
+		escape(unescaped(), builder);
 	}
 	
 	@Override
@@ -0,0 +1,158 @@
+package io.github.reggert.reb4j;
+
+import fj.data.List;
+
+/**
+ * Optimization that merges adjacent literals into single
+ * {@link StringLiteral}s.
+ *
+ * Chaining literals with <code>andThen</code> keeps each one as a separate
+ * component of a {@link Sequence} or {@link Raw.Compound}, so
+ * <code>literal('a').andThen(literal('b')).andThen(literal("cd"))</code>
+ * is a tree of three nodes, each of which is rendered on its own.
+ * Coalescing replaces each run of adjacent literals with one literal, and
+ * a sequence or compound that consists of nothing else with that literal
+ * (wrapped in a {@link Raw.EscapedLiteral} in the case of a compound).
+ *
+ * The coalesced expression is equivalent to the original, in that it
+ * matches exactly the same input, but it need not render to the same
+ * regular expression: a merged literal may be long enough to be quoted with
+ * <code>\Q...\E</code> where its parts were escaped character by character
+ * (see {@link Literal#escape(CharSequence, StringBuilder)}). Since sequences
+ * compare their components, it is also in general <em>not</em>
+ * {@link Object#equals(Object) equal} to the original:
+ * <code>literal('a').andThen(literal('b'))</code> is not equal to
+ * <code>literal("ab")</code>, but both coalesce to <code>literal("ab")</code>.
+ * Coalescing both sides before comparing them makes equality insensitive to
+ * how the literals were split up. Compounds that remain compounds compare
+ * their rendered forms, so they stay equal to the originals only when the
+ * merged literals render the same as their parts.
+ */
+public final class LiteralCoalescing
+{
+	private LiteralCoalescing() {}
+
+	private static final ExpressionRewriter REWRITER = new ExpressionRewriter()
+	{
+		@Override
+		Expression rewriteNode(final Expression expression)
+		{
+			if (expression instanceof Sequence)
+				return coalesceSequence((Sequence) expression);
+			if (expression instanceof Raw.Compound)
+				return coalesceCompound((Raw.Compound) expression);
+			return expression;
+		}
+	};
+
+	/**
+	 * Coalesces adjacent literals throughout the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to optimize; must not be <code>null</code>.
+	 * @return an equivalent expression, or <var>expression</var> itself if
+	 * 	it contains no adjacent literals.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static Expression coalesce(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		return REWRITER.rewrite(expression);
+	}
+
+	private static Expression coalesceSequence(final Sequence sequence)
+	{
+		final List.Buffer<Sequenceable> components = new List.Buffer<Sequenceable>();
+		final StringBuilder run = new StringBuilder();
+		int runLength = 0;
+		int count = 0;
+		boolean changed = false;
+		Sequenceable last = null;
+		for (final Sequenceable component : sequence.components)
+		{
+			final Literal literal = literalOf(component);
+			if (literal != null)
+			{
+				run.append(literal.unescaped());
+				last = component;
+				runLength++;
+				continue;
+			}
+			if (runLength > 0)
+			{
+				components.snoc(runLength == 1 ? last : Literal.literal(run.toString()));
+				changed |= runLength > 1;
+				count++;
+				run.setLength(0);
+				runLength = 0;
+			}
+			components.snoc(component);
+			count++;
+		}
+		if (runLength > 0)
+		{
+			if (count == 0)
+				return Literal.literal(run.toString());
+			components.snoc(runLength == 1 ? last : Literal.literal(run.toString()));
+			changed |= runLength > 1;
+			count++;
+		}
+		if (!changed)
+			return sequence;
+		return count == 1 ? components.toList().head() : new Sequence(components.toList());
+	}
+
+	private static Raw coalesceCompound(final Raw.Compound compound)
+	{
+		final List.Buffer<Raw> components = new List.Buffer<Raw>();
+		final StringBuilder run = new StringBuilder();
+		int runLength = 0;
+		int count = 0;
+		boolean changed = false;
+		Raw last = null;
+		for (final Raw component : compound.components)
+		{
+			if (component instanceof Raw.EscapedLiteral)
+			{
+				run.append(((Raw.EscapedLiteral) component).literal.unescaped());
+				last = component;
+				runLength++;
+				continue;
+			}
+			if (runLength > 0)
+			{
+				components.snoc(runLength == 1 ? last : escaped(run.toString()));
+				changed |= runLength > 1;
+				count++;
+				run.setLength(0);
+				runLength = 0;
+			}
+			components.snoc(component);
+			count++;
+		}
+		if (runLength > 0)
+		{
+			if (count == 0)
+				return escaped(run.toString());
+			components.snoc(runLength == 1 ? last : escaped(run.toString()));
+			changed |= runLength > 1;
+			count++;
+		}
+		if (!changed)
+			return compound;
+		return count == 1 ? components.toList().head() : new Raw.Compound(components.toList());
+	}
+
+	private static Literal literalOf(final Sequenceable component)
+	{
+		if (component instanceof Literal)
+			return (Literal) component;
+		if (component instanceof Raw.EscapedLiteral)
+			return ((Raw.EscapedLiteral) component).literal;
+		return null;
+	}
+
+	private static Raw.EscapedLiteral escaped(final String unescaped)
+	{return new Raw.EscapedLiteral(Literal.literal(unescaped));}
+}
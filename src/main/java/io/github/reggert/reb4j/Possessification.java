@@ -0,0 +1,333 @@
+package io.github.reggert.reb4j;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CodePointSet;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+
+/**
+ * Optimization that makes greedy quantifiers possessive where giving back
+ * characters can never lead to a match.
+ *
+ * A greedy quantifier that is followed by something that fails makes the
+ * backtracking engine retry what follows after each shorter repetition.
+ * For a quantifier over a single character (a {@link CharClass}, a
+ * {@link CharLiteral} or {@link Entity#ANY_CHAR}) whose characters cannot
+ * begin whatever may follow it, those retries are bound to fail: the
+ * character given back would have to be the first one matched by what
+ * follows. In <code>Perl.DIGIT.atLeastOnce().andThen(literal('.'))</code>,
+ * for example, a digit can never be matched by the '.'; so the quantifier
+ * can be made {@link Quantified.Mode#POSSESSIVE possessive}, which is
+ * equivalent to wrapping it in an {@link Group#independent(Expression)
+ * independent group}, without changing what the expression matches.
+ *
+ * What may follow each quantifier is computed from the expression tree:
+ * the characters that can begin the rest of the enclosing sequences,
+ * through any parts that can match the empty string, and, for quantifiers
+ * inside repetitions, the characters that can begin the next repetition.
+ * Reaching the end of the expression completes the match, so it adds
+ * nothing. Anchors, look-around, groups with flags and adopted
+ * expressions are treated as if they could begin with any character, and
+ * quantifiers inside look-around or groups with flags are left alone.
+ *
+ * The result is equivalent to the original only as a complete expression:
+ * composing it with other expressions, or enabling flags around it, can
+ * make characters follow a possessive quantifier that the analysis did not
+ * account for. Possessification should therefore be the last step before
+ * compiling an expression.
+ */
+public final class Possessification
+{
+	private Possessification() {}
+
+	/*
+	 * The characters that "." matches when no flags are set.
+	 */
+	private static final CodePointSet ANY_CHAR = CodePointSet.of('\n')
+		.union(CodePointSet.of('\r'))
+		.union(CodePointSet.of('\u0085'))
+		.union(CodePointSet.range('\u2028', '\u2029'))
+		.complement();
+
+	/*
+	 * Characters that can be matched either as whole code points or as
+	 * halves of surrogate pairs, depending on the expression.
+	 */
+	private static final CodePointSet SURROGATES_AND_SUPPLEMENTARY = CodePointSet.range(0xD800, 0xDFFF)
+		.union(CodePointSet.range(Character.MIN_SUPPLEMENTARY_CODE_POINT, Character.MAX_CODE_POINT));
+
+	/**
+	 * Makes every greedy quantifier in the specified expression possessive
+	 * where doing so cannot change what the expression matches.
+	 *
+	 * @param expression
+	 * 	the complete expression to optimize; must not be <code>null</code>.
+	 * @return an equivalent expression, or <var>expression</var> itself if
+	 * 	no quantifier can be made possessive.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static Expression possessify(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final Analysis analysis = new Analysis(expression);
+		return new ExpressionRewriter()
+		{
+			@Override
+			Expression shortcut(final Expression node)
+			{return isOpaque(node) ? node : null;}
+
+			@Override
+			Expression rewriteNode(final Expression node)
+			{
+				if (node instanceof Quantified && analysis.canBePossessive((Quantified) node))
+					return ((Quantified) node).withMode(Quantified.Mode.POSSESSIVE);
+				return node;
+			}
+		}.rewrite(expression);
+	}
+
+	/*
+	 * Groups whose contents are not matched as they would be on their own.
+	 */
+	private static boolean isOpaque(final Expression expression)
+	{
+		return expression instanceof Group
+			&& !(expression instanceof Group.Capture
+				|| expression instanceof Group.NonCapturing
+				|| expression instanceof Group.Independent);
+	}
+
+	/*
+	 * The characters that a quantifier's base can match, if it matches
+	 * exactly one character.
+	 */
+	private static CodePointSet singleCharacter(final Quantifiable base)
+	{
+		if (base instanceof CharClass)
+			return ((CharClass) base).codePoints();
+		if (base instanceof CharLiteral)
+			return CodePointSet.of(((CharLiteral) base).unescapedChar);
+		if (base == Entity.ANY_CHAR)
+			return ANY_CHAR;
+		return null;
+	}
+
+	private static boolean repeats(final Quantified quantified)
+	{
+		if (quantified instanceof Quantified.Optional)
+			return false;
+		if (quantified instanceof Quantified.RepeatExactly)
+			return ((Quantified.RepeatExactly) quantified).repetitions > 1;
+		if (quantified instanceof Quantified.RepeatRange)
+		{
+			final Integer max = ((Quantified.RepeatRange) quantified).maxRepetitions;
+			return max == null || max.intValue() > 1;
+		}
+		return true;
+	}
+
+	/*
+	 * Adds the surrogate and supplementary ranges to a set that overlaps
+	 * them, since a supplementary character in the input may be matched
+	 * either whole or as two surrogates.
+	 */
+	private static CodePointSet widen(final CodePointSet set)
+	{
+		return set.intersect(SURROGATES_AND_SUPPLEMENTARY).isEmpty()
+			? set
+			: set.union(SURROGATES_AND_SUPPLEMENTARY);
+	}
+
+
+	/**
+	 * The characters that can begin a match of an expression, and whether
+	 * it can match the empty string.
+	 */
+	private static final class First
+	{
+		static final First UNKNOWN = new First(CodePointSet.ALL, false);
+		static final First EMPTY = new First(CodePointSet.EMPTY, true);
+
+		final CodePointSet first;
+		final boolean nullable;
+
+		First(final CodePointSet first, final boolean nullable)
+		{
+			this.first = first;
+			this.nullable = nullable;
+		}
+
+		/*
+		 * The first characters of this followed by something that begins
+		 * with the specified characters.
+		 */
+		CodePointSet before(final CodePointSet following)
+		{return nullable ? first.union(following) : first;}
+	}
+
+
+	/**
+	 * First and follow sets of the nodes of a complete expression.
+	 *
+	 * Both are computed without recursion: the first sets bottom-up with an
+	 * {@link ExpressionVisitor}, and the follow sets top-down with a
+	 * worklist. A node that occurs in several places is followed by the
+	 * union of what follows each occurrence.
+	 */
+	private static final class Analysis
+	{
+		private final IdentityHashMap<Expression, First> firsts = new IdentityHashMap<Expression, First>();
+		private final IdentityHashMap<Expression, CodePointSet> follows = new IdentityHashMap<Expression, CodePointSet>();
+
+		Analysis(final Expression expression)
+		{
+			new ExpressionVisitor()
+			{
+				@Override
+				protected boolean enter(final Expression node)
+				{
+					if (firsts.containsKey(node))
+						return false;
+					if (isOpaque(node))
+					{
+						firsts.put(node, First.UNKNOWN);
+						return false;
+					}
+					return true;
+				}
+
+				@Override
+				protected void leave(final Expression node)
+				{firsts.put(node, computeFirst(node));}
+			}.walk(expression);
+			computeFollows(expression);
+		}
+
+		boolean canBePossessive(final Quantified quantified)
+		{
+			if (quantified.mode != Quantified.Mode.GREEDY || quantified instanceof Quantified.RepeatExactly)
+				return false;
+			final CodePointSet characters = singleCharacter(quantified.base);
+			final CodePointSet following = follows.get(quantified);
+			if (characters == null || following == null)
+				return false;
+			return widen(characters).intersect(widen(following)).isEmpty();
+		}
+
+		private First first(final Expression expression)
+		{return firsts.get(expression);}
+
+		private First computeFirst(final Expression expression)
+		{
+			if (expression instanceof CharClass)
+				return new First(((CharClass) expression).codePoints(), false);
+			if (expression == Entity.ANY_CHAR)
+				return new First(ANY_CHAR, false);
+			if (expression instanceof Literal)
+				return literalFirst((Literal) expression);
+			if (expression instanceof Raw.EscapedLiteral)
+				return literalFirst(((Raw.EscapedLiteral) expression).literal);
+			if (expression instanceof Raw.Compound)
+			{
+				// Compounds are leaves to the visitor, so walk them here.
+				First result = First.EMPTY;
+				for (final Raw component : ((Raw.Compound) expression).components.reverse())
+				{
+					final First next = computeFirst(component);
+					result = new First(next.before(result.first), next.nullable && result.nullable);
+				}
+				return result;
+			}
+			if (expression instanceof Sequence)
+			{
+				First result = First.EMPTY;
+				for (final Sequenceable component : ((Sequence) expression).components.reverse())
+				{
+					final First next = first(component);
+					result = new First(next.before(result.first), next.nullable && result.nullable);
+				}
+				return result;
+			}
+			if (expression instanceof Alternation)
+			{
+				CodePointSet first = CodePointSet.EMPTY;
+				boolean nullable = false;
+				for (final Alternative alternative : ((Alternation) expression).alternatives)
+				{
+					first = first.union(first(alternative).first);
+					nullable |= first(alternative).nullable;
+				}
+				return new First(first, nullable);
+			}
+			if (expression instanceof Group)
+				return first(((Group) expression).nested);
+			if (expression instanceof Quantified)
+			{
+				final Quantified quantified = (Quantified) expression;
+				final First base = first(quantified.base);
+				return new First(base.first, base.nullable || quantified.possiblyZeroLength());
+			}
+			return First.UNKNOWN;
+		}
+
+		private static First literalFirst(final Literal literal)
+		{
+			final String unescaped = literal.unescaped();
+			if (unescaped.isEmpty())
+				return First.EMPTY;
+			return new First(CodePointSet.of(unescaped.codePointAt(0)), false);
+		}
+
+		private void computeFollows(final Expression root)
+		{
+			final ArrayDeque<Expression> pending = new ArrayDeque<Expression>();
+			addFollow(root, CodePointSet.EMPTY, pending);
+			while (!pending.isEmpty())
+			{
+				final Expression expression = pending.pop();
+				final CodePointSet following = follows.get(expression);
+				if (expression instanceof Sequence)
+				{
+					CodePointSet rest = following;
+					for (final Sequenceable component : ((Sequence) expression).components.reverse())
+					{
+						addFollow(component, rest, pending);
+						rest = first(component).before(rest);
+					}
+				}
+				else if (expression instanceof Alternation)
+				{
+					for (final Alternative alternative : ((Alternation) expression).alternatives)
+						addFollow(alternative, following, pending);
+				}
+				else if (expression instanceof Group)
+				{
+					if (!isOpaque(expression))
+						addFollow(((Group) expression).nested, following, pending);
+				}
+				else if (expression instanceof Quantified)
+				{
+					final Quantified quantified = (Quantified) expression;
+					addFollow(
+							quantified.base,
+							repeats(quantified) ? following.union(first(quantified.base).first) : following,
+							pending
+						);
+				}
+			}
+		}
+
+		private void addFollow(final Expression expression, final CodePointSet following, final ArrayDeque<Expression> pending)
+		{
+			final CodePointSet existing = follows.get(expression);
+			final CodePointSet merged = existing == null ? following : existing.union(following);
+			if (existing == null || !merged.equals(existing))
+			{
+				follows.put(expression, merged);
+				pending.push(expression);
+			}
+		}
+	}
+}
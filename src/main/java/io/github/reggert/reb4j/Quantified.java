@@ -1,5 +1,7 @@
 package io.github.reggert.reb4j;
 
+import io.github.reggert.reb4j.analysis.Backtracking;
+
 import fj.data.LazyString;
 
 /**
@@ -9,7 +11,11 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 {
 	private static final long serialVersionUID = 2L;
 	public final Quantifiable base;
-	private final LazyString quantifier;
+	final String quantifier;
+	private final int hashCode;
+	private final Integer boundedLength;
+	private final boolean repetitionInvalidatesBounds;
+	private final boolean possiblyZeroLength;
 	public final Mode mode;
 	
 	public static enum Mode
@@ -24,46 +30,121 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 		{this.symbol = symbol;}
 	}
 	
-	private Quantified(final Quantifiable base, final Mode mode, final LazyString quantifier)
+	/*
+	 * The length properties are computed by each subclass from its base
+	 * before construction, so that they are evaluated once per node rather
+	 * than on every query.
+	 */
+	private Quantified(
+			final Quantifiable base, 
+			final Mode mode, 
+			final String quantifier,
+			final Integer boundedLength,
+			final boolean repetitionInvalidatesBounds,
+			final boolean possiblyZeroLength
+		)
 	{
-		if (base == null) throw new NullPointerException("base");
 		if (quantifier == null) throw new NullPointerException("quantifier");
 		this.base = base;
 		this.quantifier = quantifier;
 		this.mode = mode;
+		this.hashCode = hashCode(base, quantifier);
+		this.boundedLength = boundedLength;
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds;
+		this.possiblyZeroLength = possiblyZeroLength;
+	}
+	
+	private static Quantifiable checkBase(final Quantifiable base)
+	{
+		if (base == null) throw new NullPointerException("base");
+		return base;
+	}
+	
+	private static Integer repeatedLength(final Quantifiable base, final long repetitions)
+	{
+		if (base.repetitionInvalidatesBounds())
+			return null;
+		final Integer baseLength = base.boundedLength();
+		if (baseLength == null)
+			return null;
+		final long maximumLength = baseLength.longValue() * repetitions;
+		if (maximumLength <= 0xfffffffL) // arbitrary value from Pattern source code
+			return (int)maximumLength;
+		return null;
+	}
+	
+	/*
+	 * Rejects an unbounded quantifier whose matching can take exponential
+	 * time, if strict backtracking checks are enabled. Called at the end of
+	 * the constructors of unbounded quantifiers.
+	 */
+	final void checkBacktracking()
+	{
+		if (mode != Mode.POSSESSIVE && Backtracking.isStrict())
+			Backtracking.requireSubexponential(this);
 	}
 	
 	public String quantifier()
-	{return quantifier.toString();}
+	{return quantifier;}
+	
+	@Override
+	public final Integer boundedLength() 
+	{return boundedLength;}
+
+	@Override
+	public final boolean repetitionInvalidatesBounds() 
+	{return repetitionInvalidatesBounds;}
+
+	@Override
+	public final boolean possiblyZeroLength() 
+	{return possiblyZeroLength;}
+	
+	/**
+	 * Constructs a quantified expression of the same kind (with the same
+	 * repetitions and mode) applied to a different base expression.
+	 * 
+	 * @param base
+	 * 	the expression to quantify; must not be <code>null</code>.
+	 * @return a new quantified expression.
+	 */
+	abstract Quantified withBase(Quantifiable base);
+	
+	/**
+	 * Constructs a quantified expression of the same kind applied to the
+	 * same base expression, with a different mode.
+	 * 
+	 * @param mode
+	 * 	the mode of the new quantifier; must not be <code>null</code>.
+	 * @return a new quantified expression.
+	 */
+	abstract Quantified withMode(Mode mode);
 	
 	
 	public static final class AnyTimes extends Quantified
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString SYMBOL = LazyString.str("*");
+		private static final String SYMBOL = "*";
 
 		public AnyTimes(final Quantifiable base, final Mode mode)
 		{
-			super(base, mode, SYMBOL.append(mode.symbol));
-		}
-
-		@Override
-		public Integer boundedLength() 
-		{
-			return null;
+			super(
+					checkBase(base), 
+					mode, 
+					SYMBOL + mode.symbol.toStringEager(),
+					null,
+					true,
+					true
+				);
+			checkBacktracking();
 		}
-
+		
 		@Override
-		public boolean repetitionInvalidatesBounds() 
-		{
-			return true;
-		}
-
+		AnyTimes withBase(final Quantifiable base)
+		{return new AnyTimes(base, mode);}
+		
 		@Override
-		public boolean possiblyZeroLength() 
-		{
-			return true;
-		}
+		AnyTimes withMode(final Mode mode)
+		{return new AnyTimes(base, mode);}
 	}
 	
 	@Deprecated
@@ -87,30 +168,28 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 	public static final class AtLeastOnce extends Quantified
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString SYMBOL = LazyString.str("+");
+		private static final String SYMBOL = "+";
 
 		public AtLeastOnce(final Quantifiable base, final Mode mode)
 		{
-			super(base, mode, SYMBOL.append(mode.symbol));
-		}
-
-		@Override
-		public Integer boundedLength() 
-		{
-			return null;
+			super(
+					checkBase(base), 
+					mode, 
+					SYMBOL + mode.symbol.toStringEager(),
+					null,
+					false,
+					base.possiblyZeroLength()
+				);
+			checkBacktracking();
 		}
-
+		
 		@Override
-		public boolean repetitionInvalidatesBounds() 
-		{
-			return false;
-		}
-
+		AtLeastOnce withBase(final Quantifiable base)
+		{return new AtLeastOnce(base, mode);}
+		
 		@Override
-		public boolean possiblyZeroLength()
-		{
-			return base.possiblyZeroLength();
-		}
+		AtLeastOnce withMode(final Mode mode)
+		{return new AtLeastOnce(base, mode);}
 	}
 	
 	@Deprecated
@@ -134,30 +213,27 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 	public static final class Optional extends Quantified
 	{
 		private static final long serialVersionUID = 1L;
-		private static final LazyString SYMBOL = LazyString.str("?");
+		private static final String SYMBOL = "?";
 
 		public Optional(final Quantifiable base, final Mode mode)
 		{
-			super(base, mode, SYMBOL.append(mode.symbol));
-		}
-
-		@Override
-		public Integer boundedLength() 
-		{
-			return base.boundedLength();
+			super(
+					checkBase(base), 
+					mode, 
+					SYMBOL + mode.symbol.toStringEager(),
+					base.boundedLength(),
+					true,
+					true
+				);
 		}
-
+		
 		@Override
-		public boolean repetitionInvalidatesBounds() 
-		{
-			return true;
-		}
-
+		Optional withBase(final Quantifiable base)
+		{return new Optional(base, mode);}
+		
 		@Override
-		public boolean possiblyZeroLength() 
-		{
-			return true;
-		}
+		Optional withMode(final Mode mode)
+		{return new Optional(base, mode);}
 	}
 	
 	@Deprecated
@@ -185,35 +261,24 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 
 		public RepeatExactly(final Quantifiable base, final int n, final Mode mode)
 		{
-			super(base, mode, LazyString.str("{").append(Integer.toString(n)).append("}").append(mode.symbol));
+			super(
+					checkBase(base), 
+					mode, 
+					"{" + n + "}" + mode.symbol.toStringEager(),
+					repeatedLength(base, n),
+					base.repetitionInvalidatesBounds(),
+					n == 0 || base.possiblyZeroLength()
+				);
 			this.repetitions = n;
 		}
-
-		@Override
-		public Integer boundedLength() 
-		{
-			if (base.repetitionInvalidatesBounds())
-				return null;
-			final Integer baseLength = base.boundedLength();
-			if (baseLength == null)
-				return null;
-			final long maximumLength = baseLength.longValue() * repetitions;
-			if (maximumLength <= 0xfffffffL) // arbitrary value from Pattern source code
-				return (int)maximumLength;
-			return null;
-		}
-
+		
 		@Override
-		public boolean repetitionInvalidatesBounds() 
-		{
-			return base.repetitionInvalidatesBounds();
-		}
-
+		RepeatExactly withBase(final Quantifiable base)
+		{return new RepeatExactly(base, repetitions, mode);}
+		
 		@Override
-		public boolean possiblyZeroLength() 
-		{
-			return repetitions == 0 || base.possiblyZeroLength();
-		}
+		RepeatExactly withMode(final Mode mode)
+		{return new RepeatExactly(base, repetitions, mode);}
 	}
 	
 	@Deprecated
@@ -243,44 +308,27 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 		public RepeatRange(final Quantifiable base, final int min, final Integer max, final Mode mode)
 		{
 			super(
-					base, 
+					checkBase(base), 
 					mode,
-					LazyString.str("{")
-						.append(Integer.toString(min))
-						.append(",")
-						.append(max == null ? "" : max.toString())
-						.append("}")
-						.append(mode.symbol)
+					"{" + min + "," + (max == null ? "" : max.toString()) + "}" + mode.symbol.toStringEager(),
+					max == null ? null : repeatedLength(base, max.longValue()),
+					// Pattern cannot bound a group that repeats a varying count.
+					max == null || min != max.intValue() || base.repetitionInvalidatesBounds(),
+					min == 0 || base.possiblyZeroLength()
 				);
 			this.minRepetitions = min;
 			this.maxRepetitions = max;
+			if (max == null)
+				checkBacktracking();
 		}
-
-		@Override
-		public Integer boundedLength() 
-		{
-			if (base.repetitionInvalidatesBounds())
-				return null;
-			final Integer baseLength = base.boundedLength();
-			if (baseLength == null || maxRepetitions == null)
-				return null;
-			final long maximumLength = baseLength.longValue() * maxRepetitions.longValue();
-			if (maximumLength <= 0xfffffffL) // arbitrary value from Pattern source code
-				return (int)maximumLength;
-			return null;
-		}
-
+		
 		@Override
-		public boolean repetitionInvalidatesBounds() 
-		{
-			return minRepetitions == 0 || base.repetitionInvalidatesBounds();
-		}
-
+		RepeatRange withBase(final Quantifiable base)
+		{return new RepeatRange(base, minRepetitions, maxRepetitions, mode);}
+		
 		@Override
-		public boolean possiblyZeroLength() 
-		{
-			return minRepetitions == 0 || base.possiblyZeroLength();
-		}
+		RepeatRange withMode(final Mode mode)
+		{return new RepeatRange(base, minRepetitions, maxRepetitions, mode);}
 	}
 	
 	@Deprecated
@@ -320,13 +368,12 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 	}
 
 	@Override
-	public LazyString expression()
+	public void appendTo(final StringBuilder builder)
 	{
-		return base.expression().append(quantifier);
+		ExpressionRenderer.appendTo(this, builder);
 	}
 
-	@Override
-	public int hashCode()
+	private static int hashCode(final Quantifiable base, final String quantifier)
 	{
 		final int prime = 31;
 		int result = 1;
@@ -334,6 +381,10 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 		result = prime * result + quantifier.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -344,8 +395,7 @@ public abstract class Quantified extends AbstractSequenceableAlternative
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		final Quantified other = (Quantified) obj;
-		return base.equals(other.base) && quantifier.equals(other.quantifier);
+		return StructuralEquality.equal(this, (Quantified) obj);
 	}
 
 }
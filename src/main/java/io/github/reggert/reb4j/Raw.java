@@ -1,8 +1,5 @@
 package io.github.reggert.reb4j;
 
-import fj.F;
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.List;
 
 
@@ -17,17 +14,8 @@ import fj.data.List;
 public abstract class Raw extends AbstractSequenceableAlternative
 {
 	private static final long serialVersionUID = 1L;
-	private final LazyString rawExpression;
-	
-	Raw(final LazyString rawExpression)
-	{
-		assert rawExpression != null;
-		this.rawExpression = rawExpression;
-	}
-
-	@Override
-	public final LazyString expression()
-	{return rawExpression;}
+	Raw()
+	{}
 	
 	/**
 	 * @Deprecated Use {@link #andThen(Raw)} instead.
@@ -104,24 +92,23 @@ public abstract class Raw extends AbstractSequenceableAlternative
 	{
 		private static final long serialVersionUID = 1L;
 		public final List<Raw> components;
+		private final Integer boundedLength;
+		private final boolean repetitionInvalidatesBounds;
+		private final boolean possiblyZeroLength;
 		
-		private Compound(final List<Raw> components)
+		Compound(final List<Raw> components)
 		{
-			super(compoundExpression(components));
 			this.components = components;
+			this.boundedLength = boundedLength(components);
+			this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(components);
+			this.possiblyZeroLength = possiblyZeroLength(components);
 		}
 		
-		private static LazyString compoundExpression(final List<Raw> components)
+		@Override
+		public void appendTo(final StringBuilder builder)
 		{
-			return components.foldLeft(
-					new F2<LazyString, Raw, LazyString>()
-					{
-						@Override
-						public LazyString f(final LazyString a, final Raw b)
-						{return a.append(b.rawExpression);}
-					},
-					LazyString.empty
-				);
+			for (final Raw component : components)
+				component.appendTo(builder);
 		}
 		
 		@Override
@@ -146,52 +133,48 @@ public abstract class Raw extends AbstractSequenceableAlternative
 			return new Compound(components.append(right.components));
 		}
 
-		@Override
-		public Integer boundedLength() 
+		private static Integer boundedLength(final List<Raw> components)
 		{
-			final Long maximumLength = components.foldLeft(
-					new F2<Long, Raw, Long>()
-					{
-						@Override public Long f(final Long a, final Raw b) 
-						{
-							if (a == null)
-								return null;
-							final Integer next = b.boundedLength();
-							if (next == null)
-								return null;
-							return a + next;
-						}
-					},
-					0L
-				);
-			if (maximumLength == null || maximumLength > 0xfffffffL) // arbitrary large value that appears in Pattern source code.
-				return null;
-			return maximumLength.intValue();
+			long maximumLength = 0L;
+			for (final Raw component : components)
+			{
+				final Integer next = component.boundedLength();
+				if (next == null)
+					return null;
+				maximumLength += next.intValue();
+				if (maximumLength > 0xfffffffL) // arbitrary large value that appears in Pattern source code.
+					return null;
+			}
+			return (int)maximumLength;
 		}
 		
-		@Override 
-		public boolean repetitionInvalidatesBounds() 
+		private static boolean repetitionInvalidatesBounds(final List<Raw> components)
 		{
-			return components.forall(
-					new F<Raw, Boolean>()
-					{
-						@Override public Boolean f(final Raw a) 
-						{return a.repetitionInvalidatesBounds();}
-					}
-				);
+			for (final Raw component : components)
+				if (!component.repetitionInvalidatesBounds())
+					return false;
+			return true;
 		}
 		
-		@Override 
-		public boolean possiblyZeroLength()
+		private static boolean possiblyZeroLength(final List<Raw> components)
 		{
-			return components.forall(
-					new F<Raw, Boolean>()
-					{
-						@Override public Boolean f(final Raw a) 
-						{return a.possiblyZeroLength();}
-					}
-				);
+			for (final Raw component : components)
+				if (!component.possiblyZeroLength())
+					return false;
+			return true;
 		}
+
+		@Override
+		public Integer boundedLength() 
+		{return boundedLength;}
+		
+		@Override 
+		public boolean repetitionInvalidatesBounds() 
+		{return repetitionInvalidatesBounds;}
+		
+		@Override 
+		public boolean possiblyZeroLength()
+		{return possiblyZeroLength;}
 	}
 	
 	
@@ -206,9 +189,15 @@ public abstract class Raw extends AbstractSequenceableAlternative
 		
 		public EscapedLiteral(final Literal literal)
 		{
-			super(literal.escaped());
+			if (literal == null) throw new NullPointerException("literal");
 			this.literal = literal;
 		}
+		
+		@Override
+		public void appendTo(final StringBuilder builder)
+		{
+			literal.appendTo(builder);
+		}
 
 		@Override
 		public Integer boundedLength() 
@@ -235,7 +224,7 @@ public abstract class Raw extends AbstractSequenceableAlternative
 	{
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + rawExpression.hashCode();
+		result = prime * result + toString().hashCode();
 		return result;
 	}
 
@@ -249,7 +238,7 @@ public abstract class Raw extends AbstractSequenceableAlternative
 		if (getClass() != obj.getClass())
 			return false;
 		final Raw other = (Raw) obj;
-		return rawExpression.equals(other.rawExpression);
+		return hashCode() == other.hashCode() && toString().equals(other.toString());
 	}
 	
 }
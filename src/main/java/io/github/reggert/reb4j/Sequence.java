@@ -1,8 +1,5 @@
 package io.github.reggert.reb4j;
 
-import fj.F;
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.List;
 
 /**
@@ -18,11 +15,19 @@ public final class Sequence extends AbstractExpression
 	 * The sub-expressions that make up the sequence.
 	 */
 	public final List<Sequenceable> components;
+	private final int hashCode;
+	private final Integer boundedLength;
+	private final boolean repetitionInvalidatesBounds;
+	private final boolean possiblyZeroLength;
 	
-	private Sequence(final List<Sequenceable> components)
+	Sequence(final List<Sequenceable> components)
 	{
 		if (components == null) throw new NullPointerException("components");
 		this.components = components;
+		this.hashCode = hashCode(this.components);
+		this.boundedLength = boundedLength(this.components);
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(this.components);
+		this.possiblyZeroLength = possiblyZeroLength(this.components);
 	}
 	
 	Sequence(final Sequence left, final Sequence right)
@@ -30,6 +35,10 @@ public final class Sequence extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.components = left.components.append(right.components);
+		this.hashCode = hashCode(this.components);
+		this.boundedLength = boundedLength(this.components);
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(this.components);
+		this.possiblyZeroLength = possiblyZeroLength(this.components);
 	}
 	
 	Sequence(final Sequence left, final Sequenceable right)
@@ -37,6 +46,10 @@ public final class Sequence extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.components = left.components.append(List.single(right));
+		this.hashCode = hashCode(this.components);
+		this.boundedLength = boundedLength(this.components);
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(this.components);
+		this.possiblyZeroLength = possiblyZeroLength(this.components);
 	}
 	
 	Sequence(final Sequenceable left, final Sequence right)
@@ -44,6 +57,10 @@ public final class Sequence extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.components = right.components.cons(left);
+		this.hashCode = hashCode(this.components);
+		this.boundedLength = boundedLength(this.components);
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(this.components);
+		this.possiblyZeroLength = possiblyZeroLength(this.components);
 	}
 	
 	Sequence(final Sequenceable left, final Sequenceable right)
@@ -51,6 +68,10 @@ public final class Sequence extends AbstractExpression
 		if (left == null) throw new NullPointerException("left");
 		if (right == null) throw new NullPointerException("right");
 		this.components = List.list(left, right);
+		this.hashCode = hashCode(this.components);
+		this.boundedLength = boundedLength(this.components);
+		this.repetitionInvalidatesBounds = repetitionInvalidatesBounds(this.components);
+		this.possiblyZeroLength = possiblyZeroLength(this.components);
 	}
 	
 	/**
@@ -77,19 +98,94 @@ public final class Sequence extends AbstractExpression
 		return new Sequence(List.list(rest).cons(second).cons(first));
 	}
 	
+	/**
+	 * Creates a builder for assembling a sequence from many sub-expressions.
+	 * 
+	 * @return a new, empty builder.
+	 */
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+	
+	/**
+	 * Mutable accumulator for sequences with many components.
+	 * 
+	 * Each call to {@link Sequence#andThen(Sequenceable)} copies all of the
+	 * components accumulated so far, so building an <var>n</var>-element
+	 * sequence by chaining it takes quadratic time. A builder appends each
+	 * component in amortized constant time, and {@link #build()} produces
+	 * a sequence equal to the one that the equivalent chain of 
+	 * <code>andThen</code> calls would have produced.
+	 * 
+	 * Builders are not thread-safe. A builder may continue to be used
+	 * after {@link #build()} has been called; previously built sequences
+	 * are not affected.
+	 */
+	public static final class Builder
+	{
+		private final List.Buffer<Sequenceable> components = new List.Buffer<Sequenceable>();
+		private int size = 0;
+		
+		private Builder()
+		{}
+		
+		/**
+		 * Appends a sub-expression to the sequence being built.
+		 * 
+		 * @param next
+		 * 	the sub-expression to append; must not be <code>null</code>.
+		 * @return this builder.
+		 * @throws NullPointerException
+		 * 	if <var>next</var> is <code>null</code>.
+		 */
+		public Builder andThen(final Sequenceable next)
+		{
+			if (next == null) throw new NullPointerException("next");
+			components.snoc(next);
+			size++;
+			return this;
+		}
+		
+		/**
+		 * Appends the components of another sequence to the sequence being
+		 * built.
+		 * 
+		 * @param next
+		 * 	the sequence whose components are to be appended; 
+		 * 	must not be <code>null</code>.
+		 * @return this builder.
+		 * @throws NullPointerException
+		 * 	if <var>next</var> is <code>null</code>.
+		 */
+		public Builder andThen(final Sequence next)
+		{
+			if (next == null) throw new NullPointerException("next");
+			components.append(next.components);
+			size += next.components.length();
+			return this;
+		}
+		
+		/**
+		 * Constructs a sequence from the sub-expressions appended so far.
+		 * 
+		 * @return a new sequence.
+		 * @throws IllegalStateException
+		 * 	if fewer than two sub-expressions have been appended.
+		 */
+		public Sequence build()
+		{
+			if (size < 2) 
+				throw new IllegalStateException("A sequence requires at least two components, but " + size + " were supplied");
+			return new Sequence(components.toList());
+		}
+	}
+	
 
 	@Override
-	public LazyString expression()
+	public void appendTo(final StringBuilder builder)
 	{
-		return components.foldLeft(
-				new F2<LazyString, Sequenceable, LazyString>() 
-				{
-					@Override
-					public LazyString f(final LazyString a, final Sequenceable b)
-					{return a.append(b.expression());}
-				}, 
-				LazyString.empty
-			);
+		ExpressionRenderer.appendTo(this, builder);
 	}
 
 	@Override
@@ -118,14 +214,17 @@ public final class Sequence extends AbstractExpression
 	public Sequence andThen(final Sequence right)
 	{return new Sequence(this, right);}
 	
-	@Override
-	public int hashCode()
+	private static int hashCode(final List<Sequenceable> components)
 	{
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + components.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -136,55 +235,49 @@ public final class Sequence extends AbstractExpression
 			return false;
 		if (getClass() != obj.getClass())
 			return false;
-		final Sequence other = (Sequence) obj;
-		return components.equals(other.components);
+		return StructuralEquality.equal(this, (Sequence) obj);
 	}
 
-	@Override
-	public Integer boundedLength() 
+	private static Integer boundedLength(final List<Sequenceable> components)
 	{
-		final Long maximumLength = components.foldLeft(
-				new F2<Long, Sequenceable, Long>()
-				{
-					@Override public Long f(final Long a, final Sequenceable b) 
-					{
-						if (a == null)
-							return null;
-						final Integer next = b.boundedLength();
-						if (next == null)
-							return null;
-						return a + next;
-					}
-				},
-				0L
-			);
-		if (maximumLength == null || maximumLength > 0xfffffffL) // arbitrary large value that appears in Pattern source code.
-			return null;
-		return maximumLength.intValue();
+		long maximumLength = 0L;
+		for (final Sequenceable component : components)
+		{
+			final Integer next = component.boundedLength();
+			if (next == null)
+				return null;
+			maximumLength += next.intValue();
+			if (maximumLength > 0xfffffffL) // arbitrary large value that appears in Pattern source code.
+				return null;
+		}
+		return (int)maximumLength;
 	}
 	
-	@Override 
-	public boolean repetitionInvalidatesBounds() 
+	private static boolean repetitionInvalidatesBounds(final List<Sequenceable> components)
 	{
-		return components.exists(
-				new F<Sequenceable, Boolean>()
-				{
-					@Override public Boolean f(final Sequenceable a) 
-					{return a.repetitionInvalidatesBounds();}
-				}
-			);
+		for (final Sequenceable component : components)
+			if (component.repetitionInvalidatesBounds())
+				return true;
+		return false;
 	}
 	
-	@Override 
-	public boolean possiblyZeroLength()
+	private static boolean possiblyZeroLength(final List<Sequenceable> components)
 	{
-		return components.forall(
-				new F<Sequenceable, Boolean>()
-				{
-					@Override public Boolean f(final Sequenceable a) 
-					{return a.possiblyZeroLength();}
-				}
-			);
+		for (final Sequenceable component : components)
+			if (!component.possiblyZeroLength())
+				return false;
+		return true;
 	}
-}
 
+	@Override
+	public Integer boundedLength() 
+	{return boundedLength;}
+	
+	@Override 
+	public boolean repetitionInvalidatesBounds() 
+	{return repetitionInvalidatesBounds;}
+	
+	@Override 
+	public boolean possiblyZeroLength()
+	{return possiblyZeroLength;}
+}
@@ -0,0 +1,74 @@
+package io.github.reggert.reb4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Compares expression trees without recursion.
+ *
+ * Two trees are equal if they have the same shape, corresponding
+ * {@link Sequence}, {@link Alternation}, {@link Group} and {@link Quantified}
+ * nodes are of the same class and render the same delimiters, and
+ * corresponding leaves are equal. Since the hash codes of those nodes are
+ * computed when they are constructed, subtrees with different hash codes
+ * are rejected without being traversed.
+ */
+final class StructuralEquality
+{
+	private StructuralEquality() {}
+
+	/**
+	 * Indicates whether two expressions are equal.
+	 */
+	static boolean equal(final Expression left, final Expression right)
+	{
+		final ArrayDeque<Expression> pending = new ArrayDeque<Expression>();
+		pending.push(right);
+		pending.push(left);
+		while (!pending.isEmpty())
+		{
+			final Expression a = pending.pop();
+			final Expression b = pending.pop();
+			if (a == b)
+				continue;
+			if (a.getClass() != b.getClass())
+				return false;
+			if (!isComposite(a))
+			{
+				if (!a.equals(b))
+					return false;
+				continue;
+			}
+			if (a.hashCode() != b.hashCode())
+				return false;
+			if (a instanceof Group)
+			{
+				if (!((Group) a).opening.equals(((Group) b).opening))
+					return false;
+			}
+			else if (a instanceof Quantified)
+			{
+				if (!((Quantified) a).quantifier.equals(((Quantified) b).quantifier))
+					return false;
+			}
+			final Iterator<? extends Expression> as = ExpressionVisitor.children(a);
+			final Iterator<? extends Expression> bs = ExpressionVisitor.children(b);
+			while (as.hasNext() && bs.hasNext())
+			{
+				pending.push(bs.next());
+				pending.push(as.next());
+			}
+			if (as.hasNext() || bs.hasNext())
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isComposite(final Expression expression)
+	{
+		return expression instanceof Sequence
+			|| expression instanceof Alternation
+			|| expression instanceof Group
+			|| expression instanceof Quantified;
+	}
+}
@@ -0,0 +1,711 @@
+package io.github.reggert.reb4j.analysis;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.ExpressionVisitor;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Quantified;
+import io.github.reggert.reb4j.Raw;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.Sequenceable;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CodePointSet;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+
+import fj.data.List;
+
+/**
+ * Worst-case running time of matching an expression with
+ * {@link java.util.regex.Pattern}'s backtracking engine, estimated from the
+ * expression tree.
+ *
+ * Backtracking becomes catastrophic when the same text can be matched in
+ * many different ways, all of which are tried before a match fails:
+ * <ul>
+ * <li>Exponential: a repetition whose base can match the same text in
+ * 	more than one way, or can divide it between consecutive repetitions in
+ * 	more than one way, such as <code>(a|a)*</code>, <code>(a+)+</code>,
+ * 	<code>(a?a)*</code> or <code>(\w+\s?)*</code>. Bounded quantifiers
+ * 	that can match different amounts of text count as well as unbounded
+ * 	ones.</li>
+ * <li>Polynomial: a chain of unbounded repetitions in sequence, each of
+ * 	which can give up text that the next one can match, such as
+ * 	<code>\d+\d+</code> or <code>.*x.*</code>; the degree is the number
+ * 	of repetitions in the chain.</li>
+ * </ul>
+ * Anything else is linear in the length of the input for each position at
+ * which a match is attempted.
+ *
+ * The analysis compares sets of characters rather than languages, so it
+ * may report ambiguity that cannot occur, and it underestimates the degree
+ * of chains that pass through groups. Possessive quantifiers and
+ * independent groups never give up text, so they break chains; their
+ * contents, and the contents of look-around, are still analyzed on their
+ * own. Anchors and look-around are assumed to always succeed, adopted
+ * expressions are assumed to match anything without backtracking, and the
+ * characters matched inside groups that enable flags are assumed to be
+ * arbitrary.
+ *
+ * In {@linkplain #setStrict(boolean) strict mode}, unbounded quantifiers
+ * reject their base at construction if the result would be exponential.
+ * Strict mode can also be enabled by setting the system property
+ * <code>io.github.reggert.reb4j.strict</code> to <code>true</code>.
+ */
+public final class Backtracking
+{
+	/**
+	 * Worst-case number of steps taken by an attempt to match, in terms of
+	 * the length of the input.
+	 */
+	public static enum Complexity
+	{
+		LINEAR,
+		POLYNOMIAL,
+		EXPONENTIAL
+	}
+
+	/*
+	 * The characters that "." matches when no flags are set.
+	 */
+	private static final CodePointSet ANY_CHAR = CodePointSet.of('\n')
+		.union(CodePointSet.of('\r'))
+		.union(CodePointSet.of('\u0085'))
+		.union(CodePointSet.range('\u2028', '\u2029'))
+		.complement();
+
+	/*
+	 * Arbitrary limit on the number of pairs of alternatives compared for
+	 * overlap, beyond which only identical literals are detected.
+	 */
+	private static final int MAX_COMPARISONS = 1 << 16;
+
+	private static volatile boolean strict = Boolean.getBoolean("io.github.reggert.reb4j.strict");
+
+	private static final Backtracking LINEAR = new Backtracking(Complexity.LINEAR, 1, null);
+
+	public final Complexity complexity;
+
+	/**
+	 * The degree of the polynomial: 1 for linear complexity, and
+	 * {@link Integer#MAX_VALUE} for exponential complexity.
+	 */
+	public final int degree;
+
+	/**
+	 * The sub-expression responsible for the complexity, or
+	 * <code>null</code> if it is linear.
+	 */
+	public final Expression culprit;
+
+	private Backtracking(final Complexity complexity, final int degree, final Expression culprit)
+	{
+		this.complexity = complexity;
+		this.degree = degree;
+		this.culprit = culprit;
+	}
+
+	/**
+	 * Analyzes the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to analyze; must not be <code>null</code>.
+	 * @return the worst-case complexity of matching <var>expression</var>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static Backtracking analyze(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final Summary summary = new Analysis().summarize(expression);
+		if (summary.exponential != null)
+			return new Backtracking(Complexity.EXPONENTIAL, Integer.MAX_VALUE, summary.exponential);
+		if (summary.degree > 1)
+			return new Backtracking(Complexity.POLYNOMIAL, summary.degree, summary.polynomial);
+		return LINEAR;
+	}
+
+	/**
+	 * Analyzes the specified expression, and rejects it if matching it can
+	 * take exponential time.
+	 *
+	 * @param expression
+	 * 	the expression to check; must not be <code>null</code>.
+	 * @return the worst-case complexity of matching <var>expression</var>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 * @throws CatastrophicBacktrackingException
+	 * 	if the complexity is exponential.
+	 */
+	public static Backtracking requireSubexponential(final Expression expression)
+	{
+		final Backtracking result = analyze(expression);
+		if (result.complexity == Complexity.EXPONENTIAL)
+			throw new CatastrophicBacktrackingException(expression, result.culprit);
+		return result;
+	}
+
+	/**
+	 * Indicates whether unbounded quantifiers are checked at construction.
+	 */
+	public static boolean isStrict()
+	{return strict;}
+
+	/**
+	 * Enables or disables checking unbounded quantifiers at construction.
+	 * This affects every thread, and makes constructing each unbounded
+	 * quantifier take time proportional to the size of its base.
+	 */
+	public static void setStrict(final boolean strict)
+	{Backtracking.strict = strict;}
+
+	@Override
+	public String toString()
+	{
+		switch (complexity)
+		{
+			case LINEAR:
+				return "linear";
+			case POLYNOMIAL:
+				return "polynomial of degree " + degree + " in " + culprit;
+			default:
+				return "exponential in " + culprit;
+		}
+	}
+
+
+	/**
+	 * Quantifier that can give up text to what follows it, or take text
+	 * from what precedes it.
+	 */
+	private static final class Loop
+	{
+		final Quantified quantified;
+		final CodePointSet first;
+		final CodePointSet characters;
+		// Bounded loops make matching ambiguous, but do not form chains.
+		final boolean bounded;
+		// Number of loops in the longest chain that ends with this one.
+		final int degree;
+
+		Loop(
+				final Quantified quantified,
+				final CodePointSet first,
+				final CodePointSet characters,
+				final boolean bounded,
+				final int degree
+			)
+		{
+			this.quantified = quantified;
+			this.first = first;
+			this.characters = characters;
+			this.bounded = bounded;
+			this.degree = degree;
+		}
+
+		Loop withDegree(final int degree)
+		{return degree == this.degree ? this : new Loop(quantified, first, characters, bounded, degree);}
+	}
+
+
+	/**
+	 * What the analysis knows about a sub-expression.
+	 */
+	private static final class Summary
+	{
+		static final Summary EMPTY = new Summary(
+				true, CodePointSet.EMPTY, CodePointSet.EMPTY,
+				List.<Loop>nil(), List.<Loop>nil(), 0, null, null, null
+			);
+
+		final boolean nullable;
+		final CodePointSet first;
+		final CodePointSet characters;
+		// Loops that can be reached without consuming anything.
+		final List<Loop> head;
+		// Loops that can give up text to whatever follows.
+		final List<Loop> tail;
+		// Length of the longest chain of loops, and where it was formed.
+		final int degree;
+		final Expression polynomial;
+		// Sub-expression that can match some text in more than one way.
+		final Expression ambiguous;
+		final Expression exponential;
+
+		Summary(
+				final boolean nullable,
+				final CodePointSet first,
+				final CodePointSet characters,
+				final List<Loop> head,
+				final List<Loop> tail,
+				final int degree,
+				final Expression polynomial,
+				final Expression ambiguous,
+				final Expression exponential
+			)
+		{
+			this.nullable = nullable;
+			this.first = first;
+			this.characters = characters;
+			this.head = head;
+			this.tail = tail;
+			this.degree = degree;
+			this.polynomial = polynomial;
+			this.ambiguous = ambiguous;
+			this.exponential = exponential;
+		}
+
+		static Summary of(final CodePointSet characters)
+		{
+			return new Summary(
+					false, characters, characters,
+					List.<Loop>nil(), List.<Loop>nil(), 0, null, null, null
+				);
+		}
+
+		/*
+		 * A zero-width or atomic construct that only retains the complexity
+		 * of its contents.
+		 */
+		Summary opaque(final boolean nullable, final CodePointSet first, final CodePointSet characters)
+		{
+			return new Summary(
+					nullable, first, characters,
+					List.<Loop>nil(), List.<Loop>nil(), degree, polynomial, null, exponential
+				);
+		}
+	}
+
+
+	private static final class Analysis
+	{
+		private final IdentityHashMap<Expression, Summary> summaries = new IdentityHashMap<Expression, Summary>();
+		private final HashMap<CodePointSet, IdentityHashMap<Expression, Boolean>> within =
+			new HashMap<CodePointSet, IdentityHashMap<Expression, Boolean>>();
+
+		Summary summarize(final Expression expression)
+		{
+			new ExpressionVisitor()
+			{
+				@Override
+				protected boolean enter(final Expression node)
+				{return !summaries.containsKey(node);}
+
+				@Override
+				protected void leave(final Expression node)
+				{summaries.put(node, compute(node));}
+			}.walk(expression);
+			return summaries.get(expression);
+		}
+
+		private Summary compute(final Expression expression)
+		{
+			if (expression instanceof CharClass)
+				return Summary.of(((CharClass) expression).codePoints());
+			if (expression == Entity.ANY_CHAR)
+				return Summary.of(ANY_CHAR);
+			if (expression instanceof Entity)
+				return Summary.EMPTY;
+			if (expression instanceof Literal)
+				return literal(((Literal) expression).unescaped());
+			if (expression instanceof Raw.EscapedLiteral)
+				return literal(((Raw.EscapedLiteral) expression).literal.unescaped());
+			if (expression instanceof Raw.Compound)
+				return literal(unescaped((Raw) expression));
+			if (expression instanceof Sequence)
+				return sequence((Sequence) expression);
+			if (expression instanceof Alternation)
+				return alternation((Alternation) expression);
+			if (expression instanceof Group)
+				return group((Group) expression);
+			if (expression instanceof Quantified)
+				return quantified((Quantified) expression);
+			if (expression instanceof Adopted)
+				return Summary.EMPTY.opaque(true, CodePointSet.ALL, CodePointSet.ALL);
+			return Summary.of(CodePointSet.ALL);
+		}
+
+		private static String unescaped(final Raw raw)
+		{
+			if (raw instanceof Raw.EscapedLiteral)
+				return ((Raw.EscapedLiteral) raw).literal.unescaped();
+			final StringBuilder builder = new StringBuilder();
+			for (final Raw component : ((Raw.Compound) raw).components)
+				builder.append(unescaped(component));
+			return builder.toString();
+		}
+
+		private static Summary literal(final String unescaped)
+		{
+			if (unescaped.isEmpty())
+				return Summary.EMPTY;
+			CodePointSet characters = CodePointSet.EMPTY;
+			for (int i = 0; i < unescaped.length(); i = unescaped.offsetByCodePoints(i, 1))
+				characters = characters.union(CodePointSet.of(unescaped.codePointAt(i)));
+			return new Summary(
+					false, CodePointSet.of(unescaped.codePointAt(0)), characters,
+					List.<Loop>nil(), List.<Loop>nil(), 0, null, null, null
+				);
+		}
+
+		private Summary sequence(final Sequence sequence)
+		{
+			boolean nullable = true;
+			CodePointSet first = CodePointSet.EMPTY;
+			CodePointSet characters = CodePointSet.EMPTY;
+			final List.Buffer<Loop> head = new List.Buffer<Loop>();
+			List<Loop> pending = List.nil();
+			int degree = 0;
+			Expression polynomial = null;
+			Expression ambiguous = null;
+			Expression exponential = null;
+			for (final Sequenceable component : sequence.components)
+			{
+				final Summary summary = summaries.get(component);
+				if (summary.degree > degree)
+				{
+					degree = summary.degree;
+					polynomial = summary.polynomial;
+				}
+				if (ambiguous == null)
+					ambiguous = summary.ambiguous;
+				if (exponential == null)
+					exponential = summary.exponential;
+				// Extend the chains ending in pending loops with the loops at the start of this component.
+				final List.Buffer<Loop> linked = new List.Buffer<Loop>();
+				for (final Loop loop : summary.head)
+				{
+					int chain = loop.degree;
+					for (final Loop previous : pending)
+					{
+						final boolean chains = !previous.bounded && !loop.bounded && previous.degree + 1 > chain;
+						if ((chains || ambiguous == null) && links(previous, loop))
+						{
+							ambiguous = sequence;
+							if (chains)
+								chain = previous.degree + 1;
+						}
+					}
+					if (chain > degree)
+					{
+						degree = chain;
+						polynomial = sequence;
+					}
+					linked.snoc(loop.withDegree(chain));
+				}
+				final List.Buffer<Loop> next = new List.Buffer<Loop>();
+				for (final Loop loop : pending)
+					if (summary.nullable || within(component, loop.characters))
+						next.snoc(loop);
+				for (final Loop loop : summary.tail)
+					next.snoc(find(linked.toList(), loop));
+				pending = next.toList();
+				if (nullable)
+				{
+					head.append(linked.toList());
+					first = first.union(summary.first);
+				}
+				nullable &= summary.nullable;
+				characters = characters.union(summary.characters);
+			}
+			return new Summary(
+					nullable, first, characters, head.toList(), pending,
+					degree, polynomial, ambiguous, exponential
+				);
+		}
+
+		/*
+		 * The specified loop, as updated in a list of linked loops.
+		 */
+		private static Loop find(final List<Loop> linked, final Loop loop)
+		{
+			for (final Loop candidate : linked)
+				if (candidate.quantified == loop.quantified)
+					return candidate;
+			return loop;
+		}
+
+		private Summary alternation(final Alternation alternation)
+		{
+			boolean nullable = false;
+			CodePointSet first = CodePointSet.EMPTY;
+			CodePointSet characters = CodePointSet.EMPTY;
+			final List.Buffer<Loop> head = new List.Buffer<Loop>();
+			final List.Buffer<Loop> tail = new List.Buffer<Loop>();
+			int degree = 0;
+			Expression polynomial = null;
+			Expression ambiguous = null;
+			Expression exponential = null;
+			for (final Alternative alternative : alternation.alternatives)
+			{
+				final Summary summary = summaries.get(alternative);
+				nullable |= summary.nullable;
+				first = first.union(summary.first);
+				characters = characters.union(summary.characters);
+				head.append(summary.head);
+				tail.append(summary.tail);
+				if (summary.degree > degree)
+				{
+					degree = summary.degree;
+					polynomial = summary.polynomial;
+				}
+				if (ambiguous == null)
+					ambiguous = summary.ambiguous;
+				if (exponential == null)
+					exponential = summary.exponential;
+			}
+			if (ambiguous == null && overlapping(alternation.alternatives))
+				ambiguous = alternation;
+			return new Summary(
+					nullable, first, characters, head.toList(), tail.toList(),
+					degree, polynomial, ambiguous, exponential
+				);
+		}
+
+		/*
+		 * Whether any two alternatives can match the same text. Literals
+		 * are compared by their first and distinct characters, which is
+		 * what the general comparison amounts to for them.
+		 */
+		private boolean overlapping(final List<Alternative> alternatives)
+		{
+			final HashSet<java.util.List<CodePointSet>> literals = new HashSet<java.util.List<CodePointSet>>();
+			final List.Buffer<Alternative> others = new List.Buffer<Alternative>();
+			for (final Alternative alternative : alternatives)
+			{
+				final Summary summary = summaries.get(alternative);
+				if (alternative instanceof Literal && !summary.nullable)
+				{
+					if (!literals.add(Arrays.asList(summary.first, summary.characters)))
+						return true;
+				}
+				else
+					others.snoc(alternative);
+			}
+			int comparisons = 0;
+			for (List<Alternative> rest = others.toList(); rest.isNotEmpty(); rest = rest.tail())
+			{
+				for (final Alternative alternative : alternatives)
+				{
+					if (alternative == rest.head())
+						continue;
+					if (++comparisons > MAX_COMPARISONS)
+						return false;
+					if (overlap(rest.head(), alternative))
+						return true;
+				}
+			}
+			return false;
+		}
+
+		private boolean overlap(final Expression left, final Expression right)
+		{
+			final Summary l = summaries.get(left);
+			final Summary r = summaries.get(right);
+			if (l.first.intersect(r.first).isEmpty())
+				return false;
+			final CodePointSet shared = l.characters.intersect(r.characters);
+			return within(left, shared) && within(right, shared);
+		}
+
+		/*
+		 * Whether text given up by one loop can be matched by another.
+		 */
+		private boolean links(final Loop previous, final Loop next)
+		{
+			if (previous.first.intersect(next.first).isEmpty())
+				return false;
+			final CodePointSet shared = previous.characters.intersect(next.characters);
+			return within(previous.quantified.base, shared) && within(next.quantified.base, shared);
+		}
+
+		private Summary group(final Group group)
+		{
+			final Summary nested = summaries.get(group.nested);
+			if (group instanceof Group.Capture
+					|| group instanceof Group.NonCapturing
+					|| group instanceof Group.DisableFlags)
+				return nested;
+			if (group instanceof Group.Independent)
+				return nested.opaque(nested.nullable, nested.first, nested.characters);
+			if (group instanceof Group.EnableFlags)
+				return new Summary(
+						nested.nullable, CodePointSet.ALL, CodePointSet.ALL, nested.head, nested.tail,
+						nested.degree, nested.polynomial, nested.ambiguous, nested.exponential
+					);
+			// Look-around.
+			return nested.opaque(true, CodePointSet.EMPTY, CodePointSet.EMPTY);
+		}
+
+		private Summary quantified(final Quantified quantified)
+		{
+			final Summary base = summaries.get(quantified.base);
+			final int min = minimum(quantified);
+			final Integer max = maximum(quantified);
+			final boolean nullable = min == 0 || base.nullable;
+			if (max != null && max.intValue() == 0)
+				return base.opaque(true, CodePointSet.EMPTY, CodePointSet.EMPTY);
+			if (quantified.mode == Quantified.Mode.POSSESSIVE)
+				return base.opaque(nullable, base.first, base.characters);
+			if (max == null)
+			{
+				Expression exponential = base.exponential;
+				if (exponential == null && (base.ambiguous != null || dividesRepetitions(quantified, base, true)))
+					exponential = quantified;
+				final Loop loop = new Loop(quantified, base.first, base.characters, false, 1);
+				return new Summary(
+						nullable, base.first, base.characters, List.list(loop), List.list(loop),
+						Math.max(base.degree, 1), base.degree > 1 ? base.polynomial : quantified,
+						exponential == null ? null : quantified, exponential
+					);
+			}
+			List<Loop> head = base.head;
+			List<Loop> tail = base.tail;
+			if (min < max.intValue())
+			{
+				final Loop loop = new Loop(quantified, base.first, base.characters, true, 0);
+				head = head.cons(loop);
+				tail = tail.cons(loop);
+			}
+			if (max.intValue() == 1 || !dividesRepetitions(quantified, base, true))
+				return new Summary(
+						nullable, base.first, base.characters, head, tail,
+						base.degree, base.polynomial, base.ambiguous, base.exponential
+					);
+			if (!dividesRepetitions(quantified, base, false))
+				return new Summary(
+						nullable, base.first, base.characters, head, tail,
+						base.degree, base.polynomial, quantified, base.exponential
+					);
+			// Each repetition extends the chains that end in the base.
+			int chain = 1;
+			for (final Loop loop : base.tail)
+				chain = Math.max(chain, loop.degree);
+			final long degree = Math.min((long) chain * max.intValue(), Integer.MAX_VALUE - 1);
+			return new Summary(
+					nullable, base.first, base.characters, head, tail,
+					Math.max(base.degree, (int) degree), degree > base.degree ? quantified : base.polynomial,
+					quantified, base.exponential
+				);
+		}
+
+		/*
+		 * Whether text at the end of one repetition of a quantifier's base
+		 * can also be matched at the start of the next repetition, counting
+		 * bounded loops only if specified. A bounded loop that matches at
+		 * most once only counts if the base cannot be empty, since giving up
+		 * all of its text could otherwise leave an empty repetition, which
+		 * ends the quantifier.
+		 */
+		private boolean dividesRepetitions(final Quantified quantified, final Summary base, final boolean bounded)
+		{
+			for (final Loop loop : base.tail)
+			{
+				if (loop.bounded && (!bounded || base.nullable && maximum(loop.quantified).intValue() == 1))
+					continue;
+				if (loop.first.intersect(base.first).isEmpty())
+					continue;
+				final CodePointSet shared = loop.characters.intersect(base.characters);
+				if (within(loop.quantified.base, shared) && within(quantified.base, shared))
+					return true;
+			}
+			return false;
+		}
+
+		private static int minimum(final Quantified quantified)
+		{
+			if (quantified instanceof Quantified.AtLeastOnce)
+				return 1;
+			if (quantified instanceof Quantified.RepeatExactly)
+				return ((Quantified.RepeatExactly) quantified).repetitions;
+			if (quantified instanceof Quantified.RepeatRange)
+				return ((Quantified.RepeatRange) quantified).minRepetitions;
+			return 0;
+		}
+
+		private static Integer maximum(final Quantified quantified)
+		{
+			if (quantified instanceof Quantified.Optional)
+				return 1;
+			if (quantified instanceof Quantified.RepeatExactly)
+				return ((Quantified.RepeatExactly) quantified).repetitions;
+			if (quantified instanceof Quantified.RepeatRange)
+				return ((Quantified.RepeatRange) quantified).maxRepetitions;
+			return null;
+		}
+
+		/*
+		 * Whether an expression can match some text, possibly empty, made up
+		 * only of the specified characters.
+		 */
+		private boolean within(final Expression expression, final CodePointSet characters)
+		{
+			IdentityHashMap<Expression, Boolean> cache = within.get(characters);
+			if (cache == null)
+			{
+				cache = new IdentityHashMap<Expression, Boolean>();
+				within.put(characters, cache);
+			}
+			final IdentityHashMap<Expression, Boolean> results = cache;
+			new ExpressionVisitor()
+			{
+				@Override
+				protected boolean enter(final Expression node)
+				{return !results.containsKey(node);}
+
+				@Override
+				protected void leave(final Expression node)
+				{results.put(node, computeWithin(node, characters, results));}
+			}.walk(expression);
+			return results.get(expression).booleanValue();
+		}
+
+		private boolean computeWithin(
+				final Expression expression,
+				final CodePointSet characters,
+				final IdentityHashMap<Expression, Boolean> results
+			)
+		{
+			if (expression instanceof Sequence)
+			{
+				for (final Sequenceable component : ((Sequence) expression).components)
+					if (!results.get(component).booleanValue())
+						return false;
+				return true;
+			}
+			if (expression instanceof Alternation)
+			{
+				for (final Alternative alternative : ((Alternation) expression).alternatives)
+					if (results.get(alternative).booleanValue())
+						return true;
+				return false;
+			}
+			if (expression instanceof Group)
+			{
+				if (expression instanceof Group.Capture
+						|| expression instanceof Group.NonCapturing
+						|| expression instanceof Group.Independent
+						|| expression instanceof Group.DisableFlags)
+					return results.get(((Group) expression).nested).booleanValue();
+				return true;
+			}
+			if (expression instanceof Quantified)
+				return minimum((Quantified) expression) == 0
+					|| results.get(((Quantified) expression).base).booleanValue();
+			// Leaves: what they match is in their summaries.
+			final Summary summary = summaries.get(expression);
+			if (summary.nullable)
+				return true;
+			if (expression instanceof CharClass || expression == Entity.ANY_CHAR)
+				return !summary.characters.intersect(characters).isEmpty();
+			return summary.characters.intersect(characters).equals(summary.characters);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package io.github.reggert.reb4j.analysis;
+
+import io.github.reggert.reb4j.Expression;
+
+/**
+ * Thrown when an expression whose matching can take exponential time is
+ * rejected.
+ *
+ * @see Backtracking#requireSubexponential(Expression)
+ */
+public final class CatastrophicBacktrackingException extends IllegalArgumentException
+{
+	private static final long serialVersionUID = 1L;
+	private final Expression expression;
+	private final Expression culprit;
+
+	public CatastrophicBacktrackingException(final Expression expression, final Expression culprit)
+	{
+		super("Matching the following expression can take exponential time because of " + culprit + ": " + expression);
+		this.expression = expression;
+		this.culprit = culprit;
+	}
+
+	public Expression getExpression()
+	{
+		return expression;
+	}
+
+	public Expression getCulprit()
+	{
+		return culprit;
+	}
+}
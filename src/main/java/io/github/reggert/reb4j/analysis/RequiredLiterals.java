@@ -0,0 +1,290 @@
+package io.github.reggert.reb4j.analysis;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Flag;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Quantified;
+import io.github.reggert.reb4j.Raw;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.Sequenceable;
+import io.github.reggert.reb4j.charclass.SingleChar;
+
+import fj.data.List;
+
+/**
+ * Literal strings that must occur in any text matched by an expression.
+ *
+ * The analysis assumes that the expression is compiled without flags,
+ * as by {@link Expression#toPattern()}. Look-around groups and groups that
+ * enable case-insensitive or comments mode are treated as opaque, and an
+ * expression containing {@link Adopted} sub-expressions (which may change
+ * flags for the remainder of the expression) yields no literals at all.
+ * The results are conservative: an empty prefix, suffix or list of
+ * required literals only means that nothing could be proved.
+ */
+public final class RequiredLiterals
+{
+	/*
+	 * Arbitrary limit on the length of strings built up by repetition,
+	 * beyond which an exact string is degraded to a prefix and suffix.
+	 */
+	private static final int MAX_EXACT_LENGTH = 1024;
+
+	private static final RequiredLiterals NONE =
+		new RequiredLiterals(null, "", "", List.<String>nil());
+	private static final RequiredLiterals EMPTY =
+		new RequiredLiterals("", "", "", List.<String>nil());
+
+	/**
+	 * The only string that the expression can match, or <code>null</code>
+	 * if there may be more than one.
+	 */
+	public final String exact;
+
+	/**
+	 * String with which every match begins; possibly empty.
+	 */
+	public final String prefix;
+
+	/**
+	 * String with which every match ends; possibly empty.
+	 */
+	public final String suffix;
+
+	/**
+	 * Non-empty strings, other than the prefix and suffix, that occur
+	 * somewhere within every match.
+	 */
+	public final List<String> required;
+
+	private RequiredLiterals(
+			final String exact,
+			final String prefix,
+			final String suffix,
+			final List<String> required
+		)
+	{
+		this.exact = exact;
+		this.prefix = prefix;
+		this.suffix = suffix;
+		this.required = required;
+	}
+
+	private static RequiredLiterals exactly(final String exact)
+	{
+		if (exact.isEmpty())
+			return EMPTY;
+		return new RequiredLiterals(exact, exact, exact, List.<String>nil());
+	}
+
+	/**
+	 * Analyzes the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to analyze; must not be <code>null</code>.
+	 * @return the literals required by <var>expression</var>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static RequiredLiterals of(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final Analysis analysis = new Analysis();
+		final RequiredLiterals result = analysis.analyze(expression);
+		return analysis.adopted ? NONE : result;
+	}
+
+	/**
+	 * Returns the longest string known to occur in every match,
+	 * or an empty string if there is none.
+	 */
+	public String longest()
+	{
+		if (exact != null)
+			return exact;
+		String longest = prefix.length() >= suffix.length() ? prefix : suffix;
+		for (final String literal : required)
+			if (literal.length() > longest.length())
+				longest = literal;
+		return longest;
+	}
+
+	/**
+	 * Indicates whether any non-empty literal is known to occur in every match.
+	 */
+	public boolean isEmpty()
+	{
+		return longest().isEmpty();
+	}
+
+	private RequiredLiterals followedBy(final RequiredLiterals next)
+	{
+		if (exact != null && next.exact != null)
+		{
+			final String combined = exact + next.exact;
+			if (combined.length() <= MAX_EXACT_LENGTH)
+				return exactly(combined);
+		}
+		if (exact != null)
+			return new RequiredLiterals(null, exact + next.prefix, next.suffix, next.required);
+		if (next.exact != null)
+			return new RequiredLiterals(null, prefix, suffix + next.exact, required);
+		final String joint = suffix + next.prefix;
+		return new RequiredLiterals(
+				null,
+				prefix,
+				next.suffix,
+				joint.isEmpty() ? required.append(next.required)
+					: required.append(next.required.cons(joint))
+			);
+	}
+
+	private RequiredLiterals orElse(final RequiredLiterals alternative)
+	{
+		if (exact != null && exact.equals(alternative.exact))
+			return this;
+		return new RequiredLiterals(
+				null,
+				commonPrefix(startOf(), alternative.startOf()),
+				commonSuffix(endOf(), alternative.endOf()),
+				List.<String>nil()
+			);
+	}
+
+	private RequiredLiterals repeated(final int minimum, final Integer maximum)
+	{
+		if (maximum != null && maximum.intValue() == 0)
+			return EMPTY;
+		if (minimum == 0)
+			return NONE;
+		if (exact != null && maximum != null && maximum.intValue() == minimum
+				&& (long) exact.length() * minimum <= MAX_EXACT_LENGTH)
+		{
+			final StringBuilder builder = new StringBuilder(exact.length() * minimum);
+			for (int i = 0; i < minimum; i++)
+				builder.append(exact);
+			return exactly(builder.toString());
+		}
+		return new RequiredLiterals(null, startOf(), endOf(), required);
+	}
+
+	private String startOf()
+	{return exact != null ? exact : prefix;}
+
+	private String endOf()
+	{return exact != null ? exact : suffix;}
+
+	private static String commonPrefix(final String a, final String b)
+	{
+		final int limit = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < limit && a.charAt(i) == b.charAt(i))
+			i++;
+		return a.substring(0, i);
+	}
+
+	private static String commonSuffix(final String a, final String b)
+	{
+		final int limit = Math.min(a.length(), b.length());
+		int i = 0;
+		while (i < limit && a.charAt(a.length() - 1 - i) == b.charAt(b.length() - 1 - i))
+			i++;
+		return a.substring(a.length() - i);
+	}
+
+
+	private static final class Analysis
+	{
+		boolean adopted = false;
+
+		RequiredLiterals analyze(final Expression expression)
+		{
+			if (expression instanceof Literal)
+				return exactly(((Literal) expression).unescaped());
+			if (expression instanceof SingleChar)
+				return exactly(String.valueOf(((SingleChar) expression).character));
+			if (expression instanceof Sequence)
+			{
+				RequiredLiterals result = EMPTY;
+				for (final Sequenceable component : ((Sequence) expression).components)
+					result = result.followedBy(analyze(component));
+				return result;
+			}
+			if (expression instanceof Alternation)
+			{
+				final List<Alternative> alternatives = ((Alternation) expression).alternatives;
+				RequiredLiterals result = analyze(alternatives.head());
+				for (final Alternative alternative : alternatives.tail())
+					result = result.orElse(analyze(alternative));
+				return result;
+			}
+			if (expression instanceof Raw.Compound)
+			{
+				RequiredLiterals result = EMPTY;
+				for (final Raw component : ((Raw.Compound) expression).components)
+					result = result.followedBy(analyze(component));
+				return result;
+			}
+			if (expression instanceof Raw.EscapedLiteral)
+				return analyze(((Raw.EscapedLiteral) expression).literal);
+			if (expression instanceof Entity)
+				// Entities other than "any character" are zero-width assertions.
+				return expression.possiblyZeroLength() ? EMPTY : NONE;
+			if (expression instanceof Group)
+				return analyzeGroup((Group) expression);
+			if (expression instanceof Quantified)
+				return analyzeQuantified((Quantified) expression);
+			if (expression instanceof Adopted)
+				adopted = true;
+			return NONE;
+		}
+
+		@SuppressWarnings("deprecation") // Flag.COMMENTS
+		private RequiredLiterals analyzeGroup(final Group group)
+		{
+			if (group instanceof Group.Capture
+					|| group instanceof Group.NonCapturing
+					|| group instanceof Group.Independent
+					|| group instanceof Group.DisableFlags)
+				return analyze(group.nested);
+			if (group instanceof Group.EnableFlags)
+			{
+				final RequiredLiterals nested = analyze(group.nested);
+				for (final Flag flag : ((Group.EnableFlags) group).flags)
+					if (flag == Flag.CASE_INSENSITIVE || flag == Flag.UNICODE_CASE || flag == Flag.COMMENTS)
+						return NONE;
+				return nested;
+			}
+			// Look-around: constrains the surrounding text, but not in a form we track.
+			analyze(group.nested);
+			return NONE;
+		}
+
+		private RequiredLiterals analyzeQuantified(final Quantified quantified)
+		{
+			final RequiredLiterals base = analyze(quantified.base);
+			if (quantified instanceof Quantified.AnyTimes)
+				return base.repeated(0, null);
+			if (quantified instanceof Quantified.AtLeastOnce)
+				return base.repeated(1, null);
+			if (quantified instanceof Quantified.Optional)
+				return base.repeated(0, 1);
+			if (quantified instanceof Quantified.RepeatExactly)
+			{
+				final int repetitions = ((Quantified.RepeatExactly) quantified).repetitions;
+				return base.repeated(repetitions, repetitions);
+			}
+			if (quantified instanceof Quantified.RepeatRange)
+			{
+				final Quantified.RepeatRange range = (Quantified.RepeatRange) quantified;
+				return base.repeated(range.minRepetitions, range.maxRepetitions);
+			}
+			return NONE;
+		}
+	}
+}
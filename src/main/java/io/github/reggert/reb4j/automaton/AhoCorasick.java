@@ -0,0 +1,424 @@
+package io.github.reggert.reb4j.automaton;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Raw;
+import io.github.reggert.reb4j.matching.ExpressionMatcher;
+import io.github.reggert.reb4j.matching.MatchBudget;
+
+import java.util.Arrays;
+import java.util.regex.MatchResult;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Aho-Corasick matcher for alternations whose alternatives are all literals.
+ *
+ * A backtracking engine tries each alternative in turn at every position of
+ * the input; this matcher instead scans the input once through a keyword
+ * trie with failure links, independently of the number of alternatives.
+ * {@link #firstMatch(CharSequence, int)} follows the leftmost-first
+ * semantics of {@link Pattern}: the match that starts earliest wins, and
+ * among matches starting at the same position, the earliest alternative.
+ */
+public final class AhoCorasick implements ExpressionMatcher
+{
+	private static final int ROOT = 0;
+
+	public final Alternation expression;
+	private final String[] keywords;
+	private final int[] lengths;
+	private final int maximumLength;
+	private final boolean surrogateKeywords;
+	private final Pattern pattern;
+
+	// Trie, indexed by node.
+	private final int[] failure;
+	private final int[] output;
+	private final int[] dictionary;
+
+	// Goto function: open-addressed hash from (node, char) to child node.
+	private final long[] edgeKeys;
+	private final int[] edgeTargets;
+	private final int edgeShift;
+
+	private AhoCorasick(final Alternation expression, final String[] keywords)
+	{
+		this.expression = expression;
+		this.keywords = keywords;
+		this.pattern = expression.toPattern();
+		this.lengths = new int[keywords.length];
+		int maximumLength = 0;
+		boolean surrogateKeywords = false;
+		int characters = 0;
+		for (int i = 0; i < keywords.length; i++)
+		{
+			lengths[i] = keywords[i].length();
+			maximumLength = Math.max(maximumLength, lengths[i]);
+			characters += lengths[i];
+			for (int j = 0; j < lengths[i]; j++)
+				surrogateKeywords |= Character.isSurrogate(keywords[i].charAt(j));
+		}
+		this.maximumLength = maximumLength;
+		this.surrogateKeywords = surrogateKeywords;
+
+		int capacity = 16;
+		while (capacity < characters * 2)
+			capacity <<= 1;
+		this.edgeKeys = new long[capacity];
+		Arrays.fill(edgeKeys, -1L);
+		this.edgeTargets = new int[capacity];
+		this.edgeShift = 64 - Integer.numberOfTrailingZeros(capacity);
+
+		// Build the trie, recording children so that it can be traversed
+		// breadth-first.
+		final int maximumNodes = characters + 1;
+		final int[] output = new int[maximumNodes];
+		Arrays.fill(output, -1);
+		final int[] firstChild = new int[maximumNodes];
+		final int[] nextSibling = new int[maximumNodes];
+		final char[] label = new char[maximumNodes];
+		Arrays.fill(firstChild, -1);
+		int nodes = 1;
+		for (int i = 0; i < keywords.length; i++)
+		{
+			int node = ROOT;
+			for (int j = 0; j < lengths[i]; j++)
+			{
+				final char c = keywords[i].charAt(j);
+				int child = child(node, c);
+				if (child < 0)
+				{
+					child = nodes++;
+					addEdge(node, c, child);
+					label[child] = c;
+					nextSibling[child] = firstChild[node];
+					firstChild[node] = child;
+				}
+				node = child;
+			}
+			if (output[node] < 0)
+				output[node] = i;
+		}
+
+		// Compute failure and dictionary-suffix links breadth-first.
+		final int[] failure = new int[nodes];
+		final int[] dictionary = new int[nodes];
+		dictionary[ROOT] = -1;
+		final int[] queue = new int[nodes];
+		int head = 0, tail = 0;
+		for (int child = firstChild[ROOT]; child >= 0; child = nextSibling[child])
+		{
+			failure[child] = ROOT;
+			dictionary[child] = output[ROOT] >= 0 ? ROOT : -1;
+			queue[tail++] = child;
+		}
+		while (head < tail)
+		{
+			final int node = queue[head++];
+			for (int child = firstChild[node]; child >= 0; child = nextSibling[child])
+			{
+				final char c = label[child];
+				int fallback = failure[node];
+				int target;
+				while ((target = child(fallback, c)) < 0 && fallback != ROOT)
+					fallback = failure[fallback];
+				failure[child] = target >= 0 ? target : ROOT;
+				final int suffix = failure[child];
+				dictionary[child] = output[suffix] >= 0 ? suffix : dictionary[suffix];
+				queue[tail++] = child;
+			}
+		}
+		this.failure = failure;
+		this.output = Arrays.copyOf(output, nodes);
+		this.dictionary = dictionary;
+	}
+
+	/**
+	 * Indicates whether the specified expression is an alternation
+	 * consisting only of literals, and so can be compiled by
+	 * {@link #compile(Alternation)}.
+	 */
+	public static boolean isApplicable(final Expression expression)
+	{
+		if (!(expression instanceof Alternation))
+			return false;
+		for (final Alternative alternative : ((Alternation) expression).alternatives)
+			if (literalOf(alternative) == null)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Compiles an alternation of literals.
+	 *
+	 * @param alternation
+	 * 	the alternation to compile; must not be <code>null</code>.
+	 * @return a new matcher.
+	 * @throws NullPointerException
+	 * 	if <var>alternation</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if any alternative is not a literal.
+	 */
+	public static AhoCorasick compile(final Alternation alternation)
+	{
+		if (alternation == null) throw new NullPointerException("alternation");
+		final String[] keywords = new String[alternation.alternatives.length()];
+		int i = 0;
+		for (final Alternative alternative : alternation.alternatives)
+		{
+			keywords[i] = literalOf(alternative);
+			if (keywords[i] == null)
+				throw new IllegalArgumentException("Alternative is not a literal: " + alternative);
+			i++;
+		}
+		return new AhoCorasick(alternation, keywords);
+	}
+
+	private static String literalOf(final Expression expression)
+	{
+		if (expression instanceof Literal)
+			return ((Literal) expression).unescaped();
+		if (expression instanceof Raw.EscapedLiteral)
+			return ((Raw.EscapedLiteral) expression).literal.unescaped();
+		if (expression instanceof Raw.Compound)
+		{
+			final StringBuilder builder = new StringBuilder();
+			for (final Raw component : ((Raw.Compound) expression).components)
+			{
+				final String literal = literalOf(component);
+				if (literal == null)
+					return null;
+				builder.append(literal);
+			}
+			return builder.toString();
+		}
+		return null;
+	}
+
+	@Override
+	public boolean matches(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		int node = ROOT;
+		final int length = input.length();
+		for (int i = 0; i < length && node >= 0; i++)
+			node = child(node, input.charAt(i));
+		return node >= 0 && output[node] >= 0;
+	}
+
+	@Override
+	public boolean find(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		if (surrogateKeywords && containsSurrogate(input))
+			return pattern.matcher(input).find();
+		int node = ROOT;
+		if (output[node] >= 0)
+			return true;
+		final int length = input.length();
+		for (int i = 0; i < length; i++)
+		{
+			node = step(node, input.charAt(i));
+			if (output[node] >= 0 || dictionary[node] >= 0)
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public boolean matches(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return matches(budget.guard(input));
+	}
+
+	@Override
+	public boolean find(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return find(budget.guard(input));
+	}
+
+	/**
+	 * Finds the first match in the input at or after the specified position,
+	 * as {@link java.util.regex.Matcher#find(int)} would.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @param from
+	 * 	the position at which to start searching.
+	 * @return the match, or <code>null</code> if there is none.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @throws IndexOutOfBoundsException
+	 * 	if <var>from</var> is negative or greater than the length of the input.
+	 */
+	public Match firstMatch(final CharSequence input, final int from)
+	{
+		if (input == null) throw new NullPointerException("input");
+		final int length = input.length();
+		if (from < 0 || from > length)
+			throw new IndexOutOfBoundsException("from: " + from);
+		if (surrogateKeywords && containsSurrogate(input))
+			return firstPatternMatch(input, from);
+		int bestStart = Integer.MAX_VALUE;
+		int bestKeyword = -1;
+		if (output[ROOT] >= 0)
+		{
+			bestStart = from;
+			bestKeyword = output[ROOT];
+		}
+		int node = ROOT;
+		for (int i = from; i < length; i++)
+		{
+			// A keyword ending here or later cannot start at or before bestStart.
+			if ((long) i + 1 - maximumLength > bestStart)
+				break;
+			node = step(node, input.charAt(i));
+			for (int match = output[node] >= 0 ? node : dictionary[node]; match >= 0; match = dictionary[match])
+			{
+				final int keyword = output[match];
+				final int start = i + 1 - lengths[keyword];
+				if (start < bestStart || (start == bestStart && keyword < bestKeyword))
+				{
+					bestStart = start;
+					bestKeyword = keyword;
+				}
+			}
+		}
+		if (bestKeyword < 0)
+			return null;
+		return new Match(input, bestStart, bestStart + lengths[bestKeyword], bestKeyword);
+	}
+
+	private Match firstPatternMatch(final CharSequence input, final int from)
+	{
+		final Matcher matcher = pattern.matcher(input);
+		if (!matcher.find(from))
+			return null;
+		// The alternative that matched is the first one equal to the match.
+		final String matched = matcher.group();
+		int alternative = 0;
+		while (!keywords[alternative].equals(matched))
+			alternative++;
+		return new Match(input, matcher.start(), matcher.end(), alternative);
+	}
+
+	private int step(int node, final char c)
+	{
+		int target;
+		while ((target = child(node, c)) < 0 && node != ROOT)
+			node = failure[node];
+		return target >= 0 ? target : ROOT;
+	}
+
+	private static boolean containsSurrogate(final CharSequence input)
+	{
+		final int length = input.length();
+		for (int i = 0; i < length; i++)
+			if (Character.isSurrogate(input.charAt(i)))
+				return true;
+		return false;
+	}
+
+	private int slot(final long key)
+	{
+		return (int) ((key * 0x9E3779B97F4A7C15L) >>> edgeShift);
+	}
+
+	private int child(final int node, final char c)
+	{
+		final long key = ((long) node << 16) | c;
+		final int mask = edgeKeys.length - 1;
+		for (int slot = slot(key); ; slot = (slot + 1) & mask)
+		{
+			final long existing = edgeKeys[slot];
+			if (existing == key)
+				return edgeTargets[slot];
+			if (existing == -1L)
+				return -1;
+		}
+	}
+
+	private void addEdge(final int node, final char c, final int target)
+	{
+		final long key = ((long) node << 16) | c;
+		final int mask = edgeKeys.length - 1;
+		int slot = slot(key);
+		while (edgeKeys[slot] != -1L)
+			slot = (slot + 1) & mask;
+		edgeKeys[slot] = key;
+		edgeTargets[slot] = target;
+	}
+
+
+	/**
+	 * Match of one of the alternatives.
+	 */
+	public static final class Match implements MatchResult
+	{
+		private final CharSequence input;
+		private final int start;
+		private final int end;
+
+		/**
+		 * The (zero-based) position of the matched literal among the
+		 * alternatives.
+		 */
+		public final int alternative;
+
+		private Match(final CharSequence input, final int start, final int end, final int alternative)
+		{
+			this.input = input;
+			this.start = start;
+			this.end = end;
+			this.alternative = alternative;
+		}
+
+		@Override
+		public int start()
+		{return start;}
+
+		@Override
+		public int start(final int group)
+		{
+			checkGroup(group);
+			return start;
+		}
+
+		@Override
+		public int end()
+		{return end;}
+
+		@Override
+		public int end(final int group)
+		{
+			checkGroup(group);
+			return end;
+		}
+
+		@Override
+		public String group()
+		{return input.subSequence(start, end).toString();}
+
+		@Override
+		public String group(final int group)
+		{
+			checkGroup(group);
+			return group();
+		}
+
+		@Override
+		public int groupCount()
+		{return 0;}
+
+		private static void checkGroup(final int group)
+		{
+			if (group != 0)
+				throw new IndexOutOfBoundsException("No group " + group);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package io.github.reggert.reb4j.automaton;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.matching.ExpressionMatcher;
+import io.github.reggert.reb4j.matching.MatchBudget;
+
+import java.util.regex.Pattern;
+
+/**
+ * Matcher that runs an expression as a deterministic finite automaton,
+ * guaranteeing time linear in the length of the input.
+ *
+ * The expression tree is compiled directly to a Thompson NFA, from which
+ * a DFA is constructed lazily as input is matched. Only the regular subset
+ * of expressions is supported: literals, character classes, the "any
+ * character" entity, sequences, alternations, capturing and non-capturing
+ * groups, and greedy or reluctant quantifiers. (Captures are irrelevant
+ * to {@link #matches(CharSequence)} and {@link #find(CharSequence)}, and
+ * reluctance does not change the set of strings matched.) Expressions that
+ * use anything else, as well as input containing surrogate characters,
+ * are handed to the {@link Pattern} compiled from the expression instead.
+ */
+public final class Automaton implements ExpressionMatcher
+{
+	public final Expression expression;
+	private final Pattern pattern;
+	private final Dfa anchored;
+	private final Dfa unanchored;
+
+	private Automaton(final Expression expression, final Nfa nfa)
+	{
+		this.expression = expression;
+		this.pattern = expression.toPattern();
+		this.anchored = nfa == null ? null : new Dfa(nfa, false);
+		this.unanchored = nfa == null ? null : new Dfa(nfa, true);
+	}
+
+	/**
+	 * Compiles the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to compile; must not be <code>null</code>.
+	 * @return a new automaton.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static Automaton compile(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		return new Automaton(expression, Nfa.compile(expression));
+	}
+
+	/**
+	 * Indicates whether the expression could be compiled to an automaton.
+	 * If not, all matching is delegated to {@link Pattern}.
+	 */
+	public boolean isDeterministic()
+	{return anchored != null;}
+
+	@Override
+	public boolean matches(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		if (anchored != null)
+		{
+			final int result = anchored.run(input, false);
+			if (result != Dfa.UNSUPPORTED)
+				return result == Dfa.MATCH;
+		}
+		return pattern.matcher(input).matches();
+	}
+
+	@Override
+	public boolean find(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		if (unanchored != null)
+		{
+			final int result = unanchored.run(input, true);
+			if (result != Dfa.UNSUPPORTED)
+				return result == Dfa.MATCH;
+		}
+		return pattern.matcher(input).find();
+	}
+
+	@Override
+	public boolean matches(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return matches(budget.guard(input));
+	}
+
+	@Override
+	public boolean find(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return find(budget.guard(input));
+	}
+}
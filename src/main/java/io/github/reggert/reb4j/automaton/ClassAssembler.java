@@ -0,0 +1,396 @@
+package io.github.reggert.reb4j.automaton;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Minimal writer of JVM class files, sufficient for the matchers generated
+ * by {@link CompiledAutomaton}.
+ *
+ * Classes are written in the Java 5 class file format, which the JVM
+ * verifies by type inference, so that no stack map frames need to be
+ * computed. Only the instructions that the generated code uses are
+ * provided, and branch offsets are limited to 16 bits; methods whose code
+ * would be too long to branch across are rejected with
+ * {@link CodeTooLargeException}.
+ */
+final class ClassAssembler
+{
+	static final int ACC_PUBLIC = 0x0001;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+
+	private static final int MAJOR_VERSION = 49;
+
+	private static final byte UTF8 = 1;
+	private static final byte INTEGER = 3;
+	private static final byte CLASS = 7;
+	private static final byte STRING = 8;
+	private static final byte METHOD_REF = 10;
+	private static final byte INTERFACE_METHOD_REF = 11;
+	private static final byte NAME_AND_TYPE = 12;
+
+	private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+	private final DataOutputStream pool = new DataOutputStream(poolBytes);
+	private final HashMap<String, Integer> constants = new HashMap<String, Integer>();
+	private int poolSize = 1;
+	private final ArrayList<Code> methods = new ArrayList<Code>();
+
+	/**
+	 * Thrown when a method's code exceeds what 16-bit branch offsets can
+	 * span.
+	 */
+	static final class CodeTooLargeException extends Exception
+	{
+		private static final long serialVersionUID = 1L;
+	}
+
+	int utf8(final String value)
+	{
+		final String key = "U" + value;
+		final Integer existing = constants.get(key);
+		if (existing != null)
+			return existing.intValue();
+		try
+		{
+			pool.writeByte(UTF8);
+			pool.writeUTF(value);
+		}
+		catch (final IOException e)
+		{
+			throw new AssertionError(e);
+		}
+		return add(key, 1);
+	}
+
+	int integer(final int value)
+	{
+		final String key = "I" + value;
+		final Integer existing = constants.get(key);
+		if (existing != null)
+			return existing.intValue();
+		write(INTEGER);
+		writeInt(value);
+		return add(key, 1);
+	}
+
+	int classRef(final String internalName)
+	{return reference(CLASS, utf8(internalName));}
+
+	int string(final String value)
+	{return reference(STRING, utf8(value));}
+
+	int methodRef(final String owner, final String name, final String descriptor)
+	{return reference(METHOD_REF, classRef(owner), nameAndType(name, descriptor));}
+
+	int interfaceMethodRef(final String owner, final String name, final String descriptor)
+	{return reference(INTERFACE_METHOD_REF, classRef(owner), nameAndType(name, descriptor));}
+
+	private int nameAndType(final String name, final String descriptor)
+	{return reference(NAME_AND_TYPE, utf8(name), utf8(descriptor));}
+
+	private int reference(final byte tag, final int... indices)
+	{
+		final String key = tag + Arrays.toString(indices);
+		final Integer existing = constants.get(key);
+		if (existing != null)
+			return existing.intValue();
+		write(tag);
+		for (final int index : indices)
+			writeShort(index);
+		return add(key, 1);
+	}
+
+	private int add(final String key, final int slots)
+	{
+		final int index = poolSize;
+		poolSize += slots;
+		constants.put(key, index);
+		return index;
+	}
+
+	private void write(final byte b)
+	{poolBytes.write(b);}
+
+	private void writeShort(final int value)
+	{
+		poolBytes.write(value >>> 8);
+		poolBytes.write(value);
+	}
+
+	private void writeInt(final int value)
+	{
+		writeShort(value >>> 16);
+		writeShort(value & 0xffff);
+	}
+
+	/**
+	 * Starts a method, whose code is to be written to the returned buffer.
+	 */
+	Code method(final int access, final String name, final String descriptor, final int maxStack, final int maxLocals)
+	{
+		final Code code = new Code(access, utf8(name), utf8(descriptor), maxStack, maxLocals);
+		methods.add(code);
+		return code;
+	}
+
+	/**
+	 * Writes the class file.
+	 */
+	byte[] toByteArray(final int access, final String name, final String superName)
+		throws CodeTooLargeException
+	{
+		final int thisIndex = classRef(name);
+		final int superIndex = classRef(superName);
+		final int codeIndex = utf8("Code");
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream out = new DataOutputStream(bytes);
+		try
+		{
+			out.writeInt(0xCAFEBABE);
+			out.writeShort(0);
+			out.writeShort(MAJOR_VERSION);
+			out.writeShort(poolSize);
+			poolBytes.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisIndex);
+			out.writeShort(superIndex);
+			out.writeShort(0); // interfaces
+			out.writeShort(0); // fields
+			out.writeShort(methods.size());
+			for (final Code code : methods)
+				code.writeTo(out, codeIndex);
+			out.writeShort(0); // attributes
+		}
+		catch (final IOException e)
+		{
+			throw new AssertionError(e);
+		}
+		return bytes.toByteArray();
+	}
+
+
+	/**
+	 * Position in a method's code, which may be referred to before it is
+	 * placed.
+	 */
+	static final class Label
+	{
+		int position = -1;
+	}
+
+
+	/**
+	 * The code of a method being assembled.
+	 */
+	static final class Code
+	{
+		static final int ICONST_0 = 0x03;
+		static final int LDC_W = 0x13;
+		static final int ILOAD = 0x15;
+		static final int ALOAD = 0x19;
+		static final int ISTORE = 0x36;
+		static final int DUP = 0x59;
+		static final int IINC = 0x84;
+		static final int IF_ICMPLT = 0xa1;
+		static final int IF_ICMPGE = 0xa2;
+		static final int IF_ICMPGT = 0xa3;
+		static final int GOTO = 0xa7;
+		static final int TABLESWITCH = 0xaa;
+		static final int IRETURN = 0xac;
+		static final int RETURN = 0xb1;
+		static final int INVOKEVIRTUAL = 0xb6;
+		static final int INVOKESPECIAL = 0xb7;
+		static final int INVOKEINTERFACE = 0xb9;
+		static final int NEW = 0xbb;
+		static final int ATHROW = 0xbf;
+		static final int IFNONNULL = 0xc7;
+
+		private final int access;
+		private final int name;
+		private final int descriptor;
+		private final int maxStack;
+		private final int maxLocals;
+		private byte[] code = new byte[256];
+		private int length = 0;
+		// Pairs of (instruction position, offset position) awaiting labels.
+		private final ArrayList<int[]> fixups = new ArrayList<int[]>();
+		private final ArrayList<Label> targets = new ArrayList<Label>();
+
+		private Code(final int access, final int name, final int descriptor, final int maxStack, final int maxLocals)
+		{
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		private void put(final int b)
+		{
+			if (length == code.length)
+				code = Arrays.copyOf(code, length * 2);
+			code[length++] = (byte) b;
+		}
+
+		private void putShort(final int value)
+		{
+			put(value >>> 8);
+			put(value);
+		}
+
+		private void putInt(final int value)
+		{
+			putShort(value >>> 16);
+			putShort(value & 0xffff);
+		}
+
+		Code op(final int opcode)
+		{
+			put(opcode);
+			return this;
+		}
+
+		/**
+		 * Instructions taking a constant pool index: ldc_w, new,
+		 * invokevirtual and invokespecial.
+		 */
+		Code op(final int opcode, final int index)
+		{
+			put(opcode);
+			putShort(index);
+			return this;
+		}
+
+		Code invokeInterface(final int index, final int argumentSlots)
+		{
+			put(INVOKEINTERFACE);
+			putShort(index);
+			put(argumentSlots + 1);
+			put(0);
+			return this;
+		}
+
+		Code local(final int opcode, final int slot)
+		{
+			put(opcode);
+			put(slot);
+			return this;
+		}
+
+		Code increment(final int slot, final int amount)
+		{
+			put(IINC);
+			put(slot);
+			put(amount);
+			return this;
+		}
+
+		/**
+		 * Pushes an int constant, using the shortest instruction.
+		 */
+		Code push(final int value, final ClassAssembler assembler)
+		{
+			if (value >= -1 && value <= 5)
+				put(ICONST_0 + value);
+			else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE)
+			{
+				put(0x10); // bipush
+				put(value);
+			}
+			else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE)
+			{
+				put(0x11); // sipush
+				putShort(value);
+			}
+			else
+				op(LDC_W, assembler.integer(value));
+			return this;
+		}
+
+		Code jump(final int opcode, final Label label)
+		{
+			fixups.add(new int[] {length, length + 1});
+			targets.add(label);
+			put(opcode);
+			putShort(0);
+			return this;
+		}
+
+		Code place(final Label label)
+		{
+			label.position = length;
+			return this;
+		}
+
+		/**
+		 * Jumps to the label for the value on the stack, from
+		 * <var>low</var> upwards, or to the default label.
+		 */
+		Code tableSwitch(final int low, final Label fallback, final Label[] cases)
+		{
+			final int position = length;
+			put(TABLESWITCH);
+			while (length % 4 != 0)
+				put(0);
+			final int[] slots = new int[cases.length + 1];
+			slots[0] = length;
+			putInt(0);
+			putInt(low);
+			putInt(low + cases.length - 1);
+			for (int i = 0; i < cases.length; i++)
+			{
+				slots[i + 1] = length;
+				putInt(0);
+			}
+			fixups.add(new int[] {position, slots[0], 4});
+			targets.add(fallback);
+			for (int i = 0; i < cases.length; i++)
+			{
+				fixups.add(new int[] {position, slots[i + 1], 4});
+				targets.add(cases[i]);
+			}
+			return this;
+		}
+
+		private void writeTo(final DataOutputStream out, final int codeIndex)
+			throws IOException, CodeTooLargeException
+		{
+			if (length > Short.MAX_VALUE)
+				throw new CodeTooLargeException();
+			for (int i = 0; i < fixups.size(); i++)
+			{
+				final int[] fixup = fixups.get(i);
+				final int offset = targets.get(i).position - fixup[0];
+				if (fixup.length == 3)
+				{
+					code[fixup[1]] = (byte) (offset >>> 24);
+					code[fixup[1] + 1] = (byte) (offset >>> 16);
+					code[fixup[1] + 2] = (byte) (offset >>> 8);
+					code[fixup[1] + 3] = (byte) offset;
+				}
+				else
+				{
+					code[fixup[1]] = (byte) (offset >>> 8);
+					code[fixup[1] + 1] = (byte) offset;
+				}
+			}
+			out.writeShort(access);
+			out.writeShort(name);
+			out.writeShort(descriptor);
+			out.writeShort(1);
+			out.writeShort(codeIndex);
+			out.writeInt(12 + length);
+			out.writeShort(maxStack);
+			out.writeShort(maxLocals);
+			out.writeInt(length);
+			out.write(code, 0, length);
+			out.writeShort(0); // exception table
+			out.writeShort(0); // attributes
+		}
+	}
+}
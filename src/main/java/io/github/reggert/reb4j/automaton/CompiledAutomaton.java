@@ -0,0 +1,497 @@
+package io.github.reggert.reb4j.automaton;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.charclass.CodePointSet;
+import io.github.reggert.reb4j.matching.ExpressionMatcher;
+import io.github.reggert.reb4j.matching.MatchBudget;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Matcher that runs an expression as a deterministic finite automaton
+ * compiled to JVM bytecode.
+ *
+ * Where {@link Automaton} builds its DFA lazily and looks up each
+ * transition in a cache, this class builds the whole DFA up front and
+ * generates a class in which every state is a block of code: the block
+ * reads a character, selects the next state by a binary search over
+ * constant character ranges, and jumps straight to that state's block.
+ * Character class tests are thus inlined, and a state that loops on
+ * itself becomes a tight loop that the JIT compiler can optimize like
+ * hand-written code.
+ *
+ * The generated class is defined as a hidden class where the runtime
+ * supports them (Java 15 and later), so that it can be unloaded along with
+ * the matcher, and otherwise by a class loader of its own.
+ *
+ * The same subset of expressions is supported as by {@link Automaton}.
+ * Expressions outside of it, and expressions whose DFA has more than
+ * {@link #MAX_STATES} states or would need too much code, are matched by
+ * an {@link Automaton} instead, as indicated by {@link #isCompiled()}.
+ * Input containing surrogate characters is handed to the {@link Pattern}
+ * compiled from the expression.
+ */
+public abstract class CompiledAutomaton implements ExpressionMatcher
+{
+	/**
+	 * The maximum number of DFA states compiled for each of
+	 * {@link #matches(CharSequence)} and {@link #find(CharSequence)}.
+	 */
+	public static final int MAX_STATES = 1000;
+
+	private static final String NAME = "io/github/reggert/reb4j/automaton/CompiledAutomaton$Generated";
+	private static final String SUPER_NAME = "io/github/reggert/reb4j/automaton/CompiledAutomaton";
+	private static final String CHAR_SEQUENCE = "java/lang/CharSequence";
+	private static final String MATCH_DESCRIPTOR = "(Ljava/lang/CharSequence;)Z";
+
+	// Targets other than states: no match is possible, or the character is
+	// a surrogate.
+	private static final int DEAD = -1;
+	private static final int FALLBACK = -2;
+
+	// Local variable slots of the generated methods.
+	private static final int INPUT = 1;
+	private static final int LENGTH = 2;
+	private static final int INDEX = 3;
+	private static final int CHARACTER = 4;
+
+	private static final Method DEFINE_HIDDEN_CLASS;
+	private static final Object NO_OPTIONS;
+	static
+	{
+		Method method = null;
+		Object options = null;
+		try
+		{
+			final Class<?> option = Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			options = Array.newInstance(option, 0);
+			method = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+		}
+		catch (final ClassNotFoundException e)
+		{
+			// Hidden classes are not supported by this runtime.
+		}
+		catch (final NoSuchMethodException e)
+		{
+			// Hidden classes are not supported by this runtime.
+		}
+		DEFINE_HIDDEN_CLASS = method;
+		NO_OPTIONS = options;
+	}
+
+	public final Expression expression;
+	private final Pattern pattern;
+
+	/**
+	 * Constructor for generated subclasses.
+	 */
+	protected CompiledAutomaton(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		this.expression = expression;
+		this.pattern = expression.toPattern();
+	}
+
+	/**
+	 * Compiles the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to compile; must not be <code>null</code>.
+	 * @return a new matcher.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static CompiledAutomaton compile(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final Nfa nfa = Nfa.compile(expression);
+		final Table anchored = nfa == null ? null : Table.build(nfa, false);
+		final Table unanchored = anchored == null ? null : Table.build(nfa, true);
+		if (unanchored == null)
+			return new Interpreted(expression);
+		final byte[] bytes;
+		try
+		{
+			bytes = generate(anchored, unanchored);
+		}
+		catch (final ClassAssembler.CodeTooLargeException e)
+		{
+			return new Interpreted(expression);
+		}
+		try
+		{
+			return define(bytes).getConstructor(Expression.class).newInstance(expression);
+		}
+		catch (final ReflectiveOperationException e)
+		{
+			throw new IllegalStateException("Failed to load generated matcher", e);
+		}
+	}
+
+	/**
+	 * Indicates whether the expression was compiled to bytecode. If not,
+	 * all matching is delegated to an {@link Automaton}.
+	 */
+	public boolean isCompiled()
+	{return true;}
+
+	/**
+	 * Matches the whole input with the {@link Pattern} compiled from the
+	 * expression, for input that the generated code does not support.
+	 */
+	protected final boolean matchesWithPattern(final CharSequence input)
+	{return pattern.matcher(input).matches();}
+
+	/**
+	 * Searches the input with the {@link Pattern} compiled from the
+	 * expression, for input that the generated code does not support.
+	 */
+	protected final boolean findWithPattern(final CharSequence input)
+	{return pattern.matcher(input).find();}
+
+	@Override
+	public final boolean matches(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return matches(budget.guard(input));
+	}
+
+	@Override
+	public final boolean find(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return find(budget.guard(input));
+	}
+
+	private static Class<? extends CompiledAutomaton> define(final byte[] bytes)
+		throws ReflectiveOperationException
+	{
+		if (DEFINE_HIDDEN_CLASS != null)
+		{
+			final MethodHandles.Lookup lookup =
+				(MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(MethodHandles.lookup(), bytes, true, NO_OPTIONS);
+			return lookup.lookupClass().asSubclass(CompiledAutomaton.class);
+		}
+		return new Loader().define(bytes);
+	}
+
+	/*
+	 * Generates a subclass with a constructor taking the expression, and
+	 * implementations of matches(CharSequence) and find(CharSequence).
+	 */
+	private static byte[] generate(final Table anchored, final Table unanchored)
+		throws ClassAssembler.CodeTooLargeException
+	{
+		final ClassAssembler assembler = new ClassAssembler();
+		final String descriptor = "(Lio/github/reggert/reb4j/Expression;)V";
+		assembler.method(ClassAssembler.ACC_PUBLIC, "<init>", descriptor, 2, 2)
+			.local(ClassAssembler.Code.ALOAD, 0)
+			.local(ClassAssembler.Code.ALOAD, INPUT)
+			.op(ClassAssembler.Code.INVOKESPECIAL, assembler.methodRef(SUPER_NAME, "<init>", descriptor))
+			.op(ClassAssembler.Code.RETURN);
+		generate(assembler, "matches", "matchesWithPattern", anchored, false);
+		generate(assembler, "find", "findWithPattern", unanchored, true);
+		return assembler.toByteArray(
+				ClassAssembler.ACC_PUBLIC | ClassAssembler.ACC_FINAL | ClassAssembler.ACC_SUPER,
+				NAME,
+				SUPER_NAME
+			);
+	}
+
+	private static void generate(
+			final ClassAssembler assembler,
+			final String name,
+			final String fallbackName,
+			final Table table,
+			final boolean stopOnAccept
+		)
+	{
+		final ClassAssembler.Code code = assembler.method(ClassAssembler.ACC_PUBLIC, name, MATCH_DESCRIPTOR, 3, 5);
+		final int size = table.size();
+		final ClassAssembler.Label[] states = new ClassAssembler.Label[size];
+		for (int i = 0; i < size; i++)
+			states[i] = new ClassAssembler.Label();
+		final ClassAssembler.Label[] ends = {new ClassAssembler.Label(), new ClassAssembler.Label()};
+		final ClassAssembler.Label fallback = new ClassAssembler.Label();
+		final ClassAssembler.Label start = new ClassAssembler.Label();
+
+		// if (input == null) throw new NullPointerException("input");
+		final String exception = "java/lang/NullPointerException";
+		code.local(ClassAssembler.Code.ALOAD, INPUT)
+			.jump(ClassAssembler.Code.IFNONNULL, start)
+			.op(ClassAssembler.Code.NEW, assembler.classRef(exception))
+			.op(ClassAssembler.Code.DUP)
+			.op(ClassAssembler.Code.LDC_W, assembler.string("input"))
+			.op(ClassAssembler.Code.INVOKESPECIAL, assembler.methodRef(exception, "<init>", "(Ljava/lang/String;)V"))
+			.op(ClassAssembler.Code.ATHROW)
+			.place(start)
+			.local(ClassAssembler.Code.ALOAD, INPUT)
+			.invokeInterface(assembler.interfaceMethodRef(CHAR_SEQUENCE, "length", "()I"), 0)
+			.local(ClassAssembler.Code.ISTORE, LENGTH)
+			.push(0, assembler)
+			.local(ClassAssembler.Code.ISTORE, INDEX);
+		if (stopOnAccept && table.accepting[0])
+			code.push(1, assembler).op(ClassAssembler.Code.IRETURN);
+
+		final int charAt = assembler.interfaceMethodRef(CHAR_SEQUENCE, "charAt", "(I)C");
+		for (int state = 0; state < size; state++)
+		{
+			// Accepting states are only reached when the whole input must
+			// be consumed.
+			final ClassAssembler.Label end = ends[table.accepting[state] ? 1 : 0];
+			code.place(states[state])
+				.local(ClassAssembler.Code.ILOAD, INDEX)
+				.local(ClassAssembler.Code.ILOAD, LENGTH)
+				.jump(ClassAssembler.Code.IF_ICMPGE, end)
+				.local(ClassAssembler.Code.ALOAD, INPUT)
+				.local(ClassAssembler.Code.ILOAD, INDEX)
+				.invokeInterface(charAt, 1)
+				.local(ClassAssembler.Code.ISTORE, CHARACTER)
+				.increment(INDEX, 1);
+			branch(assembler, code, table, state, 0, table.starts[state].length - 1, states, fallback, stopOnAccept);
+		}
+		code.place(ends[0]).push(0, assembler).op(ClassAssembler.Code.IRETURN)
+			.place(ends[1]).push(1, assembler).op(ClassAssembler.Code.IRETURN)
+			.place(fallback)
+			.local(ClassAssembler.Code.ALOAD, 0)
+			.local(ClassAssembler.Code.ALOAD, INPUT)
+			.op(ClassAssembler.Code.INVOKEVIRTUAL, assembler.methodRef(SUPER_NAME, fallbackName, MATCH_DESCRIPTOR))
+			.op(ClassAssembler.Code.IRETURN);
+	}
+
+	/*
+	 * Emits a binary search of the ranges from first to last (inclusive) of
+	 * a state's transitions, for the character in its local variable.
+	 */
+	private static void branch(
+			final ClassAssembler assembler,
+			final ClassAssembler.Code code,
+			final Table table,
+			final int state,
+			final int first,
+			final int last,
+			final ClassAssembler.Label[] states,
+			final ClassAssembler.Label fallback,
+			final boolean stopOnAccept
+		)
+	{
+		if (first == last)
+		{
+			final int target = table.targets[state][first];
+			if (target == DEAD)
+				code.push(0, assembler).op(ClassAssembler.Code.IRETURN);
+			else if (target == FALLBACK)
+				code.jump(ClassAssembler.Code.GOTO, fallback);
+			else if (stopOnAccept && table.accepting[target])
+				code.push(1, assembler).op(ClassAssembler.Code.IRETURN);
+			else
+				code.jump(ClassAssembler.Code.GOTO, states[target]);
+			return;
+		}
+		final int middle = (first + last + 1) >>> 1;
+		final ClassAssembler.Label below = new ClassAssembler.Label();
+		code.local(ClassAssembler.Code.ILOAD, CHARACTER)
+			.push(table.starts[state][middle], assembler)
+			.jump(ClassAssembler.Code.IF_ICMPLT, below);
+		branch(assembler, code, table, state, middle, last, states, fallback, stopOnAccept);
+		code.place(below);
+		branch(assembler, code, table, state, first, middle - 1, states, fallback, stopOnAccept);
+	}
+
+
+	/**
+	 * Fully constructed DFA, in which each state's transitions are a list
+	 * of character ranges, given by their first characters, and the states
+	 * that they lead to.
+	 */
+	private static final class Table
+	{
+		final ArrayList<int[]> nfaStates = new ArrayList<int[]>();
+		final HashMap<Dfa.Key, Integer> indices = new HashMap<Dfa.Key, Integer>();
+		int[][] starts;
+		int[][] targets;
+		boolean[] accepting;
+
+		int size()
+		{return nfaStates.size();}
+
+		/**
+		 * Constructs the DFA, or returns <code>null</code> if it has too
+		 * many states. Transitions out of accepting states are left out of
+		 * an unanchored DFA, which only needs to reach one.
+		 */
+		static Table build(final Nfa nfa, final boolean unanchored)
+		{
+			final Table table = new Table();
+			final Dfa.Closure initial = new Dfa.Closure(nfa.size());
+			initial.add(nfa, nfa.start);
+			table.index(initial.toArray());
+			final ArrayList<int[]> starts = new ArrayList<int[]>();
+			final ArrayList<int[]> targets = new ArrayList<int[]>();
+			final ArrayList<Boolean> accepting = new ArrayList<Boolean>();
+			for (int state = 0; state < table.size(); state++)
+			{
+				if (table.size() > MAX_STATES)
+					return null;
+				final int[] members = table.nfaStates.get(state);
+				boolean accepts = false;
+				for (final int member : members)
+					accepts |= nfa.kinds[member] == Nfa.ACCEPT;
+				accepting.add(accepts);
+				if (unanchored && accepts)
+				{
+					starts.add(new int[] {0});
+					targets.add(new int[] {DEAD});
+					continue;
+				}
+				final int[] bounds = boundaries(nfa, members);
+				final int[] rangeStarts = new int[bounds.length - 1];
+				final int[] rangeTargets = new int[bounds.length - 1];
+				int ranges = 0;
+				for (int i = 0; i < bounds.length - 1; i++)
+				{
+					final int target;
+					if (bounds[i] == Character.MIN_SURROGATE)
+						target = FALLBACK;
+					else
+					{
+						final char c = (char) bounds[i];
+						final Dfa.Closure closure = new Dfa.Closure(nfa.size());
+						for (final int member : members)
+							if (nfa.consumes(member, c))
+								closure.add(nfa, nfa.next[member]);
+						if (unanchored)
+							closure.add(nfa, nfa.start);
+						final int[] next = closure.toArray();
+						target = next.length == 0 ? DEAD : table.index(next);
+					}
+					if (ranges == 0 || rangeTargets[ranges - 1] != target)
+					{
+						rangeStarts[ranges] = bounds[i];
+						rangeTargets[ranges++] = target;
+					}
+				}
+				starts.add(Arrays.copyOf(rangeStarts, ranges));
+				targets.add(Arrays.copyOf(rangeTargets, ranges));
+			}
+			table.starts = starts.toArray(new int[starts.size()][]);
+			table.targets = targets.toArray(new int[targets.size()][]);
+			table.accepting = new boolean[accepting.size()];
+			for (int i = 0; i < table.accepting.length; i++)
+				table.accepting[i] = accepting.get(i);
+			return table;
+		}
+
+		private int index(final int[] set)
+		{
+			final Dfa.Key key = new Dfa.Key(set);
+			final Integer existing = indices.get(key);
+			if (existing != null)
+				return existing;
+			final int index = nfaStates.size();
+			nfaStates.add(set);
+			indices.put(key, index);
+			return index;
+		}
+
+		/*
+		 * Returns the sorted, distinct characters at which the outcome of
+		 * any of the states' tests may change, delimiting the surrogates and
+		 * ending with 0x10000.
+		 */
+		private static int[] boundaries(final Nfa nfa, final int[] members)
+		{
+			int[] bounds = new int[16];
+			int count = 0;
+			bounds[count++] = 0;
+			bounds[count++] = Character.MIN_SURROGATE;
+			bounds[count++] = Character.MAX_SURROGATE + 1;
+			bounds[count++] = Character.MAX_VALUE + 1;
+			for (final int member : members)
+				switch (nfa.kinds[member])
+				{
+					case Nfa.CHAR:
+						bounds = ensure(bounds, count + 2);
+						bounds[count++] = nfa.chars[member];
+						bounds[count++] = nfa.chars[member] + 1;
+						break;
+					case Nfa.CLASS:
+						final CodePointSet codePoints = nfa.classes[member].codePoints();
+						for (int i = 0; i < codePoints.rangeCount() && codePoints.first(i) <= Character.MAX_VALUE; i++)
+						{
+							bounds = ensure(bounds, count + 2);
+							bounds[count++] = codePoints.first(i);
+							bounds[count++] = Math.min(codePoints.last(i), Character.MAX_VALUE) + 1;
+						}
+						break;
+					case Nfa.ANY:
+						final char[] terminators = {'\n', '\r', '\u0085', '\u2028', '\u2029'};
+						bounds = ensure(bounds, count + 2 * terminators.length);
+						for (final char c : terminators)
+						{
+							bounds[count++] = c;
+							bounds[count++] = c + 1;
+						}
+						break;
+					default:
+						break;
+				}
+			Arrays.sort(bounds, 0, count);
+			int distinct = 0;
+			for (int i = 0; i < count; i++)
+				if (distinct == 0 || bounds[distinct - 1] != bounds[i])
+					bounds[distinct++] = bounds[i];
+			return Arrays.copyOf(bounds, distinct);
+		}
+
+		private static int[] ensure(final int[] array, final int length)
+		{return array.length >= length ? array : Arrays.copyOf(array, Math.max(length, array.length * 2));}
+	}
+
+
+	/**
+	 * Loader of a single generated class, for runtimes without hidden
+	 * classes.
+	 */
+	private static final class Loader extends ClassLoader
+	{
+		Loader()
+		{super(CompiledAutomaton.class.getClassLoader());}
+
+		Class<? extends CompiledAutomaton> define(final byte[] bytes)
+		{return defineClass(NAME.replace('/', '.'), bytes, 0, bytes.length).asSubclass(CompiledAutomaton.class);}
+	}
+
+
+	/**
+	 * Matcher for expressions that could not be compiled.
+	 */
+	private static final class Interpreted extends CompiledAutomaton
+	{
+		private final Automaton automaton;
+
+		Interpreted(final Expression expression)
+		{
+			super(expression);
+			this.automaton = Automaton.compile(expression);
+		}
+
+		@Override
+		public boolean isCompiled()
+		{return false;}
+
+		@Override
+		public boolean matches(final CharSequence input)
+		{return automaton.matches(input);}
+
+		@Override
+		public boolean find(final CharSequence input)
+		{return automaton.find(input);}
+	}
+}
@@ -0,0 +1,294 @@
+package io.github.reggert.reb4j.automaton;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * DFA constructed lazily from an {@link Nfa} by the subset construction.
+ *
+ * Each DFA state is the epsilon-closed set of NFA states that are live after
+ * reading some prefix of the input. Transitions are computed the first time
+ * they are needed and cached, so each input character costs at most one
+ * cache lookup once the automaton is warm, and at most one pass over the NFA
+ * otherwise. Once {@link #MAX_STATES} states exist, new states are no longer
+ * cached, nor are transitions into them, so that the memory held by the
+ * automaton stays bounded; matching then proceeds as a plain NFA
+ * simulation, which is slower but still linear in the length of the input.
+ *
+ * An unanchored DFA re-enters the NFA's start state after every character,
+ * which makes it recognize input containing a match anywhere.
+ *
+ * Each state also records the labels of the accepting NFA states that it
+ * contains, so that an automaton built from several expressions can report
+ * which of them matched.
+ *
+ * Instances are thread-safe.
+ */
+final class Dfa
+{
+	static final int MATCH = 1;
+	static final int NO_MATCH = 0;
+	/**
+	 * Result indicating that the input contained a surrogate character
+	 * before the outcome was decided.
+	 */
+	static final int UNSUPPORTED = -1;
+
+	/*
+	 * Arbitrary limit on the number of cached states per automaton.
+	 */
+	static final int MAX_STATES = 10000;
+
+	private final Nfa nfa;
+	private final boolean unanchored;
+	private final ConcurrentMap<Key, State> states = new ConcurrentHashMap<Key, State>();
+	final State initial;
+
+	Dfa(final Nfa nfa, final boolean unanchored)
+	{
+		this.nfa = nfa;
+		this.unanchored = unanchored;
+		final Closure closure = new Closure(nfa.size());
+		closure.add(nfa, nfa.start);
+		this.initial = state(closure.toArray());
+	}
+
+	/**
+	 * Runs the automaton over the input.
+	 *
+	 * @param stopOnAccept
+	 * 	whether to report a match as soon as an accepting state is reached,
+	 * 	rather than requiring the whole input to be consumed.
+	 * @return {@link #MATCH}, {@link #NO_MATCH} or {@link #UNSUPPORTED}.
+	 */
+	int run(final CharSequence input, final boolean stopOnAccept)
+	{
+		State state = initial;
+		if (stopOnAccept && state.accepting)
+			return MATCH;
+		final int length = input.length();
+		for (int i = 0; i < length; i++)
+		{
+			final char c = input.charAt(i);
+			if (Character.isSurrogate(c))
+				return UNSUPPORTED;
+			state = step(state, c);
+			if (state.dead)
+				return NO_MATCH;
+			if (stopOnAccept && state.accepting)
+				return MATCH;
+		}
+		return state.accepting ? MATCH : NO_MATCH;
+	}
+
+	/**
+	 * Runs the automaton over the input, recording the label of every
+	 * accepting NFA state that is reached.
+	 *
+	 * @param wholeInput
+	 * 	whether only the states reached at the end of the input count,
+	 * 	rather than every state along the way.
+	 * @param matched
+	 * 	receives the labels reached; labels already set are kept.
+	 * @param remaining
+	 * 	the number of labels not yet set, at which scanning can stop once
+	 * 	it reaches zero.
+	 * @return {@link #MATCH} if any label was reached, {@link #NO_MATCH},
+	 * 	or {@link #UNSUPPORTED}, in which case <var>matched</var> may
+	 * 	have been partially updated.
+	 */
+	int collect(final CharSequence input, final boolean wholeInput, final BitSet matched, int remaining)
+	{
+		final int before = remaining;
+		State state = initial;
+		if (!wholeInput)
+			remaining = collect(state, matched, remaining);
+		final int length = input.length();
+		for (int i = 0; i < length && remaining > 0; i++)
+		{
+			final char c = input.charAt(i);
+			if (Character.isSurrogate(c))
+				return UNSUPPORTED;
+			state = step(state, c);
+			if (state.dead)
+				break;
+			if (!wholeInput && state.accepting)
+				remaining = collect(state, matched, remaining);
+		}
+		if (wholeInput && !state.dead)
+			remaining = collect(state, matched, remaining);
+		return remaining < before ? MATCH : NO_MATCH;
+	}
+
+	private static int collect(final State state, final BitSet matched, int remaining)
+	{
+		for (final int label : state.labels)
+			if (!matched.get(label))
+			{
+				matched.set(label);
+				remaining--;
+			}
+		return remaining;
+	}
+
+	private State step(final State from, final char c)
+	{
+		final State cached = from.transition(c);
+		if (cached != null)
+			return cached;
+		final Closure closure = new Closure(nfa.size());
+		for (final int nfaState : from.nfaStates)
+			if (nfa.consumes(nfaState, c))
+				closure.add(nfa, nfa.next[nfaState]);
+		if (unanchored)
+			closure.add(nfa, nfa.start);
+		final State to = state(closure.toArray());
+		// An uncached state must not be kept reachable from a cached one,
+		// or it would retain its own transitions, and so on indefinitely.
+		if (to.cached)
+			from.cache(c, to);
+		return to;
+	}
+
+	private State state(final int[] nfaStates)
+	{
+		final Key key = new Key(nfaStates);
+		final State existing = states.get(key);
+		if (existing != null)
+			return existing;
+		if (states.size() >= MAX_STATES)
+			return new State(nfaStates, nfa, false);
+		final State created = new State(nfaStates, nfa, true);
+		final State raced = states.putIfAbsent(key, created);
+		return raced != null ? raced : created;
+	}
+
+
+	static final class State
+	{
+		final int[] nfaStates;
+		final int[] labels;
+		final boolean accepting;
+		final boolean dead;
+		final boolean cached;
+		private final AtomicReferenceArray<State> ascii = new AtomicReferenceArray<State>(128);
+		private final ConcurrentMap<Character, State> others = new ConcurrentHashMap<Character, State>();
+
+		State(final int[] nfaStates, final Nfa nfa, final boolean cached)
+		{
+			this.nfaStates = nfaStates;
+			this.cached = cached;
+			int accepting = 0;
+			for (final int nfaState : nfaStates)
+				if (nfa.kinds[nfaState] == Nfa.ACCEPT)
+					accepting++;
+			this.labels = new int[accepting];
+			for (final int nfaState : nfaStates)
+				if (nfa.kinds[nfaState] == Nfa.ACCEPT)
+					labels[--accepting] = nfa.labels[nfaState];
+			this.accepting = labels.length > 0;
+			this.dead = nfaStates.length == 0;
+		}
+
+		State transition(final char c)
+		{
+			return c < 128 ? ascii.get(c) : others.get(c);
+		}
+
+		void cache(final char c, final State to)
+		{
+			if (c < 128)
+				ascii.set(c, to);
+			else
+				others.put(c, to);
+		}
+	}
+
+
+	static final class Key
+	{
+		private final int[] nfaStates;
+		private final int hashCode;
+
+		Key(final int[] nfaStates)
+		{
+			this.nfaStates = nfaStates;
+			this.hashCode = Arrays.hashCode(nfaStates);
+		}
+
+		@Override
+		public int hashCode()
+		{return hashCode;}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+				return true;
+			if (!(obj instanceof Key))
+				return false;
+			final Key other = (Key) obj;
+			return hashCode == other.hashCode && Arrays.equals(nfaStates, other.nfaStates);
+		}
+	}
+
+
+	/**
+	 * Accumulates the epsilon closure of a set of NFA states, keeping only
+	 * the states that consume input or accept.
+	 */
+	static final class Closure
+	{
+		private final boolean[] visited;
+		private final int[] stack;
+		private final int[] members;
+		private int size = 0;
+
+		Closure(final int nfaSize)
+		{
+			this.visited = new boolean[nfaSize];
+			this.stack = new int[nfaSize];
+			this.members = new int[nfaSize];
+		}
+
+		void add(final Nfa nfa, final int state)
+		{
+			if (visited[state])
+				return;
+			visited[state] = true;
+			int top = 0;
+			stack[top++] = state;
+			while (top > 0)
+			{
+				final int current = stack[--top];
+				if (nfa.kinds[current] == Nfa.SPLIT)
+				{
+					final int alternate = nfa.alternate[current];
+					if (!visited[alternate])
+					{
+						visited[alternate] = true;
+						stack[top++] = alternate;
+					}
+					final int next = nfa.next[current];
+					if (!visited[next])
+					{
+						visited[next] = true;
+						stack[top++] = next;
+					}
+				}
+				else
+					members[size++] = current;
+			}
+		}
+
+		int[] toArray()
+		{
+			final int[] result = Arrays.copyOf(members, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,216 @@
+package io.github.reggert.reb4j.automaton;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.matching.MatcherPool;
+
+import java.util.BitSet;
+
+import fj.data.List;
+
+/**
+ * Matcher that tests input against many independent expressions at once,
+ * reporting which of them matched.
+ *
+ * Looping over the {@link java.util.regex.Pattern}s compiled from <var>n</var>
+ * expressions scans the input <var>n</var> times. This class instead
+ * compiles every expression in the regular subset supported by
+ * {@link Automaton} into a single NFA, with one accepting state per
+ * expression, and runs the DFA constructed lazily from it over the input
+ * once. Each DFA state knows which expressions it accepts, so the cost per
+ * character is independent of the number of expressions once the automaton
+ * is warm. Expressions outside of the regular subset are matched
+ * individually with their {@link Expression#matching() pooled matchers},
+ * as is everything when the input contains surrogate characters.
+ *
+ * The DFA caches a bounded number of states. Expressions whose
+ * combination produces more states than that, such as many expressions
+ * that each begin with unbounded repetition of "any character", still run
+ * in time linear in the length of the input, but without the benefit of
+ * the cache.
+ *
+ * Expressions are identified by their position in {@link #expressions}.
+ * Instances of this class are thread-safe.
+ */
+public final class ExpressionSet
+{
+	public final List<Expression> expressions;
+	private final Expression[] members;
+	private final boolean[] inAutomaton;
+	private final int automatedCount;
+	// Pools of the expressions outside of the automaton; the others are
+	// only matched individually on fallback, so their pools are left null.
+	private final MatcherPool[] pools;
+	private final Dfa anchored;
+	private final Dfa unanchored;
+
+	private ExpressionSet(final List<Expression> expressions)
+	{
+		this.expressions = expressions;
+		this.members = expressions.toJavaList().toArray(new Expression[expressions.length()]);
+		this.inAutomaton = new boolean[members.length];
+		final Nfa nfa = Nfa.compile(members, inAutomaton);
+		this.anchored = nfa == null ? null : new Dfa(nfa, false);
+		this.unanchored = nfa == null ? null : new Dfa(nfa, true);
+		this.pools = new MatcherPool[members.length];
+		int automatedCount = 0;
+		for (int i = 0; i < members.length; i++)
+		{
+			if (inAutomaton[i])
+				automatedCount++;
+			else
+				pools[i] = members[i].matching();
+		}
+		this.automatedCount = automatedCount;
+	}
+
+	/**
+	 * Compiles the specified expressions.
+	 *
+	 * @param expressions
+	 * 	the expressions to match; must not be <code>null</code> or
+	 * 	contain <code>null</code>.
+	 * @return a new set.
+	 * @throws NullPointerException
+	 * 	if <var>expressions</var> is or contains <code>null</code>.
+	 */
+	public static ExpressionSet compile(final Expression... expressions)
+	{
+		if (expressions == null) throw new NullPointerException("expressions");
+		return compile(List.list(expressions));
+	}
+
+	/**
+	 * Compiles the specified expressions.
+	 *
+	 * @param expressions
+	 * 	the expressions to match; must not be <code>null</code> or
+	 * 	contain <code>null</code>.
+	 * @return a new set.
+	 * @throws NullPointerException
+	 * 	if <var>expressions</var> is or contains <code>null</code>.
+	 */
+	public static ExpressionSet compile(final Iterable<? extends Expression> expressions)
+	{
+		if (expressions == null) throw new NullPointerException("expressions");
+		final List.Buffer<Expression> buffer = new List.Buffer<Expression>();
+		for (final Expression expression : expressions)
+		{
+			if (expression == null) throw new NullPointerException("expressions contains null");
+			buffer.snoc(expression);
+		}
+		return new ExpressionSet(buffer.toList());
+	}
+
+	/**
+	 * Returns the number of expressions in the set.
+	 */
+	public int size()
+	{return members.length;}
+
+	/**
+	 * Indicates whether the expression at the specified position was
+	 * compiled into the automaton, rather than being matched on its own.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such expression.
+	 */
+	public boolean isInAutomaton(final int index)
+	{return inAutomaton[index];}
+
+	/**
+	 * Determines which expressions match the entire input.
+	 *
+	 * @param input
+	 * 	the text to test; must not be <code>null</code>.
+	 * @return a new set of the positions of the matching expressions.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see java.util.regex.Matcher#matches()
+	 */
+	public BitSet matches(final CharSequence input)
+	{
+		final BitSet matched = new BitSet(members.length);
+		matches(input, matched);
+		return matched;
+	}
+
+	/**
+	 * Determines which expressions match the entire input, storing the
+	 * result in an existing set so that repeated calls allocate nothing.
+	 *
+	 * @param input
+	 * 	the text to test; must not be <code>null</code>.
+	 * @param matched
+	 * 	cleared, and then set at the positions of the matching expressions;
+	 * 	must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if either argument is <code>null</code>.
+	 */
+	public void matches(final CharSequence input, final BitSet matched)
+	{run(input, matched, true);}
+
+	/**
+	 * Determines which expressions match some part of the input.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @return a new set of the positions of the matching expressions.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see java.util.regex.Matcher#find()
+	 */
+	public BitSet find(final CharSequence input)
+	{
+		final BitSet matched = new BitSet(members.length);
+		find(input, matched);
+		return matched;
+	}
+
+	/**
+	 * Determines which expressions match some part of the input, storing
+	 * the result in an existing set so that repeated calls allocate
+	 * nothing.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @param matched
+	 * 	cleared, and then set at the positions of the matching expressions;
+	 * 	must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if either argument is <code>null</code>.
+	 */
+	public void find(final CharSequence input, final BitSet matched)
+	{run(input, matched, false);}
+
+	private void run(final CharSequence input, final BitSet matched, final boolean wholeInput)
+	{
+		if (input == null) throw new NullPointerException("input");
+		if (matched == null) throw new NullPointerException("matched");
+		matched.clear();
+		final Dfa dfa = wholeInput ? anchored : unanchored;
+		boolean fallBack = dfa == null;
+		if (dfa != null && dfa.collect(input, wholeInput, matched, automatedCount) == Dfa.UNSUPPORTED)
+		{
+			matched.clear();
+			fallBack = true;
+		}
+		for (int i = 0; i < members.length; i++)
+			if (fallBack || !inAutomaton[i])
+			{
+				final MatcherPool pool = pool(i);
+				if (wholeInput ? pool.matches(input) : pool.find(input))
+					matched.set(i);
+			}
+	}
+
+	/*
+	 * The pool of the expression at the specified position. Expressions in
+	 * the automaton get theirs, and compile their patterns, the first time
+	 * the input falls back to matching them individually.
+	 */
+	private MatcherPool pool(final int index)
+	{
+		final MatcherPool pool = pools[index];
+		return pool != null ? pool : members[index].matching();
+	}
+}
@@ -0,0 +1,322 @@
+package io.github.reggert.reb4j.automaton;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Quantified;
+import io.github.reggert.reb4j.Raw;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.Sequenceable;
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import java.util.Arrays;
+
+import fj.data.List;
+
+/**
+ * Thompson NFA for the regular subset of reb4j expressions.
+ *
+ * States are numbered from zero and stored in parallel arrays. Each state
+ * either consumes one character (tested against a literal character, a
+ * character class or "any character but a line terminator"), branches to
+ * one or two other states without consuming input, or accepts. An NFA
+ * compiled from several expressions has one accepting state per expression,
+ * labelled with the expression's position.
+ *
+ * Expressions that use features outside of the regular subset (anchors and
+ * other assertions, look-around, independent or flag groups, possessive
+ * quantifiers and adopted expressions) cannot be compiled.
+ */
+final class Nfa
+{
+	static final byte CHAR = 0;
+	static final byte CLASS = 1;
+	static final byte ANY = 2;
+	static final byte SPLIT = 3;
+	static final byte ACCEPT = 4;
+
+	/*
+	 * Arbitrary limit on the number of states, which mainly guards against
+	 * large counted repetitions being expanded.
+	 */
+	static final int MAX_STATES = 10000;
+
+	final byte[] kinds;
+	final char[] chars;
+	final CharClass[] classes;
+	final int[] next;
+	final int[] alternate;
+	final int[] labels;
+	final int start;
+
+	private Nfa(final Builder builder, final int start)
+	{
+		final int size = builder.size;
+		this.kinds = Arrays.copyOf(builder.kinds, size);
+		this.chars = Arrays.copyOf(builder.chars, size);
+		this.classes = Arrays.copyOf(builder.classes, size);
+		this.next = Arrays.copyOf(builder.next, size);
+		this.alternate = Arrays.copyOf(builder.alternate, size);
+		this.labels = Arrays.copyOf(builder.labels, size);
+		this.start = start;
+	}
+
+	int size()
+	{return kinds.length;}
+
+	/**
+	 * Indicates whether the specified consuming state accepts a character.
+	 */
+	boolean consumes(final int state, final char c)
+	{
+		switch (kinds[state])
+		{
+			case CHAR:
+				return chars[state] == c;
+			case CLASS:
+				return classes[state].contains(c);
+			case ANY:
+				return !isLineTerminator(c);
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * The characters not matched by "." when no flags are set.
+	 */
+	static boolean isLineTerminator(final char c)
+	{
+		return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
+	}
+
+	/**
+	 * Compiles the specified expression.
+	 *
+	 * @return the NFA, or <code>null</code> if the expression uses features
+	 * 	that cannot be represented.
+	 */
+	static Nfa compile(final Expression expression)
+	{
+		final Builder builder = new Builder();
+		final int accept = builder.add(ACCEPT);
+		final int start = builder.build(expression, accept);
+		if (start < 0)
+			return null;
+		return new Nfa(builder, start);
+	}
+
+	/**
+	 * Compiles the specified expressions into a single NFA that accepts
+	 * wherever any of them does, labelling the accepting state of each
+	 * with its index. Expressions that cannot be compiled are left out.
+	 *
+	 * @param compiled
+	 * 	receives, for each expression, whether it was compiled.
+	 * @return the NFA, or <code>null</code> if none of the expressions
+	 * 	could be compiled.
+	 */
+	static Nfa compile(final Expression[] expressions, final boolean[] compiled)
+	{
+		final Builder builder = new Builder();
+		int start = -1;
+		for (int i = expressions.length - 1; i >= 0; i--)
+		{
+			final int mark = builder.size;
+			builder.base = mark;
+			final int accept = builder.add(ACCEPT);
+			builder.labels[accept] = i;
+			final int entry = builder.build(expressions[i], accept);
+			compiled[i] = entry >= 0;
+			if (entry < 0)
+				// Fragments only refer to their own states, so discarding
+				// the states added since the mark leaves no dangling links.
+				builder.size = mark;
+			else
+				start = start < 0 ? entry : builder.split(entry, start);
+		}
+		if (start < 0)
+			return null;
+		return new Nfa(builder, start);
+	}
+
+
+	/*
+	 * Builds fragments back to front: each method receives the state that
+	 * should follow the fragment and returns the fragment's entry state,
+	 * or -1 if the expression cannot be compiled.
+	 */
+	private static final class Builder
+	{
+		byte[] kinds = new byte[16];
+		char[] chars = new char[16];
+		CharClass[] classes = new CharClass[16];
+		int[] next = new int[16];
+		int[] alternate = new int[16];
+		int[] labels = new int[16];
+		int size = 0;
+		// The state at which the expression being built began.
+		int base = 0;
+
+		int add(final byte kind)
+		{
+			if (size == kinds.length)
+			{
+				final int capacity = size * 2;
+				kinds = Arrays.copyOf(kinds, capacity);
+				chars = Arrays.copyOf(chars, capacity);
+				classes = Arrays.copyOf(classes, capacity);
+				next = Arrays.copyOf(next, capacity);
+				alternate = Arrays.copyOf(alternate, capacity);
+				labels = Arrays.copyOf(labels, capacity);
+			}
+			kinds[size] = kind;
+			next[size] = -1;
+			alternate[size] = -1;
+			labels[size] = 0;
+			return size++;
+		}
+
+		private int consuming(final byte kind, final int following)
+		{
+			final int state = add(kind);
+			next[state] = following;
+			return state;
+		}
+
+		int split(final int first, final int second)
+		{
+			final int state = add(SPLIT);
+			next[state] = first;
+			alternate[state] = second;
+			return state;
+		}
+
+		int build(final Expression expression, final int following)
+		{
+			if (following < 0 || size - base > MAX_STATES)
+				return -1;
+			if (expression instanceof Literal)
+			{
+				final String literal = ((Literal) expression).unescaped();
+				int state = following;
+				for (int i = literal.length() - 1; i >= 0; i--)
+				{
+					state = consuming(CHAR, state);
+					chars[state] = literal.charAt(i);
+				}
+				return state;
+			}
+			if (expression instanceof CharClass)
+			{
+				final int state = consuming(CLASS, following);
+				classes[state] = (CharClass) expression;
+				return state;
+			}
+			if (expression instanceof Sequence)
+			{
+				int state = following;
+				for (final Sequenceable component : ((Sequence) expression).components.reverse())
+					state = build(component, state);
+				return state;
+			}
+			if (expression instanceof Raw.Compound)
+			{
+				int state = following;
+				for (final Raw component : ((Raw.Compound) expression).components.reverse())
+					state = build(component, state);
+				return state;
+			}
+			if (expression instanceof Raw.EscapedLiteral)
+				return build(((Raw.EscapedLiteral) expression).literal, following);
+			if (expression instanceof Alternation)
+			{
+				final List<Alternative> alternatives = ((Alternation) expression).alternatives.reverse();
+				int state = build(alternatives.head(), following);
+				for (final Alternative alternative : alternatives.tail())
+				{
+					final int entry = build(alternative, following);
+					if (state < 0 || entry < 0)
+						return -1;
+					state = split(entry, state);
+				}
+				return state;
+			}
+			if (expression == Entity.ANY_CHAR)
+				return consuming(ANY, following);
+			if (expression instanceof Group.Capture || expression instanceof Group.NonCapturing)
+				return build(((Group) expression).nested, following);
+			if (expression instanceof Quantified)
+				return buildQuantified((Quantified) expression, following);
+			return -1;
+		}
+
+		private int buildQuantified(final Quantified quantified, final int following)
+		{
+			if (quantified.mode == Quantified.Mode.POSSESSIVE)
+				return -1;
+			if (quantified instanceof Quantified.AnyTimes)
+				return repeat(quantified.base, 0, null, following);
+			if (quantified instanceof Quantified.AtLeastOnce)
+				return repeat(quantified.base, 1, null, following);
+			if (quantified instanceof Quantified.Optional)
+				return repeat(quantified.base, 0, 1, following);
+			if (quantified instanceof Quantified.RepeatExactly)
+			{
+				final int repetitions = ((Quantified.RepeatExactly) quantified).repetitions;
+				return repeat(quantified.base, repetitions, repetitions, following);
+			}
+			if (quantified instanceof Quantified.RepeatRange)
+			{
+				final Quantified.RepeatRange range = (Quantified.RepeatRange) quantified;
+				return repeat(quantified.base, range.minRepetitions, range.maxRepetitions, following);
+			}
+			return -1;
+		}
+
+		/*
+		 * Expands base{minimum,maximum} into copies of the base fragment,
+		 * built right to left: a loop if there is no maximum, otherwise the
+		 * nested optional copies, and then the mandatory copies in front.
+		 */
+		private int repeat(
+				final Expression base,
+				final int minimum,
+				final Integer maximum,
+				final int following
+			)
+		{
+			if (minimum > MAX_STATES || (maximum != null && maximum.intValue() > MAX_STATES))
+				return -1;
+			if (maximum != null && maximum.intValue() < minimum)
+				return -1;
+			int state = following;
+			if (maximum == null)
+			{
+				final int loop = split(-1, following);
+				final int body = build(base, loop);
+				if (body < 0)
+					return -1;
+				next[loop] = body;
+				state = loop;
+			}
+			else
+			{
+				for (int i = minimum; i < maximum.intValue(); i++)
+				{
+					final int body = build(base, state);
+					if (body < 0)
+						return -1;
+					// Each optional copy may be skipped in favor of what follows.
+					state = split(body, following);
+				}
+			}
+			for (int i = 0; i < minimum; i++)
+				state = build(base, state);
+			return state;
+		}
+	}
+}
@@ -22,22 +22,61 @@ public abstract class CharClass extends AbstractQuantifiableSequenceableAlternat
 	implements Expression, Quantifiable, Sequenceable, Alternative
 {
 	private static final long serialVersionUID = 1L;
+	private transient volatile CodePointSet codePoints;
 
+	/**
+	 * Appends the regular expression string that can be used within square
+	 * brackets to merge with other character classes.
+	 */
+	protected abstract void appendUnitableForm(StringBuilder builder);
+	
+	/**
+	 * Appends the regular expression string that can be used independently
+	 * of square brackets.
+	 */
+	protected abstract void appendIndependentForm(StringBuilder builder);
+	
+	/**
+	 * Appends the regular expression string for the complement of this
+	 * character class, in a form that can be used either within or
+	 * independently of square brackets.
+	 * 
+	 * Negating the unitable form with <code>[^...]</code> is only portable
+	 * when that form is a flat list of characters, ranges and predefined
+	 * classes: before Java 9, the <code>^</code> applies only up to the
+	 * first nested class or <code>&amp;&amp;</code>, so that
+	 * <code>[^a&amp;&amp;b]</code> means <code>[^a]&amp;&amp;b</code>.
+	 * Classes whose unitable form contains either override this to apply
+	 * De Morgan's laws instead.
+	 */
+	void appendComplementForm(final StringBuilder builder)
+	{
+		builder.append("[^");
+		appendUnitableForm(builder);
+		builder.append(']');
+	}
+	
 	/**
 	 * The regular expression string that can be used within square brackets
 	 * to merge with other character classes.
 	 */
-	protected abstract LazyString unitableForm();
+	public LazyString unitableForm()
+	{
+		final StringBuilder builder = new StringBuilder();
+		appendUnitableForm(builder);
+		return LazyString.str(builder.toString());
+	}
 	
 	/**
 	 * The regular expression string that can be used independently of square 
 	 * brackets.
 	 */
-	protected abstract LazyString independentForm();
+	public LazyString independentForm()
+	{return expression();}
 	
 	@Override
-	public final LazyString expression()
-	{return independentForm();}
+	public final void appendTo(final StringBuilder builder)
+	{appendIndependentForm(builder);}
 	
 	@Override
 	public Integer boundedLength() 
@@ -63,6 +102,39 @@ public abstract class CharClass extends AbstractQuantifiableSequenceableAlternat
 	 */
 	public abstract CharClass negated();
 	
+	/**
+	 * Computes the set of code points matched by this character class.
+	 */
+	abstract CodePointSet computeCodePoints();
+	
+	/**
+	 * The set of code points matched by this character class, disregarding 
+	 * any flags set by enclosing groups. The set is computed on first use.
+	 */
+	public final CodePointSet codePoints()
+	{
+		CodePointSet result = codePoints;
+		if (result == null)
+			codePoints = result = computeCodePoints();
+		return result;
+	}
+	
+	/**
+	 * Indicates whether this character class matches the specified 
+	 * character, without compiling a pattern. Once {@link #codePoints()} 
+	 * has been computed, this does not allocate.
+	 */
+	public final boolean contains(final char c)
+	{return codePoints().contains(c);}
+	
+	/**
+	 * Indicates whether this character class matches the specified 
+	 * code point, without compiling a pattern. Once {@link #codePoints()} 
+	 * has been computed, this does not allocate.
+	 */
+	public final boolean contains(final int codePoint)
+	{return codePoints().contains(codePoint);}
+	
 	/**
 	 * Returns the union of this character class with the specified
 	 * character classes.
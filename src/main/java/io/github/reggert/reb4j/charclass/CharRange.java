@@ -1,8 +1,5 @@
 package io.github.reggert.reb4j.charclass;
 
-import io.github.reggert.reb4j.Literal;
-import fj.data.LazyString;
-
 /**
  * Character class consisting of a range of characters.
  */
@@ -25,15 +22,46 @@ public final class CharRange extends CharClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
+	{
+		codePoints().appendUnitableForm(builder);
+	}
+
+	@Override
+	protected void appendIndependentForm(final StringBuilder builder)
+	{
+		builder.append('[');
+		appendUnitableForm(builder);
+		builder.append(']');
+	}
+
+	@Override
+	CodePointSet computeCodePoints()
+	{
+		return CodePointSet.range(first, last);
+	}
+
+	@Override
+	public int hashCode()
 	{
-		return Literal.escapeChar(first).append("-").append(Literal.escapeChar(last));
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + first;
+		result = prime * result + last;
+		return result;
 	}
 
 	@Override
-	public LazyString independentForm()
+	public boolean equals(final Object obj)
 	{
-		return LazyString.str("[").append(unitableForm()).append("]");
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final CharRange other = (CharRange) obj;
+		return first == other.first && last == other.last;
 	}
 
 }
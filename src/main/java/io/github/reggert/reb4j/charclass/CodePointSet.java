@@ -0,0 +1,328 @@
+package io.github.reggert.reb4j.charclass;
+
+import io.github.reggert.reb4j.Literal;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable set of Unicode code points.
+ *
+ * The set is stored as a sorted array of disjoint ranges, together with a
+ * bitmap of its Latin-1 members, so that testing a Latin-1 character takes
+ * constant time and testing any other code point takes a binary search.
+ * Membership tests never allocate.
+ */
+public final class CodePointSet implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * The set containing no code points.
+	 */
+	public static final CodePointSet EMPTY = new CodePointSet(new int[0]);
+
+	/**
+	 * The set containing every code point.
+	 */
+	public static final CodePointSet ALL = new CodePointSet(new int[] {0, Character.MAX_CODE_POINT});
+
+	/*
+	 * The first and last code points of each range, in ascending order.
+	 * Ranges neither overlap nor touch.
+	 */
+	private final int[] ranges;
+	private final long[] latin1 = new long[4];
+	private final int hashCode;
+
+	private CodePointSet(final int[] ranges)
+	{
+		this.ranges = ranges;
+		for (int i = 0; i < ranges.length && ranges[i] <= 0xFF; i += 2)
+			for (int c = ranges[i]; c <= Math.min(ranges[i + 1], 0xFF); c++)
+				latin1[c >>> 6] |= 1L << c;
+		this.hashCode = Arrays.hashCode(ranges);
+	}
+
+	/**
+	 * Returns the set containing only the specified code point.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	if <var>codePoint</var> is not a valid code point.
+	 */
+	public static CodePointSet of(final int codePoint)
+	{return range(codePoint, codePoint);}
+
+	/**
+	 * Returns the set containing all code points from <var>first</var>
+	 * through <var>last</var>, inclusive.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	if either bound is not a valid code point, or if
+	 * 	<var>last</var> &lt; <var>first</var>.
+	 */
+	public static CodePointSet range(final int first, final int last)
+	{
+		if (!Character.isValidCodePoint(first)) throw new IllegalArgumentException("Invalid code point: " + first);
+		if (!Character.isValidCodePoint(last)) throw new IllegalArgumentException("Invalid code point: " + last);
+		if (first > last) throw new IllegalArgumentException("first must be <= last");
+		return new CodePointSet(new int[] {first, last});
+	}
+
+	/**
+	 * Indicates whether the set contains the specified character.
+	 */
+	public boolean contains(final char c)
+	{
+		if (c <= 0xFF)
+			return (latin1[c >>> 6] & (1L << c)) != 0;
+		return search(c);
+	}
+
+	/**
+	 * Indicates whether the set contains the specified code point.
+	 * Values that are not valid code points are never contained.
+	 */
+	public boolean contains(final int codePoint)
+	{
+		if (codePoint >= 0 && codePoint <= 0xFF)
+			return (latin1[codePoint >>> 6] & (1L << codePoint)) != 0;
+		return codePoint > 0xFF && search(codePoint);
+	}
+
+	private boolean search(final int codePoint)
+	{
+		int low = 0;
+		int high = ranges.length / 2 - 1;
+		while (low <= high)
+		{
+			final int middle = (low + high) >>> 1;
+			if (codePoint < ranges[2 * middle])
+				high = middle - 1;
+			else if (codePoint > ranges[2 * middle + 1])
+				low = middle + 1;
+			else
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Indicates whether the set contains no code points.
+	 */
+	public boolean isEmpty()
+	{return ranges.length == 0;}
+
+	/**
+	 * The number of disjoint ranges making up the set.
+	 */
+	public int rangeCount()
+	{return ranges.length / 2;}
+
+	/**
+	 * The first code point of the specified range.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if <var>range</var> is not less than {@link #rangeCount()}.
+	 */
+	public int first(final int range)
+	{return ranges[checkRange(range)];}
+
+	/**
+	 * The last code point of the specified range.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if <var>range</var> is not less than {@link #rangeCount()}.
+	 */
+	public int last(final int range)
+	{return ranges[checkRange(range) + 1];}
+
+	private int checkRange(final int range)
+	{
+		if (range < 0 || range >= rangeCount())
+			throw new IndexOutOfBoundsException("range: " + range);
+		return 2 * range;
+	}
+
+	/**
+	 * Returns the set of code points contained in either this set or the
+	 * specified set.
+	 */
+	public CodePointSet union(final CodePointSet right)
+	{
+		if (right == null) throw new NullPointerException("right");
+		final Builder builder = new Builder();
+		int i = 0, j = 0;
+		while (i < ranges.length || j < right.ranges.length)
+		{
+			if (j == right.ranges.length || (i < ranges.length && ranges[i] <= right.ranges[j]))
+			{
+				builder.append(ranges[i], ranges[i + 1]);
+				i += 2;
+			}
+			else
+			{
+				builder.append(right.ranges[j], right.ranges[j + 1]);
+				j += 2;
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns the set of code points contained in both this set and the
+	 * specified set.
+	 */
+	public CodePointSet intersect(final CodePointSet right)
+	{
+		if (right == null) throw new NullPointerException("right");
+		final Builder builder = new Builder();
+		int i = 0, j = 0;
+		while (i < ranges.length && j < right.ranges.length)
+		{
+			final int first = Math.max(ranges[i], right.ranges[j]);
+			final int last = Math.min(ranges[i + 1], right.ranges[j + 1]);
+			if (first <= last)
+				builder.append(first, last);
+			if (ranges[i + 1] < right.ranges[j + 1])
+				i += 2;
+			else
+				j += 2;
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Returns the set of code points not contained in this set.
+	 */
+	public CodePointSet complement()
+	{
+		final Builder builder = new Builder();
+		int next = 0;
+		for (int i = 0; i < ranges.length; i += 2)
+		{
+			if (ranges[i] > next)
+				builder.append(next, ranges[i] - 1);
+			next = ranges[i + 1] + 1;
+		}
+		if (next <= Character.MAX_CODE_POINT)
+			builder.append(next, Character.MAX_CODE_POINT);
+		return builder.build();
+	}
+
+	/**
+	 * Appends the set in the form used within square brackets: each range
+	 * of three or more code points as a range, and other code points
+	 * individually. Surrogates and supplementary code points are written
+	 * as hexadecimal escapes, so that adjacent surrogates are not read as
+	 * a pair.
+	 */
+	void appendUnitableForm(final StringBuilder builder)
+	{
+		for (int i = 0; i < ranges.length; i += 2)
+		{
+			appendCodePoint(ranges[i], builder);
+			if (ranges[i + 1] - ranges[i] > 1)
+				builder.append('-');
+			if (ranges[i + 1] != ranges[i])
+				appendCodePoint(ranges[i + 1], builder);
+		}
+	}
+
+	private static void appendCodePoint(final int codePoint, final StringBuilder builder)
+	{
+		if (codePoint < Character.MIN_SURROGATE || (codePoint > Character.MAX_SURROGATE && codePoint <= Character.MAX_VALUE))
+			Literal.escapeChar((char) codePoint, builder);
+		else
+			builder.append("\\x{").append(Integer.toHexString(codePoint)).append('}');
+	}
+
+	@Override
+	public int hashCode()
+	{return hashCode;}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final CodePointSet other = (CodePointSet) obj;
+		return hashCode == other.hashCode && Arrays.equals(ranges, other.ranges);
+	}
+
+	@Override
+	public String toString()
+	{
+		final StringBuilder builder = new StringBuilder("[");
+		for (int i = 0; i < ranges.length; i += 2)
+		{
+			if (i > 0)
+				builder.append(", ");
+			builder.append(String.format("U+%04X", ranges[i]));
+			if (ranges[i + 1] != ranges[i])
+				builder.append(String.format("-U+%04X", ranges[i + 1]));
+		}
+		return builder.append(']').toString();
+	}
+
+
+	/**
+	 * Accumulates code points and ranges, in any order, into a set.
+	 */
+	static final class Builder
+	{
+		private int[] ranges = new int[16];
+		private int size = 0;
+		private boolean sorted = true;
+
+		Builder add(final int codePoint)
+		{return add(codePoint, codePoint);}
+
+		Builder add(final int first, final int last)
+		{
+			if (size > 0 && first < ranges[size - 2])
+				sorted = false;
+			append(first, last);
+			return this;
+		}
+
+		/*
+		 * Adds a range that does not start before any range already added,
+		 * coalescing it with the previous range where they overlap or touch.
+		 */
+		private void append(final int first, final int last)
+		{
+			if (sorted && size > 0 && first <= ranges[size - 1] + 1)
+			{
+				ranges[size - 1] = Math.max(ranges[size - 1], last);
+				return;
+			}
+			if (size == ranges.length)
+				ranges = Arrays.copyOf(ranges, size * 2);
+			ranges[size++] = first;
+			ranges[size++] = last;
+		}
+
+		CodePointSet build()
+		{
+			if (size == 0)
+				return EMPTY;
+			if (!sorted)
+			{
+				final long[] packed = new long[size / 2];
+				for (int i = 0; i < size; i += 2)
+					packed[i / 2] = ((long) ranges[i] << 32) | ranges[i + 1];
+				Arrays.sort(packed);
+				size = 0;
+				sorted = true;
+				for (final long range : packed)
+					append((int) (range >>> 32), (int) range);
+			}
+			return new CodePointSet(Arrays.copyOf(ranges, size));
+		}
+	}
+}
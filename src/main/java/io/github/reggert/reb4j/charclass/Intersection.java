@@ -1,7 +1,5 @@
 package io.github.reggert.reb4j.charclass;
 
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.List;
 
 /**
@@ -12,11 +10,13 @@ public final class Intersection extends CharClass
 	private static final long serialVersionUID = 1L;
 	
 	public final List<CharClass> supersets;
+	private final int hashCode;
 	
 	private Intersection(final List<CharClass> supersets)
 	{
 		if (supersets == null) throw new NullPointerException("supersets");
 		this.supersets = supersets;
+		this.hashCode = hashCode(this.supersets);
 	}
 
 	@Override
@@ -26,23 +26,43 @@ public final class Intersection extends CharClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
 	{
-		return supersets.tail().foldLeft(
-				new F2<LazyString, CharClass, LazyString>()
-				{
-					@Override
-					public LazyString f(final LazyString a, final CharClass b)
-					{return a.append("&&").append(b.independentForm());}
-				},
-				supersets.head().independentForm()
-			);
+		supersets.head().appendIndependentForm(builder);
+		for (final CharClass superset : supersets.tail())
+		{
+			builder.append("&&");
+			superset.appendIndependentForm(builder);
+		}
 	}
 
 	@Override
-	public LazyString independentForm()
+	protected void appendIndependentForm(final StringBuilder builder)
 	{
-		return LazyString.str("[").append(unitableForm()).append("]");
+		builder.append('[');
+		appendUnitableForm(builder);
+		builder.append(']');
+	}
+	
+	/**
+	 * Appends the union of the complements of the supersets.
+	 */
+	@Override
+	void appendComplementForm(final StringBuilder builder)
+	{
+		builder.append('[');
+		for (final CharClass superset : supersets)
+			superset.negated().appendIndependentForm(builder);
+		builder.append(']');
+	}
+	
+	@Override
+	CodePointSet computeCodePoints()
+	{
+		CodePointSet result = CodePointSet.ALL;
+		for (final CharClass superset : supersets)
+			result = result.intersect(superset.codePoints());
+		return result;
 	}
 	
 	@Override
@@ -67,14 +87,17 @@ public final class Intersection extends CharClass
 		return new Intersection(right.supersets.cons(left));
 	}
 
-	@Override
-	public int hashCode()
+	private static int hashCode(final List<CharClass> supersets)
 	{
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + supersets.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -86,7 +109,7 @@ public final class Intersection extends CharClass
 		if (getClass() != obj.getClass())
 			return false;
 		final Intersection other = (Intersection) obj;
-		return supersets.equals(other.supersets);
+		return hashCode == other.hashCode && supersets.equals(other.supersets);
 	}
 }
 
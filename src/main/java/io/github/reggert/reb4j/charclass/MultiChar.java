@@ -1,9 +1,5 @@
 package io.github.reggert.reb4j.charclass;
 
-import io.github.reggert.reb4j.Literal;
-
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.Set;
 
 /**
@@ -13,11 +9,13 @@ public final class MultiChar extends CharClass
 {
 	private static final long serialVersionUID = 1L;
 	public final Set<Character> characters;
+	private final int hashCode;
 	
 	public MultiChar(final Set<Character> characters)
 	{
 		if (characters == null) throw new NullPointerException("characters");
 		this.characters = characters;
+		this.hashCode = hashCode(characters);
 	}
 
 	@Override
@@ -26,24 +24,31 @@ public final class MultiChar extends CharClass
 		return new Negated<MultiChar>(this);
 	}
 
+	/**
+	 * Appends the characters as a sorted set of ranges, so that runs of
+	 * consecutive characters are written as ranges.
+	 */
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
 	{
-		return characters.toStream().foldLeft(
-				new F2<LazyString, Character, LazyString>()
-				{
-					@Override
-					public LazyString f(final LazyString a, final Character b)
-					{return a.append(Literal.escapeChar(b));}
-				},
-				LazyString.empty
-			);
+		codePoints().appendUnitableForm(builder);
 	}
 
 	@Override
-	public LazyString independentForm()
+	protected void appendIndependentForm(final StringBuilder builder)
+	{
+		builder.append('[');
+		appendUnitableForm(builder);
+		builder.append(']');
+	}
+	
+	@Override
+	CodePointSet computeCodePoints()
 	{
-		return LazyString.str("[").append(unitableForm()).append("]");
+		final CodePointSet.Builder builder = new CodePointSet.Builder();
+		for (final Character c : characters)
+			builder.add(c.charValue());
+		return builder.build();
 	}
 	
 	/**
@@ -78,4 +83,29 @@ public final class MultiChar extends CharClass
 		return new MultiChar(characters.insert(right.character));
 	}
 
+	private static int hashCode(final Set<Character> characters)
+	{
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + characters.hashCode();
+		return result;
+	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
+
+	@Override
+	public boolean equals(final Object obj)
+	{
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		final MultiChar other = (MultiChar) obj;
+		return hashCode == other.hashCode && characters.equals(other.characters);
+	}
+
 }
@@ -1,6 +1,8 @@
 package io.github.reggert.reb4j.charclass;
 
-import fj.data.LazyString;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 /**
  * Predefined character class that is accepted by name using \p{..} or \P{..}.
@@ -9,6 +11,13 @@ public final class NamedPredefinedClass extends PredefinedClass
 {
 	private static final long serialVersionUID = 1L;
 	public final String className;
+	
+	/*
+	 * Code points matched by \p{className}, shared between instances and 
+	 * their negations, as they are expensive to compute.
+	 */
+	private static final ConcurrentMap<String, CodePointSet> MATCHED = 
+		new ConcurrentHashMap<String, CodePointSet>();
 
 	NamedPredefinedClass(final char nameChar, final String className)
 	{
@@ -31,9 +40,24 @@ public final class NamedPredefinedClass extends PredefinedClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
+	{
+		super.appendUnitableForm(builder);
+		builder.append('{').append(className).append('}');
+	}
+
+	@Override
+	CodePointSet computeCodePoints()
 	{
-		return super.unitableForm().append("{").append(className).append("}");
+		CodePointSet positive = MATCHED.get(className);
+		if (positive == null)
+		{
+			positive = matchedBy(Pattern.compile("\\p{" + className + "}"));
+			final CodePointSet raced = MATCHED.putIfAbsent(className, positive);
+			if (raced != null)
+				positive = raced;
+		}
+		return nameChar == 'P' ? positive.complement() : positive;
 	}
 
 	@Override
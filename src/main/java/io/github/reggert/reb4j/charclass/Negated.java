@@ -1,7 +1,5 @@
 package io.github.reggert.reb4j.charclass;
 
-import fj.data.LazyString;
-
 /**
  * Character class representing the negation of another character class.
  */
@@ -9,11 +7,13 @@ public final class Negated<T extends CharClass> extends CharClass
 {
 	private static final long serialVersionUID = 1L;
 	public final T positive;
+	private final int hashCode;
 	
 	Negated(final T positive)
 	{
 		if (positive == null) throw new NullPointerException("positive");
 		this.positive = positive;
+		this.hashCode = hashCode(this.positive);
 	}
 
 	@Override
@@ -23,25 +23,34 @@ public final class Negated<T extends CharClass> extends CharClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
 	{
-		return LazyString.str("[^").append(positive.unitableForm()).append("]");
+		positive.appendComplementForm(builder);
 	}
 
 	@Override
-	public LazyString independentForm()
+	protected void appendIndependentForm(final StringBuilder builder)
 	{
-		return unitableForm();
+		appendUnitableForm(builder);
 	}
 
 	@Override
-	public int hashCode()
+	CodePointSet computeCodePoints()
+	{
+		return positive.codePoints().complement();
+	}
+
+	private static int hashCode(final CharClass positive)
 	{
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + positive.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -53,6 +62,6 @@ public final class Negated<T extends CharClass> extends CharClass
 		if (getClass() != obj.getClass())
 			return false;
 		final Negated<?> other = (Negated<?>) obj;
-		return positive.equals(other.positive);
+		return hashCode == other.hashCode && positive.equals(other.positive);
 	}
 }
@@ -1,6 +1,8 @@
 package io.github.reggert.reb4j.charclass;
 
-import fj.data.LazyString;
+import java.nio.CharBuffer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Predefined character class referenced using an escape sequence.
@@ -28,14 +30,66 @@ public class PredefinedClass extends CharClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
 	{
-		return LazyString.str("\\").append(Character.toString(nameChar));
+		builder.append('\\').append(nameChar);
 	}
 
 	@Override
-	public final LazyString independentForm()
-	{return unitableForm();}
+	protected final void appendIndependentForm(final StringBuilder builder)
+	{appendUnitableForm(builder);}
+
+	@Override
+	CodePointSet computeCodePoints()
+	{
+		final CodePointSet positive;
+		switch (Character.toLowerCase(nameChar))
+		{
+			case 'd':
+				positive = CodePointSet.range('0', '9');
+				break;
+			case 's':
+				positive = new CodePointSet.Builder().add(' ').add('\t', '\r').build();
+				break;
+			case 'w':
+				positive = new CodePointSet.Builder().add('0', '9').add('A', 'Z').add('_').add('a', 'z').build();
+				break;
+			default:
+				return matchedBy(toPattern());
+		}
+		return Character.isUpperCase(nameChar) ? positive.complement() : positive;
+	}
+	
+	/**
+	 * Determines the code points matched by a pattern that matches a single
+	 * code point, by trying each code point in turn.
+	 */
+	static CodePointSet matchedBy(final Pattern pattern)
+	{
+		final CodePointSet.Builder builder = new CodePointSet.Builder();
+		final char[] chars = new char[2];
+		final CharBuffer input = CharBuffer.wrap(chars);
+		final Matcher matcher = pattern.matcher(input);
+		int first = -1;
+		for (int codePoint = 0; codePoint <= Character.MAX_CODE_POINT; codePoint++)
+		{
+			input.clear();
+			input.limit(Character.toChars(codePoint, chars, 0));
+			if (matcher.reset(input).matches())
+			{
+				if (first < 0)
+					first = codePoint;
+			}
+			else if (first >= 0)
+			{
+				builder.add(first, codePoint - 1);
+				first = -1;
+			}
+		}
+		if (first >= 0)
+			builder.add(first, Character.MAX_CODE_POINT);
+		return builder.build();
+	}
 
 	@Override
 	public int hashCode()
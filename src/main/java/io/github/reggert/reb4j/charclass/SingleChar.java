@@ -3,8 +3,6 @@ package io.github.reggert.reb4j.charclass;
 import static fj.Ord.charOrd;
 import io.github.reggert.reb4j.Literal;
 
-
-import fj.data.LazyString;
 import fj.data.Set;
 
 /**
@@ -27,15 +25,21 @@ public final class SingleChar extends CharClass
 	}
 
 	@Override
-	public LazyString unitableForm()
+	protected void appendUnitableForm(final StringBuilder builder)
+	{
+		Literal.escapeChar(character, builder);
+	}
+
+	@Override
+	protected void appendIndependentForm(final StringBuilder builder)
 	{
-		return Literal.escapeChar(character);
+		appendUnitableForm(builder);
 	}
 
 	@Override
-	public LazyString independentForm()
+	CodePointSet computeCodePoints()
 	{
-		return unitableForm();
+		return CodePointSet.of(character);
 	}
 
 	@Override
@@ -1,9 +1,9 @@
 package io.github.reggert.reb4j.charclass;
 
-import fj.F2;
-import fj.data.LazyString;
 import fj.data.List;
 
+import java.util.ArrayList;
+
 /**
  * Character class composed of the union of two other character classes.
  */
@@ -11,11 +11,13 @@ public final class Union extends CharClass
 {
 	private static final long serialVersionUID = 1L;
 	public final List<CharClass> subsets;
+	private final int hashCode;
 	
 	Union(final List<CharClass> subsets)
 	{
 		if (subsets == null) throw new NullPointerException("subsets");
 		this.subsets = subsets;
+		this.hashCode = hashCode(this.subsets);
 	}
 
 	@Override
@@ -24,24 +26,109 @@ public final class Union extends CharClass
 		return new Negated<Union>(this);
 	}
 
+	/**
+	 * Appends the characters, ranges and sets of characters in this union
+	 * and in any unions nested within it as a single sorted set of ranges,
+	 * without duplicates, followed by the remaining subsets.
+	 */
+	@Override
+	protected void appendUnitableForm(final StringBuilder builder)
+	{
+		mergeableCodePoints(subsets, CodePointSet.EMPTY).appendUnitableForm(builder);
+		appendUnmergeable(subsets, builder);
+	}
+
+	private static boolean isMergeable(final CharClass subset)
+	{return subset instanceof SingleChar || subset instanceof MultiChar || subset instanceof CharRange;}
+
+	private static CodePointSet mergeableCodePoints(final List<CharClass> subsets, CodePointSet result)
+	{
+		for (final CharClass subset : subsets)
+		{
+			if (isMergeable(subset))
+				result = result.union(subset.codePoints());
+			else if (subset instanceof Union)
+				result = mergeableCodePoints(((Union) subset).subsets, result);
+		}
+		return result;
+	}
+
+	private static void collectUnmergeable(final List<CharClass> subsets, final java.util.List<CharClass> result)
+	{
+		for (final CharClass subset : subsets)
+		{
+			if (subset instanceof Union)
+				collectUnmergeable(((Union) subset).subsets, result);
+			else if (!isMergeable(subset))
+				result.add(subset);
+		}
+	}
+
+	private static void appendUnmergeable(final List<CharClass> subsets, final StringBuilder builder)
+	{
+		final java.util.List<CharClass> unmergeable = new ArrayList<CharClass>();
+		collectUnmergeable(subsets, unmergeable);
+		for (final CharClass subset : unmergeable)
+		{
+			// "&&" binds more loosely than union within brackets.
+			if (subset instanceof Intersection)
+				subset.appendIndependentForm(builder);
+			else
+				subset.appendUnitableForm(builder);
+		}
+	}
+
 	@Override
-	public LazyString unitableForm()
+	protected void appendIndependentForm(final StringBuilder builder)
 	{
-		return subsets.foldLeft(
-				new F2<LazyString, CharClass, LazyString>()
-				{
-					@Override
-					public LazyString f(final LazyString a, final CharClass b)
-					{return a.append(b.unitableForm());}
-				},
-				LazyString.empty
-			);
+		builder.append('[');
+		appendUnitableForm(builder);
+		builder.append(']');
 	}
 
+	/**
+	 * Appends <code>[^...]</code> if the remaining subsets are all
+	 * predefined classes, so that the unitable form is a flat list, and
+	 * otherwise the intersection of the complements of the merged set and
+	 * of each remaining subset.
+	 */
 	@Override
-	public LazyString independentForm()
+	void appendComplementForm(final StringBuilder builder)
 	{
-		return LazyString.str("[").append(unitableForm()).append("]");
+		final java.util.List<CharClass> unmergeable = new ArrayList<CharClass>();
+		collectUnmergeable(subsets, unmergeable);
+		boolean flat = true;
+		for (final CharClass subset : unmergeable)
+			flat &= subset instanceof PredefinedClass;
+		if (flat)
+		{
+			super.appendComplementForm(builder);
+			return;
+		}
+		builder.append('[');
+		final CodePointSet mergeable = mergeableCodePoints(subsets, CodePointSet.EMPTY);
+		if (!mergeable.isEmpty())
+		{
+			builder.append("[^");
+			mergeable.appendUnitableForm(builder);
+			builder.append("]&&");
+		}
+		for (int i = 0; i < unmergeable.size(); i++)
+		{
+			if (i > 0)
+				builder.append("&&");
+			unmergeable.get(i).negated().appendIndependentForm(builder);
+		}
+		builder.append(']');
+	}
+
+	@Override
+	CodePointSet computeCodePoints()
+	{
+		CodePointSet result = CodePointSet.EMPTY;
+		for (final CharClass subset : subsets)
+			result = result.union(subset.codePoints());
+		return result;
 	}
 
 	@Override
@@ -66,14 +153,17 @@ public final class Union extends CharClass
 		return new Union(List.list(left, right));
 	}
 
-	@Override
-	public int hashCode()
+	private static int hashCode(final List<CharClass> subsets)
 	{
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + subsets.hashCode();
 		return result;
 	}
+	
+	@Override
+	public int hashCode()
+	{return hashCode;}
 
 	@Override
 	public boolean equals(final Object obj)
@@ -85,7 +175,7 @@ public final class Union extends CharClass
 		if (getClass() != obj.getClass())
 			return false;
 		final Union other = (Union) obj;
-		return subsets.equals(other.subsets);
+		return hashCode == other.hashCode && subsets.equals(other.subsets);
 	}
 	
 }
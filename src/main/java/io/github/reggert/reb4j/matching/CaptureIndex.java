@@ -0,0 +1,150 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.ExpressionVisitor;
+import io.github.reggert.reb4j.Group;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Map from the {@link Group.Capture} nodes of an expression to the numbers
+ * of the groups that they become in the compiled pattern.
+ *
+ * Group numbers are determined by the order in which groups open in the
+ * rendered expression, so composing expressions shifts them. Looking
+ * groups up by node instead lets callers extract captures from composed
+ * expressions without counting parentheses or naming groups:
+ * <pre>
+ * final Group.Capture year = Group.capture(Perl.DIGIT.repeat(4));
+ * final Expression date = Sequence.sequence(prefix, year, ...);
+ * final int group = date.captureIndex().indexOf(year);
+ * </pre>
+ *
+ * Nodes are compared by identity, since equal nodes in different places
+ * are different groups. A node that occurs more than once in the tree is
+ * several groups; {@link #indexOf(Group.Capture)} rejects it, and
+ * {@link #indicesOf(Group.Capture)} returns all of them. Groups within
+ * {@link Adopted} expressions are counted, but have no node to look them up
+ * by.
+ *
+ * Instances of this class are immutable.
+ *
+ * @see Expression#captureIndex()
+ */
+public final class CaptureIndex
+{
+	public final Expression expression;
+	/**
+	 * The number of capturing groups in the expression, not counting
+	 * group 0.
+	 */
+	public final int groupCount;
+	private final IdentityHashMap<Group.Capture, int[]> indices;
+
+	private CaptureIndex(final Expression expression, final int groupCount, final IdentityHashMap<Group.Capture, int[]> indices)
+	{
+		this.expression = expression;
+		this.groupCount = groupCount;
+		this.indices = indices;
+	}
+
+	/**
+	 * Computes the index of the specified expression.
+	 *
+	 * {@link Expression#captureIndex()} returns the same index, computed
+	 * once per expression object.
+	 *
+	 * @param expression
+	 * 	the expression to examine; must not be <code>null</code>.
+	 * @return a new index.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static CaptureIndex of(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final Numbering numbering = new Numbering();
+		numbering.walk(expression);
+		return new CaptureIndex(expression, numbering.count, numbering.indices);
+	}
+
+	/**
+	 * Returns the number of the group formed by the specified node.
+	 *
+	 * @param capture
+	 * 	a node that occurs exactly once in the expression; must not be
+	 * 	<code>null</code>.
+	 * @return the group number, between 1 and {@link #groupCount}.
+	 * @throws NullPointerException
+	 * 	if <var>capture</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>capture</var> does not occur in the expression, or occurs
+	 * 	more than once.
+	 */
+	public int indexOf(final Group.Capture capture)
+	{
+		final int[] found = lookup(capture);
+		if (found.length > 1)
+			throw new IllegalArgumentException("Group occurs " + found.length + " times: " + capture);
+		return found[0];
+	}
+
+	/**
+	 * Returns the numbers of all the groups formed by the specified node,
+	 * in ascending order.
+	 *
+	 * @param capture
+	 * 	a node that occurs in the expression; must not be <code>null</code>.
+	 * @return a new array of group numbers.
+	 * @throws NullPointerException
+	 * 	if <var>capture</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>capture</var> does not occur in the expression.
+	 */
+	public int[] indicesOf(final Group.Capture capture)
+	{return lookup(capture).clone();}
+
+	/**
+	 * Indicates whether the specified node occurs in the expression.
+	 */
+	public boolean contains(final Group.Capture capture)
+	{return indices.containsKey(capture);}
+
+	private int[] lookup(final Group.Capture capture)
+	{
+		if (capture == null) throw new NullPointerException("capture");
+		final int[] found = indices.get(capture);
+		if (found == null)
+			throw new IllegalArgumentException("Group does not occur in the expression: " + capture);
+		return found;
+	}
+
+
+	/**
+	 * Numbers capturing groups in the order in which they open.
+	 */
+	private static final class Numbering extends ExpressionVisitor
+	{
+		final IdentityHashMap<Group.Capture, int[]> indices = new IdentityHashMap<Group.Capture, int[]>();
+		int count = 0;
+
+		@Override
+		protected boolean enter(final Expression expression)
+		{
+			if (expression instanceof Group.Capture)
+			{
+				final Group.Capture capture = (Group.Capture) expression;
+				final int[] previous = indices.get(capture);
+				final int[] current = previous == null ? new int[1] : Arrays.copyOf(previous, previous.length + 1);
+				current[current.length - 1] = ++count;
+				indices.put(capture, current);
+			}
+			else if (expression instanceof Adopted)
+				// Only the adopted expression's own pattern knows its groups.
+				count += expression.toPattern().matcher("").groupCount();
+			return true;
+		}
+	}
+}
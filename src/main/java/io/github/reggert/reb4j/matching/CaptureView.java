@@ -0,0 +1,307 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Group;
+
+import java.util.regex.MatchResult;
+
+/**
+ * The capturing groups of a match, as offsets into the matched input.
+ *
+ * Unlike {@link MatchResult#group(int)}, nothing here copies characters out
+ * of the input: {@link #group(int)} returns a view of the input, and
+ * {@link #parseInt(int)} parses the digits where they are. A view keeps
+ * its own copy of the offsets, so the {@link java.util.regex.Matcher} that
+ * produced it may be reused as soon as the view has been created.
+ *
+ * Groups are numbered as they are by {@link java.util.regex.Matcher}, with
+ * group 0 being the entire match. Views created with a {@link CaptureIndex}
+ * can also look groups up by their {@link Group.Capture} nodes. Instances
+ * of this class are immutable, provided that the input is not modified.
+ */
+public final class CaptureView
+{
+	private final CharSequence input;
+	private final int[] offsets;
+	private final CaptureIndex index;
+
+	/**
+	 * Captures the offsets of the groups of a successful match.
+	 *
+	 * @param result
+	 * 	the result of the match; must not be <code>null</code>.
+	 * @param input
+	 * 	the input that was matched; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if either argument is <code>null</code>.
+	 * @throws IllegalStateException
+	 * 	if <var>result</var> does not describe a successful match.
+	 */
+	public CaptureView(final MatchResult result, final CharSequence input)
+	{this(result, input, null);}
+
+	/**
+	 * Captures the offsets of the groups of a successful match of the
+	 * expression described by the specified index.
+	 *
+	 * @param result
+	 * 	the result of the match; must not be <code>null</code>.
+	 * @param input
+	 * 	the input that was matched; must not be <code>null</code>.
+	 * @param index
+	 * 	the index of the expression that was matched, or <code>null</code>
+	 * 	if groups are only to be looked up by number.
+	 * @throws NullPointerException
+	 * 	if <var>result</var> or <var>input</var> is <code>null</code>.
+	 * @throws IllegalStateException
+	 * 	if <var>result</var> does not describe a successful match.
+	 * @throws IllegalArgumentException
+	 * 	if <var>index</var> has a different number of groups.
+	 */
+	public CaptureView(final MatchResult result, final CharSequence input, final CaptureIndex index)
+	{
+		if (result == null) throw new NullPointerException("result");
+		if (input == null) throw new NullPointerException("input");
+		if (index != null && index.groupCount != result.groupCount())
+			throw new IllegalArgumentException(
+					"Index has " + index.groupCount + " groups, but the match has " + result.groupCount()
+				);
+		this.input = input;
+		this.index = index;
+		final int groupCount = result.groupCount();
+		this.offsets = new int[2 * (groupCount + 1)];
+		for (int group = 0; group <= groupCount; group++)
+		{
+			offsets[2 * group] = result.start(group);
+			offsets[2 * group + 1] = result.end(group);
+		}
+	}
+
+	/**
+	 * Returns the input that was matched.
+	 */
+	public CharSequence input()
+	{return input;}
+
+	/**
+	 * Returns the number of capturing groups, not counting group 0.
+	 */
+	public int groupCount()
+	{return offsets.length / 2 - 1;}
+
+	/**
+	 * Indicates whether the specified group took part in the match.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 */
+	public boolean matched(final int group)
+	{return start(group) >= 0;}
+
+	/**
+	 * Returns the offset of the first character captured by the specified
+	 * group, or -1 if the group did not take part in the match.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 * @see MatchResult#start(int)
+	 */
+	public int start(final int group)
+	{return offsets[2 * checkGroup(group)];}
+
+	/**
+	 * Returns the offset after the last character captured by the specified
+	 * group, or -1 if the group did not take part in the match.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 * @see MatchResult#end(int)
+	 */
+	public int end(final int group)
+	{return offsets[2 * checkGroup(group) + 1];}
+
+	/**
+	 * Returns the text captured by the specified group, as a view of the
+	 * input rather than a copy of it.
+	 *
+	 * @return the captured text, or <code>null</code> if the group did not
+	 * 	take part in the match.
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 * @see MatchResult#group(int)
+	 */
+	public CharSequence group(final int group)
+	{
+		final int start = start(group);
+		return start < 0 ? null : new Span(input, start, end(group));
+	}
+
+	/**
+	 * Parses the text captured by the specified group as a signed decimal
+	 * integer, as {@link Integer#parseInt(String)} would.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 * @throws NumberFormatException
+	 * 	if the group did not take part in the match, or did not capture
+	 * 	a representable integer.
+	 */
+	public int parseInt(final int group)
+	{return parseInt(group, 10);}
+
+	/**
+	 * Parses the text captured by the specified group as a signed integer
+	 * in the specified radix, as {@link Integer#parseInt(String, int)}
+	 * would.
+	 *
+	 * @throws IndexOutOfBoundsException
+	 * 	if there is no such group.
+	 * @throws NumberFormatException
+	 * 	if the group did not take part in the match, or did not capture
+	 * 	a representable integer, or <var>radix</var> is out of range.
+	 */
+	public int parseInt(final int group, final int radix)
+	{
+		final int start = start(group);
+		if (start < 0)
+			throw new NumberFormatException("Group " + group + " did not take part in the match");
+		final int end = end(group);
+		if (radix < Character.MIN_RADIX || radix > Character.MAX_RADIX)
+			throw new NumberFormatException("Radix out of range: " + radix);
+		if (start == end)
+			throw new NumberFormatException("Group " + group + " is empty");
+		int i = start;
+		final char first = input.charAt(i);
+		final boolean negative = first == '-';
+		if (negative || first == '+')
+		{
+			if (++i == end)
+				throw numberFormatException(start, end);
+		}
+		// Accumulate negatively, since the magnitude of MIN_VALUE is the larger.
+		final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		final int multiplicationLimit = limit / radix;
+		int result = 0;
+		for (; i < end; i++)
+		{
+			final int digit = Character.digit(input.charAt(i), radix);
+			if (digit < 0 || result < multiplicationLimit)
+				throw numberFormatException(start, end);
+			result *= radix;
+			if (result < limit + digit)
+				throw numberFormatException(start, end);
+			result -= digit;
+		}
+		return negative ? result : -result;
+	}
+
+	/**
+	 * Returns the offset of the first character captured by the specified
+	 * group, or -1 if it did not take part in the match.
+	 *
+	 * @throws IllegalStateException
+	 * 	if this view has no index.
+	 * @throws IllegalArgumentException
+	 * 	if the group does not occur exactly once in the expression.
+	 * @see CaptureIndex#indexOf(Group.Capture)
+	 */
+	public int start(final Group.Capture group)
+	{return start(indexOf(group));}
+
+	/**
+	 * Returns the offset after the last character captured by the
+	 * specified group, or -1 if it did not take part in the match.
+	 *
+	 * @throws IllegalStateException
+	 * 	if this view has no index.
+	 * @throws IllegalArgumentException
+	 * 	if the group does not occur exactly once in the expression.
+	 */
+	public int end(final Group.Capture group)
+	{return end(indexOf(group));}
+
+	/**
+	 * Returns a view of the text captured by the specified group, or
+	 * <code>null</code> if it did not take part in the match.
+	 *
+	 * @throws IllegalStateException
+	 * 	if this view has no index.
+	 * @throws IllegalArgumentException
+	 * 	if the group does not occur exactly once in the expression.
+	 */
+	public CharSequence group(final Group.Capture group)
+	{return group(indexOf(group));}
+
+	/**
+	 * Parses the text captured by the specified group as a signed decimal
+	 * integer.
+	 *
+	 * @throws IllegalStateException
+	 * 	if this view has no index.
+	 * @throws IllegalArgumentException
+	 * 	if the group does not occur exactly once in the expression.
+	 * @throws NumberFormatException
+	 * 	if the group did not take part in the match, or did not capture
+	 * 	a representable integer.
+	 */
+	public int parseInt(final Group.Capture group)
+	{return parseInt(indexOf(group), 10);}
+
+	private int indexOf(final Group.Capture group)
+	{
+		if (index == null)
+			throw new IllegalStateException("Groups can only be looked up by number in views created without an index");
+		return index.indexOf(group);
+	}
+
+	private NumberFormatException numberFormatException(final int start, final int end)
+	{return new NumberFormatException("For input string: \"" + input.subSequence(start, end) + "\"");}
+
+	private int checkGroup(final int group)
+	{
+		if (group < 0 || group > groupCount())
+			throw new IndexOutOfBoundsException("No group " + group);
+		return group;
+	}
+
+
+	/**
+	 * A range of characters of another sequence.
+	 */
+	private static final class Span implements CharSequence
+	{
+		private final CharSequence sequence;
+		private final int start;
+		private final int end;
+
+		Span(final CharSequence sequence, final int start, final int end)
+		{
+			this.sequence = sequence;
+			this.start = start;
+			this.end = end;
+		}
+
+		@Override
+		public int length()
+		{return end - start;}
+
+		@Override
+		public char charAt(final int index)
+		{
+			if (index < 0 || index >= length())
+				throw new IndexOutOfBoundsException("index " + index + ", length " + length());
+			return sequence.charAt(start + index);
+		}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end)
+		{
+			if (start < 0 || end > length() || start > end)
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + length());
+			return new Span(sequence, this.start + start, this.start + end);
+		}
+
+		@Override
+		public String toString()
+		{return sequence.subSequence(start, end).toString();}
+	}
+}
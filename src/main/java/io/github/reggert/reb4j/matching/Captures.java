@@ -0,0 +1,112 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Expression;
+
+import java.util.regex.Matcher;
+
+/**
+ * Matches input against an expression and returns its capturing groups as
+ * {@link CaptureView}s, which refer to the captured text by its offsets in
+ * the input instead of copying it.
+ *
+ * Groups are numbered by the expression's {@link CaptureIndex}, computed
+ * from the expression tree itself, so the views that this returns can
+ * look groups up by their {@link io.github.reggert.reb4j.Group.Capture}
+ * nodes as well as by number. Matchers come from the expression's
+ * {@link Expression#matching() pool}, and are returned to it before the
+ * view is handed to the caller.
+ *
+ * Instances of this class are thread-safe.
+ */
+public final class Captures
+{
+	public final Expression expression;
+	public final CaptureIndex index;
+	/**
+	 * The number of capturing groups in the expression, not counting
+	 * group 0.
+	 */
+	public final int groupCount;
+	private final MatcherPool pool;
+
+	/**
+	 * Constructs an instance for the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to match; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public Captures(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		this.expression = expression;
+		this.index = expression.captureIndex();
+		this.groupCount = index.groupCount;
+		this.pool = expression.matching();
+	}
+
+	/**
+	 * Matches the entire input against the expression.
+	 *
+	 * @param input
+	 * 	the text to match; must not be <code>null</code>.
+	 * @return the groups captured by the match, or <code>null</code> if
+	 * 	the input does not match.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see Matcher#matches()
+	 */
+	public CaptureView matches(final CharSequence input)
+	{
+		final Matcher matcher = pool.acquire(input);
+		try
+		{
+			return matcher.matches() ? new CaptureView(matcher, input, index) : null;
+		}
+		finally
+		{
+			pool.release(matcher);
+		}
+	}
+
+	/**
+	 * Finds the first part of the input that matches the expression.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @return the groups captured by the match, or <code>null</code> if
+	 * 	no part of the input matches.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see Matcher#find()
+	 */
+	public CaptureView find(final CharSequence input)
+	{
+		final Matcher matcher = pool.acquire(input);
+		try
+		{
+			return matcher.find() ? new CaptureView(matcher, input, index) : null;
+		}
+		finally
+		{
+			pool.release(matcher);
+		}
+	}
+
+	/**
+	 * Counts the capturing groups in the specified expression, without
+	 * compiling it.
+	 *
+	 * @param expression
+	 * 	the expression to examine; must not be <code>null</code>.
+	 * @return the number of capturing groups, not counting group 0.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public static int groupCount(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		return expression.captureIndex().groupCount;
+	}
+}
@@ -0,0 +1,63 @@
+package io.github.reggert.reb4j.matching;
+
+/**
+ * Strategy for testing input against a regular expression.
+ *
+ * Implementations must give the same answers as the
+ * {@link java.util.regex.Pattern} compiled from the expression they were
+ * built for, and must be safe for use by multiple threads.
+ */
+public interface ExpressionMatcher
+{
+	/**
+	 * Indicates whether the entire input matches the expression.
+	 *
+	 * @param input
+	 * 	the text to test; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see java.util.regex.Matcher#matches()
+	 */
+	boolean matches(CharSequence input);
+
+	/**
+	 * Indicates whether any part of the input matches the expression.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 * @see java.util.regex.Matcher#find()
+	 */
+	boolean find(CharSequence input);
+
+	/**
+	 * Indicates whether the entire input matches the expression, giving up
+	 * if the match exceeds the specified budget.
+	 *
+	 * @param input
+	 * 	the text to test; must not be <code>null</code>.
+	 * @param budget
+	 * 	the limit on the work done; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> or <var>budget</var> is <code>null</code>.
+	 * @throws MatchBudgetExceededException
+	 * 	if the budget is exceeded.
+	 */
+	boolean matches(CharSequence input, MatchBudget budget);
+
+	/**
+	 * Indicates whether any part of the input matches the expression,
+	 * giving up if the search exceeds the specified budget.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @param budget
+	 * 	the limit on the work done; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> or <var>budget</var> is <code>null</code>.
+	 * @throws MatchBudgetExceededException
+	 * 	if the budget is exceeded.
+	 */
+	boolean find(CharSequence input, MatchBudget budget);
+}
@@ -0,0 +1,78 @@
+package io.github.reggert.reb4j.matching;
+
+import java.util.Arrays;
+
+/**
+ * Substring search for a fixed literal using the Boyer-Moore-Horspool
+ * algorithm.
+ *
+ * Searches within {@link String}s are delegated to
+ * {@link String#indexOf(String)}, which the JVM already optimizes.
+ */
+final class LiteralSearch
+{
+	private final String literal;
+	private final int[] shift;
+
+	LiteralSearch(final String literal)
+	{
+		if (literal == null) throw new NullPointerException("literal");
+		this.literal = literal;
+		final int length = literal.length();
+		this.shift = new int[256];
+		Arrays.fill(shift, length);
+		// Characters that collide in the low byte keep the smallest shift,
+		// since later positions overwrite earlier ones.
+		for (int i = 0; i < length - 1; i++)
+			shift[literal.charAt(i) & 0xff] = length - 1 - i;
+	}
+
+	/**
+	 * Indicates whether the literal occurs anywhere in the input.
+	 */
+	boolean foundIn(final CharSequence input)
+	{
+		if (input instanceof String)
+			return ((String) input).indexOf(literal) >= 0;
+		final int length = literal.length();
+		if (length == 0)
+			return true;
+		final int inputLength = input.length();
+		final char last = literal.charAt(length - 1);
+		int end = length - 1;
+		while (end < inputLength)
+		{
+			final char c = input.charAt(end);
+			if (c == last && matchesAt(input, end - length + 1))
+				return true;
+			end += shift[c & 0xff];
+		}
+		return false;
+	}
+
+	/**
+	 * Indicates whether the input begins with the literal.
+	 */
+	boolean prefixOf(final CharSequence input)
+	{
+		return input.length() >= literal.length() && matchesAt(input, 0);
+	}
+
+	/**
+	 * Indicates whether the input ends with the literal.
+	 */
+	boolean suffixOf(final CharSequence input)
+	{
+		final int start = input.length() - literal.length();
+		return start >= 0 && matchesAt(input, start);
+	}
+
+	private boolean matchesAt(final CharSequence input, final int start)
+	{
+		final int length = literal.length();
+		for (int i = 0; i < length; i++)
+			if (input.charAt(start + i) != literal.charAt(i))
+				return false;
+		return true;
+	}
+}
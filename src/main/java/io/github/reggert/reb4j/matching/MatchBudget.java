@@ -0,0 +1,196 @@
+package io.github.reggert.reb4j.matching;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit on the work done by a single attempt to match, so that a
+ * pathological input cannot hold a thread indefinitely.
+ *
+ * {@link java.util.regex.Pattern} offers no way to cancel a match, but it
+ * reads its input only through {@link CharSequence#charAt(int)}. A budget
+ * is therefore enforced by {@linkplain #guard(CharSequence) wrapping the
+ * input} in a sequence that counts the characters read: each read is one
+ * step. Backtracking reads the same characters again and again, so the
+ * number of steps grows with the work done rather than with the length of
+ * the input. Every {@value #CHECK_INTERVAL} steps, the wrapper also checks
+ * the clock against the timeout, and whether the thread has been
+ * interrupted. When any of these limits is reached, the read throws a
+ * {@link MatchBudgetExceededException}, which unwinds the match.
+ * Reading through the wrapper is not free: a search that reads each
+ * character once takes about twice as long as on the bare input.
+ *
+ * The budget applies afresh to each guarded input: the step count starts
+ * at zero and the timeout starts when {@link #guard(CharSequence)} is
+ * called. Instances of this class are immutable and thread-safe; the
+ * guarded inputs are not, and are meant for a single match.
+ *
+ * @see ExpressionMatcher#matches(CharSequence, MatchBudget)
+ * @see ExpressionMatcher#find(CharSequence, MatchBudget)
+ */
+public final class MatchBudget
+{
+	/**
+	 * The number of steps between checks of the clock and of the thread's
+	 * interrupted status.
+	 */
+	public static final int CHECK_INTERVAL = 1024;
+
+	/**
+	 * Budget that only stops a match when the thread is interrupted.
+	 */
+	public static final MatchBudget UNLIMITED = new MatchBudget(Long.MAX_VALUE, Long.MAX_VALUE);
+
+	/**
+	 * The maximum number of characters read, or {@link Long#MAX_VALUE} if
+	 * unlimited.
+	 */
+	public final long steps;
+
+	/**
+	 * The maximum duration of a match in nanoseconds, or
+	 * {@link Long#MAX_VALUE} if unlimited.
+	 */
+	public final long timeoutNanos;
+
+	private MatchBudget(final long steps, final long timeoutNanos)
+	{
+		this.steps = steps;
+		this.timeoutNanos = timeoutNanos;
+	}
+
+	/**
+	 * Creates a budget of the specified number of steps.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	if <var>steps</var> is negative.
+	 */
+	public static MatchBudget steps(final long steps)
+	{return UNLIMITED.withSteps(steps);}
+
+	/**
+	 * Creates a budget of the specified duration.
+	 *
+	 * @throws NullPointerException
+	 * 	if <var>unit</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>timeout</var> is negative.
+	 */
+	public static MatchBudget timeout(final long timeout, final TimeUnit unit)
+	{return UNLIMITED.withTimeout(timeout, unit);}
+
+	/**
+	 * Returns a budget like this one, limited to the specified number of
+	 * steps.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	if <var>steps</var> is negative.
+	 */
+	public MatchBudget withSteps(final long steps)
+	{
+		if (steps < 0) throw new IllegalArgumentException("steps must not be negative: " + steps);
+		return new MatchBudget(steps, timeoutNanos);
+	}
+
+	/**
+	 * Returns a budget like this one, limited to the specified duration.
+	 *
+	 * @throws NullPointerException
+	 * 	if <var>unit</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>timeout</var> is negative.
+	 */
+	public MatchBudget withTimeout(final long timeout, final TimeUnit unit)
+	{
+		if (unit == null) throw new NullPointerException("unit");
+		if (timeout < 0) throw new IllegalArgumentException("timeout must not be negative: " + timeout);
+		return new MatchBudget(steps, unit.toNanos(timeout));
+	}
+
+	/**
+	 * Wraps the specified input so that reading it beyond this budget
+	 * throws {@link MatchBudgetExceededException}.
+	 *
+	 * @param input
+	 * 	the text to match; must not be <code>null</code>.
+	 * @return a sequence of the same characters, to be matched once.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 */
+	public CharSequence guard(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		return new Guarded(input, this);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MatchBudget[steps=" + (steps == Long.MAX_VALUE ? "unlimited" : Long.toString(steps))
+			+ ", timeout=" + (timeoutNanos == Long.MAX_VALUE ? "unlimited" : timeoutNanos + "ns") + "]";
+	}
+
+
+	/**
+	 * Input that counts down the steps remaining until the next check.
+	 */
+	private static final class Guarded implements CharSequence
+	{
+		private final CharSequence input;
+		private final MatchBudget budget;
+		private final long started;
+		private long taken = 0;
+		// Steps allowed by the last check, and how many of them are left.
+		private int allowed;
+		private int remaining;
+
+		Guarded(final CharSequence input, final MatchBudget budget)
+		{
+			this.input = input;
+			this.budget = budget;
+			this.started = budget.timeoutNanos == Long.MAX_VALUE ? 0L : System.nanoTime();
+			this.allowed = (int) Math.min(CHECK_INTERVAL, budget.steps);
+			this.remaining = allowed;
+		}
+
+		@Override
+		public char charAt(final int index)
+		{
+			if (--remaining < 0)
+				check();
+			return input.charAt(index);
+		}
+
+		/*
+		 * Called on the first read after the allowed steps have been taken;
+		 * either throws, or allows up to another interval of steps,
+		 * including this read.
+		 */
+		private void check()
+		{
+			taken += allowed;
+			if (taken >= budget.steps)
+				throw new MatchBudgetExceededException("Match exceeded its budget of " + budget.steps + " steps", taken);
+			if (budget.timeoutNanos != Long.MAX_VALUE && System.nanoTime() - started >= budget.timeoutNanos)
+				throw new MatchBudgetExceededException(
+						"Match exceeded its timeout of " + budget.timeoutNanos + "ns",
+						taken
+					);
+			if (Thread.currentThread().isInterrupted())
+				throw new MatchBudgetExceededException("Match was interrupted", taken);
+			allowed = (int) Math.min(CHECK_INTERVAL, budget.steps - taken);
+			remaining = allowed - 1;
+		}
+
+		@Override
+		public int length()
+		{return input.length();}
+
+		@Override
+		public CharSequence subSequence(final int start, final int end)
+		{return input.subSequence(start, end);}
+
+		@Override
+		public String toString()
+		{return input.toString();}
+	}
+}
@@ -0,0 +1,25 @@
+package io.github.reggert.reb4j.matching;
+
+/**
+ * Thrown when a match is abandoned because it has exceeded its
+ * {@link MatchBudget}, or because its thread was interrupted.
+ */
+public final class MatchBudgetExceededException extends RuntimeException
+{
+	private static final long serialVersionUID = 1L;
+	private final long steps;
+
+	public MatchBudgetExceededException(final String message, final long steps)
+	{
+		super(message);
+		this.steps = steps;
+	}
+
+	/**
+	 * Returns the number of steps taken before the match was abandoned.
+	 */
+	public long getSteps()
+	{
+		return steps;
+	}
+}
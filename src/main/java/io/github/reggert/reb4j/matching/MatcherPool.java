@@ -0,0 +1,187 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Expression;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded pool of reusable {@link Matcher}s for an expression.
+ *
+ * Creating a {@link Matcher} allocates its group and state arrays; matching
+ * many inputs with <code>toPattern().matcher(input)</code> thus allocates for
+ * every input. A pool hands out matchers that have been reset to the new
+ * input instead, and {@link #matches(CharSequence)} and
+ * {@link #find(CharSequence)} allocate nothing once the pool has warmed up.
+ *
+ * The pool is a fixed number of slots that are claimed and returned with
+ * atomic operations. No thread ever blocks or holds a monitor, so the pool
+ * is safe to use from virtual threads; and since matchers are not tied to
+ * threads, their number is bounded by the capacity rather than by the number
+ * of threads. When every slot is empty, a new matcher is created; when every
+ * slot is full, a released matcher is discarded.
+ *
+ * Instances of this class are thread-safe; the matchers that they hand out
+ * are not, and must not be used after being released.
+ *
+ * @see Expression#matching()
+ */
+public final class MatcherPool implements ExpressionMatcher
+{
+	/**
+	 * The number of slots in pools constructed without a capacity.
+	 */
+	public static final int DEFAULT_CAPACITY = 2 * Runtime.getRuntime().availableProcessors();
+
+	public final Expression expression;
+	private final Pattern pattern;
+	private final AtomicReferenceArray<Matcher> slots;
+
+	/**
+	 * Constructs a pool with the default capacity.
+	 *
+	 * @param expression
+	 * 	the expression to match; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public MatcherPool(final Expression expression)
+	{this(expression, DEFAULT_CAPACITY);}
+
+	/**
+	 * Constructs a pool that keeps up to the specified number of matchers.
+	 *
+	 * @param expression
+	 * 	the expression to match; must not be <code>null</code>.
+	 * @param capacity
+	 * 	the maximum number of idle matchers kept; must be positive.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>capacity</var> is not positive.
+	 */
+	public MatcherPool(final Expression expression, final int capacity)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		if (capacity < 1) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+		this.expression = expression;
+		this.pattern = expression.toPattern();
+		this.slots = new AtomicReferenceArray<Matcher>(capacity);
+	}
+
+	/**
+	 * Returns a matcher for the expression, reset to the specified input.
+	 *
+	 * The matcher should be passed to {@link #release(Matcher)} when it is
+	 * no longer needed; a matcher that is not released is simply garbage
+	 * collected.
+	 *
+	 * @param input
+	 * 	the text to match; must not be <code>null</code>.
+	 * @return a matcher that no other caller is using.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 */
+	public Matcher acquire(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		final int capacity = slots.length();
+		final int start = start(capacity);
+		for (int i = 0; i < capacity; i++)
+		{
+			final Matcher matcher = slots.getAndSet((start + i) % capacity, null);
+			if (matcher != null)
+				return matcher.reset(input);
+		}
+		return pattern.matcher(input);
+	}
+
+	/**
+	 * Returns a matcher to the pool.
+	 *
+	 * The matcher is reset to empty input first, so that the pool does not
+	 * keep the last input reachable.
+	 *
+	 * @param matcher
+	 * 	a matcher obtained from {@link #acquire(CharSequence)}, which the
+	 * 	caller must not use again; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>matcher</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if <var>matcher</var> does not use this pool's pattern.
+	 */
+	public void release(final Matcher matcher)
+	{
+		if (matcher == null) throw new NullPointerException("matcher");
+		if (matcher.pattern() != pattern)
+			throw new IllegalArgumentException("Matcher was not acquired from this pool");
+		matcher.reset("");
+		final int capacity = slots.length();
+		final int start = start(capacity);
+		for (int i = 0; i < capacity; i++)
+			if (slots.compareAndSet((start + i) % capacity, null, matcher))
+				return;
+	}
+
+	@Override
+	public boolean matches(final CharSequence input)
+	{
+		final Matcher matcher = acquire(input);
+		try
+		{
+			return matcher.matches();
+		}
+		finally
+		{
+			release(matcher);
+		}
+	}
+
+	@Override
+	public boolean find(final CharSequence input)
+	{
+		final Matcher matcher = acquire(input);
+		try
+		{
+			return matcher.find();
+		}
+		finally
+		{
+			release(matcher);
+		}
+	}
+
+	@Override
+	public boolean matches(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return matches(budget.guard(input));
+	}
+
+	@Override
+	public boolean find(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return find(budget.guard(input));
+	}
+
+	/**
+	 * Returns the number of idle matchers in the pool.
+	 */
+	public int idleCount()
+	{
+		int count = 0;
+		for (int i = 0; i < slots.length(); i++)
+			if (slots.get(i) != null)
+				count++;
+		return count;
+	}
+
+	/*
+	 * Threads start probing at different slots, so that concurrent callers
+	 * rarely contend for the same one.
+	 */
+	private static int start(final int capacity)
+	{return (System.identityHashCode(Thread.currentThread()) & 0x7fffffff) % capacity;}
+}
@@ -0,0 +1,349 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.ExpressionVisitor;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import fj.data.List;
+
+/**
+ * Finds every match of an expression in a large input by scanning chunks
+ * of it in parallel on a {@link ForkJoinPool}.
+ *
+ * The result is the same sequence of matches that a single
+ * <code>while (matcher.find())</code> loop over the whole input would
+ * produce. Each chunk is scanned with transparent, non-anchoring bounds,
+ * so that look-around, anchors and word boundaries see the characters on
+ * either side of it. The input is divided in one of two ways:
+ * <ul>
+ * <li>{@linkplain #records(Expression, char) On record boundaries}: each
+ * 	chunk ends just after a separator character, such as a line feed. This
+ * 	requires that no match cross a record boundary, which is up to the
+ * 	caller to ensure.</li>
+ * <li>{@linkplain #overlapping(Expression) With overlap}: each chunk is
+ * 	scanned past its end by enough characters to hold any match, as
+ * 	determined by {@link Expression#boundedLength()}. Where a match found in
+ * 	one chunk extends into the next, the next chunk is rescanned from the
+ * 	end of that match until it agrees with the sequential scan again.</li>
+ * </ul>
+ * Expressions that use <code>\G</code> depend on where the previous match
+ * ended, and cannot be scanned in parallel.
+ *
+ * The input is read concurrently by several threads, so it must not be
+ * modified during a scan; a {@link String}, or a {@link java.nio.CharBuffer}
+ * decoded from a (possibly memory-mapped) file, are suitable.
+ *
+ * Instances of this class are immutable and thread-safe.
+ */
+public final class ParallelScanner
+{
+	/**
+	 * The number of characters in each chunk of scanners constructed
+	 * without a chunk size.
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	public final Expression expression;
+	private final Pattern pattern;
+	private final CaptureIndex index;
+	// The separator, or -1 for overlapping chunks.
+	private final int separator;
+	private final int overlap;
+	private final int chunkSize;
+	private final ForkJoinPool pool;
+
+	private ParallelScanner(
+			final Expression expression,
+			final int separator,
+			final int overlap,
+			final int chunkSize,
+			final ForkJoinPool pool
+		)
+	{
+		this.expression = expression;
+		this.pattern = expression.toPattern();
+		this.index = expression.captureIndex();
+		this.separator = separator;
+		this.overlap = overlap;
+		this.chunkSize = chunkSize;
+		this.pool = pool;
+	}
+
+	/**
+	 * Creates a scanner that divides its input after occurrences of the
+	 * specified separator, using the common pool and the default chunk
+	 * size.
+	 *
+	 * @param expression
+	 * 	the expression to find; must not be <code>null</code>, and must not
+	 * 	match text that crosses a separator.
+	 * @param separator
+	 * 	the character that ends each record.
+	 * @return a new scanner.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if the expression uses <code>\G</code>.
+	 */
+	public static ParallelScanner records(final Expression expression, final char separator)
+	{
+		checkParallelizable(expression);
+		return new ParallelScanner(expression, separator, 0, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Creates a scanner that divides its input anywhere, overlapping the
+	 * chunks by the maximum length of a match, using the common pool and
+	 * the default chunk size.
+	 *
+	 * @param expression
+	 * 	the expression to find; must not be <code>null</code>.
+	 * @return a new scanner.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 * @throws IllegalArgumentException
+	 * 	if the expression is not of bounded length, or uses <code>\G</code>.
+	 */
+	public static ParallelScanner overlapping(final Expression expression)
+	{
+		checkParallelizable(expression);
+		final Integer boundedLength = expression.boundedLength();
+		if (boundedLength == null)
+			throw new IllegalArgumentException("Expression is not of bounded length: " + expression);
+		// Bounded lengths count characters that may be surrogate pairs.
+		final int overlap = (int) Math.min(2L * boundedLength.intValue(), Integer.MAX_VALUE);
+		return new ParallelScanner(expression, -1, overlap, DEFAULT_CHUNK_SIZE, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Returns a scanner like this one that divides its input into chunks
+	 * of about the specified number of characters.
+	 *
+	 * @throws IllegalArgumentException
+	 * 	if <var>chunkSize</var> is not positive.
+	 */
+	public ParallelScanner withChunkSize(final int chunkSize)
+	{
+		if (chunkSize < 1) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+		return new ParallelScanner(expression, separator, overlap, chunkSize, pool);
+	}
+
+	/**
+	 * Returns a scanner like this one that scans chunks on the specified
+	 * pool.
+	 *
+	 * @throws NullPointerException
+	 * 	if <var>pool</var> is <code>null</code>.
+	 */
+	public ParallelScanner withPool(final ForkJoinPool pool)
+	{
+		if (pool == null) throw new NullPointerException("pool");
+		return new ParallelScanner(expression, separator, overlap, chunkSize, pool);
+	}
+
+	/**
+	 * Finds every match of the expression in the input.
+	 *
+	 * @param input
+	 * 	the text to search; must not be <code>null</code>.
+	 * @return the matches, in the order in which they occur.
+	 * @throws NullPointerException
+	 * 	if <var>input</var> is <code>null</code>.
+	 */
+	public List<CaptureView> findAll(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		final int[] starts = chunkStarts(input);
+		final int chunks = starts.length - 1;
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		final ArrayList<CaptureView>[] found = new ArrayList[chunks];
+		if (chunks == 1)
+			new Scan(input, starts, found, 0, 1).compute();
+		else
+			pool.invoke(new Scan(input, starts, found, 0, chunks));
+		return merge(input, starts, found);
+	}
+
+	/*
+	 * Returns the offsets at which chunks begin, followed by the length of
+	 * the input.
+	 */
+	private int[] chunkStarts(final CharSequence input)
+	{
+		final int length = input.length();
+		final ArrayList<Integer> starts = new ArrayList<Integer>();
+		int start = 0;
+		do
+		{
+			starts.add(start);
+			int end = (int) Math.min((long) start + chunkSize, length);
+			if (separator >= 0)
+			{
+				while (end < length && input.charAt(end - 1) != separator)
+					end++;
+			}
+			start = end;
+		}
+		while (start < length);
+		starts.add(length);
+		final int[] result = new int[starts.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = starts.get(i);
+		return result;
+	}
+
+	private int regionEnd(final int[] starts, final int chunk)
+	{
+		final int end = starts[chunk + 1];
+		return (int) Math.min((long) end + overlap, starts[starts.length - 1]);
+	}
+
+	private Matcher matcher(final CharSequence input)
+	{
+		final Matcher matcher = pattern.matcher(input);
+		matcher.useTransparentBounds(true);
+		matcher.useAnchoringBounds(false);
+		return matcher;
+	}
+
+	/*
+	 * Collects the matches that begin within the specified chunk, assuming
+	 * that the sequential scan resumes at the start of the chunk.
+	 */
+	private ArrayList<CaptureView> scan(final CharSequence input, final int[] starts, final int chunk)
+	{
+		final ArrayList<CaptureView> found = new ArrayList<CaptureView>();
+		final Matcher matcher = matcher(input);
+		matcher.region(starts[chunk], regionEnd(starts, chunk));
+		final boolean last = chunk == starts.length - 2;
+		while (matcher.find() && (last || matcher.start() < starts[chunk + 1]))
+			found.add(new CaptureView(matcher, input, index));
+		return found;
+	}
+
+	/*
+	 * Concatenates the matches found in each chunk. Where the sequential
+	 * scan would resume past the start of a chunk, because a match extends
+	 * into it, the chunk is rescanned from there until a match coincides
+	 * with one found by the parallel scan; from then on, the two agree.
+	 */
+	private List<CaptureView> merge(final CharSequence input, final int[] starts, final ArrayList<CaptureView>[] found)
+	{
+		final List.Buffer<CaptureView> merged = new List.Buffer<CaptureView>();
+		int resume = 0;
+		Matcher matcher = null;
+		for (int chunk = 0; chunk < found.length; chunk++)
+		{
+			final ArrayList<CaptureView> matches = found[chunk];
+			int next = 0;
+			if (resume > starts[chunk])
+			{
+				next = matches.size();
+				final int regionEnd = regionEnd(starts, chunk);
+				final boolean last = chunk == found.length - 1;
+				if (resume <= regionEnd)
+				{
+					if (matcher == null)
+						matcher = matcher(input);
+					matcher.region(resume, regionEnd);
+					int candidate = 0;
+					while (matcher.find() && (last || matcher.start() < starts[chunk + 1]))
+					{
+						while (candidate < matches.size() && matches.get(candidate).start(0) < matcher.start())
+							candidate++;
+						if (candidate < matches.size()
+							&& matches.get(candidate).start(0) == matcher.start()
+							&& matches.get(candidate).end(0) == matcher.end())
+						{
+							next = candidate;
+							break;
+						}
+						final CaptureView view = new CaptureView(matcher, input, index);
+						merged.snoc(view);
+						resume = resumption(view);
+					}
+				}
+			}
+			for (int i = next; i < matches.size(); i++)
+			{
+				merged.snoc(matches.get(i));
+				resume = resumption(matches.get(i));
+			}
+		}
+		return merged.toList();
+	}
+
+	/*
+	 * The offset at which Matcher.find() resumes after the specified match.
+	 */
+	private static int resumption(final CaptureView match)
+	{
+		final int end = match.end(0);
+		return end == match.start(0) ? end + 1 : end;
+	}
+
+	private static void checkParallelizable(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		final ExpressionVisitor visitor = new ExpressionVisitor()
+		{
+			@Override
+			protected boolean enter(final Expression node)
+			{
+				if (node == Entity.MATCH_END
+					|| (node instanceof Adopted && node.toString().contains("\\G")))
+					throw new IllegalArgumentException("Expression depends on the end of the previous match: " + expression);
+				return true;
+			}
+		};
+		visitor.walk(expression);
+	}
+
+
+	/**
+	 * Scans a range of chunks, dividing it in half until one is left.
+	 */
+	private final class Scan extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+		private final CharSequence input;
+		private final int[] starts;
+		private final ArrayList<CaptureView>[] found;
+		private final int from;
+		private final int to;
+
+		Scan(
+				final CharSequence input,
+				final int[] starts,
+				final ArrayList<CaptureView>[] found,
+				final int from,
+				final int to
+			)
+		{
+			this.input = input;
+			this.starts = starts;
+			this.found = found;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute()
+		{
+			if (to - from == 1)
+				found[from] = scan(input, starts, from);
+			else
+			{
+				final int middle = (from + to) >>> 1;
+				invokeAll(new Scan(input, starts, found, from, middle), new Scan(input, starts, found, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+package io.github.reggert.reb4j.matching;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.analysis.RequiredLiterals;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Matcher that rejects input lacking the literals required by an expression
+ * before handing it to {@link Pattern}.
+ *
+ * The literals are extracted with {@link RequiredLiterals}. Input that does
+ * not contain them (or, for {@link #matches(CharSequence)}, does not begin
+ * and end with the required prefix and suffix) cannot match, and is rejected
+ * with a linear scan instead of a call to the backtracking engine. The
+ * number of inputs rejected this way and the number passed on to the
+ * pattern are counted, so that the effectiveness of the filter can be
+ * monitored.
+ */
+public final class PrefilteredMatcher implements ExpressionMatcher
+{
+	public final Expression expression;
+	public final RequiredLiterals literals;
+	private final Pattern pattern;
+	private final LiteralSearch prefix;
+	private final LiteralSearch suffix;
+	private final LiteralSearch infix;
+	private final LiteralSearch longest;
+	private final LongAdder filtered = new LongAdder();
+	private final LongAdder evaluated = new LongAdder();
+
+	/**
+	 * Constructs a matcher for the specified expression.
+	 *
+	 * @param expression
+	 * 	the expression to match; must not be <code>null</code>.
+	 * @throws NullPointerException
+	 * 	if <var>expression</var> is <code>null</code>.
+	 */
+	public PrefilteredMatcher(final Expression expression)
+	{
+		if (expression == null) throw new NullPointerException("expression");
+		this.expression = expression;
+		this.literals = RequiredLiterals.of(expression);
+		this.pattern = expression.toPattern();
+		this.prefix = new LiteralSearch(literals.exact != null ? literals.exact : literals.prefix);
+		this.suffix = new LiteralSearch(literals.exact != null ? "" : literals.suffix);
+		String infix = "";
+		for (final String literal : literals.required)
+			if (literal.length() > infix.length())
+				infix = literal;
+		this.infix = new LiteralSearch(infix);
+		this.longest = new LiteralSearch(literals.longest());
+	}
+
+	@Override
+	public boolean matches(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		return matches(input, input);
+	}
+
+	@Override
+	public boolean find(final CharSequence input)
+	{
+		if (input == null) throw new NullPointerException("input");
+		return find(input, input);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The budget applies only to the pattern; the linear scan for literals
+	 * is not counted.
+	 */
+	@Override
+	public boolean matches(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return matches(input, budget.guard(input));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * The budget applies only to the pattern; the linear scan for literals
+	 * is not counted.
+	 */
+	@Override
+	public boolean find(final CharSequence input, final MatchBudget budget)
+	{
+		if (budget == null) throw new NullPointerException("budget");
+		return find(input, budget.guard(input));
+	}
+
+	/*
+	 * Filters the input, and hands the subject (which is the input, or a
+	 * guarded view of it) to the pattern.
+	 */
+	private boolean matches(final CharSequence input, final CharSequence subject)
+	{
+		if (!mayMatch(input))
+		{
+			filtered.increment();
+			return false;
+		}
+		evaluated.increment();
+		return pattern.matcher(subject).matches();
+	}
+
+	private boolean find(final CharSequence input, final CharSequence subject)
+	{
+		if (!longest.foundIn(input))
+		{
+			filtered.increment();
+			return false;
+		}
+		evaluated.increment();
+		return pattern.matcher(subject).find();
+	}
+
+	private boolean mayMatch(final CharSequence input)
+	{
+		if (literals.exact != null && input.length() != literals.exact.length())
+			return false;
+		return prefix.prefixOf(input) && suffix.suffixOf(input) && infix.foundIn(input);
+	}
+
+	/**
+	 * Returns the number of inputs rejected without consulting the pattern.
+	 */
+	public long filteredCount()
+	{return filtered.sum();}
+
+	/**
+	 * Returns the number of inputs that were passed on to the pattern.
+	 */
+	public long evaluatedCount()
+	{return evaluated.sum();}
+}
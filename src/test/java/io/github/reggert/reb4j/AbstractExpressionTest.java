@@ -0,0 +1,144 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+public class AbstractExpressionTest
+{
+	private static Sequence newExpression()
+	{
+		return Sequence.sequence(
+				Group.capture(Perl.DIGIT.atLeastOnce()),
+				Literal.literal('.'),
+				Group.capture(Perl.DIGIT.repeat(2))
+			);
+	}
+
+	@Test
+	public void testToPatternIsMemoized()
+	{
+		final Sequence expression = newExpression();
+		final Pattern pattern = expression.toPattern();
+		assertThat(expression.toPattern(), sameInstance(pattern));
+		assertThat(expression.toString(), sameInstance(expression.toString()));
+		assertThat(pattern.pattern(), is(expression.toString()));
+	}
+
+	@Test
+	public void testAppendToMatchesExpression()
+	{
+		final Sequence expression = newExpression();
+		final StringBuilder builder = new StringBuilder("prefix:");
+		expression.appendTo(builder);
+		assertThat(builder.toString(), is("prefix:(\\d+)\\.(\\d{2})"));
+		assertThat(expression.expression().toStringEager(), is(expression.toString()));
+	}
+
+	@Test
+	public void testConcurrentFirstAccessPublishesSinglePattern() throws Exception
+	{
+		final int threadCount = 16;
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try
+		{
+			for (int round = 0; round < 50; round++)
+			{
+				final Sequence expression = newExpression();
+				final CountDownLatch start = new CountDownLatch(1);
+				final List<Future<Pattern>> results = new ArrayList<Future<Pattern>>();
+				for (int i = 0; i < threadCount; i++)
+				{
+					results.add(executor.submit(new Callable<Pattern>()
+					{
+						@Override
+						public Pattern call() throws Exception
+						{
+							start.await();
+							return expression.toPattern();
+						}
+					}));
+				}
+				start.countDown();
+				final Pattern first = results.get(0).get();
+				for (final Future<Pattern> result : results)
+					assertThat(result.get(), sameInstance(first));
+				assertThat(expression.toPattern(), sameInstance(first));
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	private static Expression deepExpression(final char innermost, final int depth)
+	{
+		Expression expression = CharClass.characters('x', 'y', innermost)
+			.union(CharClass.range('0', '9'));
+		for (int i = 0; i < depth; i++)
+			expression = Group.nonCapturing(
+					Literal.literal('a')
+						.andThen(Group.capture(expression).anyTimes())
+						.or(CharClass.range('a', 'f'))
+				);
+		return expression;
+	}
+
+	@Test
+	public void testStructurallyEqualTreesAreEqual()
+	{
+		final Expression left = deepExpression('z', 200);
+		final Expression right = deepExpression('z', 200);
+		final Expression different = deepExpression('w', 200);
+		assertThat(left, not(sameInstance(right)));
+		assertThat(left.hashCode(), is(right.hashCode()));
+		assertThat(left, is(right));
+		assertThat(left, not(is(different)));
+		assertThat(CharClass.range('a', 'f'), is(CharClass.range('a', 'f')));
+		assertThat(CharClass.range('a', 'f'), not(is(CharClass.range('a', 'g'))));
+		assertThat(CharClass.characters('a', 'b'), is(CharClass.characters('b', 'a')));
+		assertThat(CharClass.characters('a', 'b').hashCode(), is(CharClass.characters('b', 'a').hashCode()));
+	}
+
+	@Test
+	public void testSerializationDropsCachedPattern() throws Exception
+	{
+		final StringLiteral original = Literal.literal("1.2.3");
+		final Pattern originalPattern = original.toPattern();
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(original);
+		out.close();
+		final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		final StringLiteral copy = (StringLiteral) in.readObject();
+		in.close();
+
+		assertThat(copy, is(original));
+		final Pattern copyPattern = copy.toPattern();
+		assertThat(copyPattern, not(sameInstance(originalPattern)));
+		assertThat(copyPattern.pattern(), is(originalPattern.pattern()));
+		assertThat(copy.toPattern(), sameInstance(copyPattern));
+	}
+}
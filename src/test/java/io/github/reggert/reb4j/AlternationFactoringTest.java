@@ -0,0 +1,105 @@
+package io.github.reggert.reb4j;
+
+import static io.github.reggert.reb4j.PatternAgreement.randomString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+public class AlternationFactoringTest
+{
+	private static String matches(final Pattern pattern, final String input)
+	{
+		final StringBuilder result = new StringBuilder();
+		final Matcher matcher = pattern.matcher(input);
+		while (matcher.find())
+		{
+			result.append(matcher.group());
+			for (int group = 1; group <= matcher.groupCount(); group++)
+				result.append(',').append(matcher.group(group));
+			result.append(';');
+		}
+		return result.toString();
+	}
+
+	private static void assertEquivalent(final Expression original, final Expression factored, final String input)
+	{
+		for (final int flags : new int[] {0, Pattern.CASE_INSENSITIVE})
+			assertThat(
+					original + " => " + factored + " on " + input,
+					matches(Pattern.compile(factored.toString(), flags), input),
+					is(matches(Pattern.compile(original.toString(), flags), input))
+				);
+	}
+
+	@Test
+	public void testFactorsCommonPrefixes()
+	{
+		final Alternation alternation = Alternation.alternatives(
+				Literal.literal("foobar"),
+				Literal.literal("foobaz"),
+				Literal.literal("food")
+			);
+		assertThat(AlternationFactoring.factor(alternation).toString(), is("foo(?:ba[rz]|d)"));
+	}
+
+	@Test
+	public void testPreservesPreferenceAmongAlternatives()
+	{
+		final Alternation alternation = Alternation.alternatives(
+				Literal.literal("foo"),
+				Literal.literal("x"),
+				Literal.literal("foobar")
+			);
+		final Alternative factored = AlternationFactoring.factor(alternation);
+		assertThat(factored.toString(), is("foo(?:|bar)|x"));
+		assertEquivalent(alternation, factored, "foobar x foob");
+		final Expression followed = Group.nonCapturing(alternation).andThen(Literal.literal('!'));
+		assertEquivalent(followed, AlternationFactoring.factor(followed), "foobar! foo! xfoobar!");
+	}
+
+	@Test
+	public void testPreservesCaptureNumbering()
+	{
+		final Alternation alternation = Alternation.alternatives(
+				Literal.literal('a').andThen(Group.capture(Literal.literal('x'))),
+				Literal.literal('b'),
+				Literal.literal('a').andThen(Group.capture(Literal.literal('y')))
+			);
+		assertThat(AlternationFactoring.factor(alternation), is(sameInstance((Alternative) alternation)));
+	}
+
+	@Test
+	public void testFactorsNestedAlternations()
+	{
+		final Expression expression = Group.capture(
+				Alternation.alternatives(Literal.literal("get"), Literal.literal("getAll"), Literal.literal("put"))
+			).andThen(CharClass.Perl.SPACE.atLeastOnce());
+		final Expression factored = AlternationFactoring.factor(expression);
+		assertThat(factored.toString(), is("(get(?:|All)|put)\\s+"));
+		assertEquivalent(expression, factored, "getAll get  put\tgetA ");
+	}
+
+	@Test
+	public void testAgreesWithPattern()
+	{
+		final String alphabet = "abAB";
+		final Random random = new Random(12);
+		for (int i = 0; i < 200; i++)
+		{
+			final Alternation.Builder builder = Alternation.builder();
+			for (int j = 0, n = 2 + random.nextInt(6); j < n; j++)
+				builder.or(Literal.literal(randomString(random, alphabet, 4)));
+			final Alternation alternation = builder.build();
+			assertEquivalent(alternation, AlternationFactoring.factor(alternation), randomString(random, alphabet, 20));
+		}
+	}
+}
@@ -64,4 +64,35 @@ public class AlternationTest
 		assertThat(aOrBOrC1.equals(null), is(false));
 	}
 	
+	@Test
+	public void testBuilderMatchesChainedOr()
+	{
+		final CharLiteral a = Literal.literal('a');
+		final CharLiteral b = Literal.literal('b');
+		final CharLiteral c = Literal.literal('c');
+		final Alternation aOrB = a.or(b);
+		
+		Alternation chained = aOrB.or(c);
+		final Alternation.Builder builder = Alternation.builder().or(aOrB).or(c);
+		for (int i = 0; i < 500; i++)
+		{
+			chained = chained.or(Literal.literal("x" + i));
+			builder.or(Literal.literal("x" + i));
+		}
+		final Alternation built = builder.build();
+		assertThat(built, is(chained));
+		assertThat(built.alternatives, is(chained.alternatives));
+		assertThat(built.toString(), is(chained.toString()));
+		
+		builder.or(a);
+		assertThat(built, is(chained));
+		assertThat(builder.build(), is(chained.or(a)));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testBuilderRejectsSingleAlternative()
+	{
+		Alternation.builder().or(Literal.literal('a')).build();
+	}
+	
 }
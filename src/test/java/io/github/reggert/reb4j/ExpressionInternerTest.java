@@ -0,0 +1,53 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import org.junit.Test;
+
+
+
+public class ExpressionInternerTest
+{
+	private static Alternation newRule(final String prefix)
+	{
+		return Literal.literal(prefix)
+			.andThen(Group.capture(Perl.DIGIT.repeat(2)))
+			.andThen(Literal.literal(':'))
+			.or(Group.nonCapturing(Perl.DIGIT.repeat(2)).atLeastOnce());
+	}
+
+	@Test
+	public void testEqualExpressionsAreShared()
+	{
+		final ExpressionInterner interner = new ExpressionInterner();
+		final Alternation first = interner.intern(newRule("id"));
+		final Alternation second = interner.intern(newRule("id"));
+		assertThat(second, sameInstance(first));
+		assertThat(first, is(newRule("id")));
+		assertThat(first.toString(), is(newRule("id").toString()));
+	}
+
+	@Test
+	public void testCommonSubexpressionsAreShared()
+	{
+		final ExpressionInterner interner = new ExpressionInterner();
+		final Alternation first = interner.intern(newRule("id"));
+		final Alternation second = interner.intern(newRule("key"));
+		assertThat(second, is(newRule("key")));
+
+		final Sequence firstSequence = (Sequence) first.alternatives.head();
+		final Sequence secondSequence = (Sequence) second.alternatives.head();
+		assertThat(secondSequence.components.index(1), sameInstance(firstSequence.components.index(1)));
+		assertThat(second.alternatives.index(1), sameInstance(first.alternatives.index(1)));
+
+		final Quantified repeated = (Quantified) ((Group) firstSequence.components.index(1)).nested;
+		final Quantified nested = (Quantified)
+			((Group) ((Quantified) first.alternatives.index(1)).base).nested;
+		assertThat(nested, sameInstance(repeated));
+		assertThat(interner.intern(Perl.DIGIT.repeat(2)), sameInstance(repeated));
+	}
+}
@@ -0,0 +1,112 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import org.junit.Test;
+
+
+public class ExpressionVisitorTest
+{
+	/**
+	 * Deep enough to overflow the default thread stack when traversed
+	 * recursively.
+	 */
+	private static final int DEPTH = 50000;
+
+	private static Expression deepTree(final char innermost, final int depth)
+	{
+		Expression expression = Literal.literal(innermost);
+		for (int i = 0; i < depth; i++)
+			expression = Group.nonCapturing(
+					Literal.literal('a')
+						.andThen(Group.capture(expression).anyTimes())
+						.or(CharClass.range('a', 'f'))
+				);
+		return expression;
+	}
+
+	@Test
+	public void testVisitsInRenderedOrder()
+	{
+		final Expression expression = Literal.literal('a')
+			.andThen(Group.capture(Literal.literal('b').or(Literal.literal('c'))).optional());
+		final StringBuilder trace = new StringBuilder();
+		new ExpressionVisitor()
+		{
+			@Override
+			protected boolean enter(final Expression node)
+			{
+				trace.append('<').append(node.getClass().getSimpleName());
+				return true;
+			}
+
+			@Override
+			protected void between(final Expression node)
+			{trace.append(',');}
+
+			@Override
+			protected void leave(final Expression node)
+			{trace.append('>');}
+		}.walk(expression);
+		assertThat(
+				trace.toString(),
+				is("<Sequence<CharLiteral>,<Optional<Capture<Alternation<CharLiteral>,<CharLiteral>>>>>")
+			);
+	}
+
+	@Test
+	public void testSkipsChildrenWhenNotEntered()
+	{
+		final Expression expression = Group.capture(Literal.literal('a')).andThen(Literal.literal('b'));
+		final StringBuilder trace = new StringBuilder();
+		new ExpressionVisitor()
+		{
+			@Override
+			protected boolean enter(final Expression node)
+			{
+				trace.append(node);
+				return !(node instanceof Group);
+			}
+
+			@Override
+			protected void leave(final Expression node)
+			{trace.append('/');}
+		}.walk(expression);
+		assertThat(trace.toString(), is("(a)b(a)b//"));
+	}
+
+	@Test
+	public void testDeepTreeRendering()
+	{
+		final Expression expression = deepTree('z', DEPTH);
+		final String rendered = expression.toString();
+		assertThat(rendered.length(), is(DEPTH * "(?:a()*|[a-f])".length() + 1));
+		assertThat(rendered.startsWith("(?:a((?:a("), is(true));
+		assertThat(rendered.contains("(?:a(z)*|[a-f])"), is(true));
+		assertThat(rendered.endsWith("))*|[a-f])"), is(true));
+	}
+
+	@Test
+	public void testDeepTreeEquality()
+	{
+		final Expression expression = deepTree('z', DEPTH);
+		assertThat(expression, is(deepTree('z', DEPTH)));
+		assertThat(expression.hashCode(), is(deepTree('z', DEPTH).hashCode()));
+		assertThat(expression, not(is(deepTree('w', DEPTH))));
+		assertThat(expression.boundedLength() == null, is(true));
+	}
+
+	@Test
+	public void testDeepTreeRewriting()
+	{
+		final Expression expression = deepTree('z', DEPTH);
+		final ExpressionInterner interner = new ExpressionInterner();
+		assertThat(interner.intern(expression), is(expression));
+		assertThat(LiteralCoalescing.coalesce(expression), is(expression));
+		assertThat(AlternationFactoring.factor(expression), is(expression));
+	}
+}
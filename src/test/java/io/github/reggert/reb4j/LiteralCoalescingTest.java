@@ -0,0 +1,98 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import org.junit.Test;
+
+
+public class LiteralCoalescingTest
+{
+	@Test
+	public void testCoalescesSequenceOfLiterals()
+	{
+		final Sequence sequence = Literal.literal('a').andThen(Literal.literal('b')).andThen(Literal.literal("c.d"));
+		final Expression coalesced = LiteralCoalescing.coalesce(sequence);
+		assertThat(coalesced, is((Expression) Literal.literal("abc.d")));
+		// Renders the same only because too few characters need escaping for
+		// quoting to be shorter; see testCoalescedLiteralMayBeQuoted.
+		assertThat(coalesced.toString(), is(sequence.toString()));
+		assertThat(sequence, not(is(coalesced)));
+	}
+
+	@Test
+	public void testCoalescedLiteralMayBeQuoted()
+	{
+		final Sequence sequence = Literal.literal("a.b.c").andThen(Literal.literal(".d.e."));
+		final Expression coalesced = LiteralCoalescing.coalesce(sequence);
+		assertThat(sequence.toString(), is("a\\.b\\.c\\.d\\.e\\."));
+		assertThat(coalesced.toString(), is("\\Qa.b.c.d.e.\\E"));
+		for (final String input : new String[] {"a.b.c.d.e.", "axbxcxdxex", "a.b.c.d.e"})
+			assertThat(input, coalesced.toPattern().matcher(input).matches(), is(sequence.toPattern().matcher(input).matches()));
+	}
+
+	@Test
+	public void testCoalescesRunsBetweenOtherComponents()
+	{
+		final Sequence sequence = Sequence.sequence(
+				Literal.literal('a'),
+				Literal.literal("bc"),
+				CharClass.Perl.DIGIT.atLeastOnce(),
+				Literal.literal('d'),
+				Group.capture(Literal.literal('e').andThen(Literal.literal('f'))),
+				Literal.literal("g"),
+				Literal.literal("h")
+			);
+		final Expression coalesced = LiteralCoalescing.coalesce(sequence);
+		assertThat(coalesced, is((Expression) Sequence.sequence(
+				Literal.literal("abc"),
+				CharClass.Perl.DIGIT.atLeastOnce(),
+				Literal.literal('d'),
+				Group.capture(Literal.literal("ef")),
+				Literal.literal("gh")
+			)));
+		assertThat(coalesced.toString(), is(sequence.toString()));
+	}
+
+	@Test
+	public void testCoalescesCompound()
+	{
+		final Raw.Compound compound = Entity.LINE_BEGIN.andThen(Literal.literal('a')).andThen(Literal.literal("b*"));
+		final Expression coalesced = LiteralCoalescing.coalesce(compound);
+		assertThat(coalesced, is(instanceOf(Raw.Compound.class)));
+		assertThat(((Raw.Compound) coalesced).components.length(), is(2));
+		assertThat(coalesced, is((Expression) compound));
+		assertThat(coalesced.toString(), is("^ab\\*"));
+	}
+
+	@Test
+	public void testCoalescesCompoundOfLiterals()
+	{
+		final Raw.Compound compound = new Raw.EscapedLiteral(Literal.literal('a')).andThen(Literal.literal("bc"));
+		assertThat(LiteralCoalescing.coalesce(compound), is((Expression) new Raw.EscapedLiteral(Literal.literal("abc"))));
+	}
+
+	@Test
+	public void testCoalescedEqualityIgnoresSplitting()
+	{
+		final Sequence left = Literal.literal("ab").andThen(Literal.literal('c')).andThen(Entity.WORD_BOUNDARY);
+		final Sequence right = Literal.literal('a').andThen(Literal.literal("bc")).andThen(Entity.WORD_BOUNDARY);
+		assertThat(left, not(is(right)));
+		assertThat(LiteralCoalescing.coalesce(left), is(LiteralCoalescing.coalesce(right)));
+	}
+
+	@Test
+	public void testReturnsSameInstanceWhenNothingToCoalesce()
+	{
+		final Expression expression = Literal.literal('a')
+			.andThen(CharClass.Perl.SPACE)
+			.andThen(Literal.literal("b"))
+			.or(Group.capture(Literal.literal('c')).anyTimes());
+		assertThat(LiteralCoalescing.coalesce(expression), is(sameInstance(expression)));
+	}
+}
@@ -0,0 +1,74 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.matching.ExpressionMatcher;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+
+
+/**
+ * Assertions that an {@link ExpressionMatcher} agrees with
+ * {@link java.util.regex} on randomly generated input, shared by the tests
+ * of the matching engines and rewrites.
+ */
+public final class PatternAgreement
+{
+	private PatternAgreement() {}
+
+	/**
+	 * Returns a string of zero to <var>maximumLength</var> characters,
+	 * each chosen from <var>alphabet</var>.
+	 */
+	public static String randomString(final Random random, final String alphabet, final int maximumLength)
+	{
+		final StringBuilder builder = new StringBuilder();
+		final int length = random.nextInt(maximumLength + 1);
+		for (int i = 0; i < length; i++)
+			builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		return builder.toString();
+	}
+
+	/**
+	 * Asserts that the matcher's <code>matches</code> and <code>find</code>
+	 * agree with the pattern's on the input, both as a {@link String} and
+	 * as another {@link CharSequence}.
+	 */
+	public static void assertAgreesWithPattern(
+			final String description,
+			final Pattern pattern,
+			final ExpressionMatcher matcher,
+			final String input
+		)
+	{
+		final boolean matches = pattern.matcher(input).matches();
+		final boolean find = pattern.matcher(input).find();
+		final StringBuilder sequence = new StringBuilder(input);
+		assertThat(description + " on " + input, matcher.matches(input), is(matches));
+		assertThat(description + " on " + input, matcher.find(input), is(find));
+		assertThat(description + " on " + input, matcher.matches(sequence), is(matches));
+		assertThat(description + " on " + input, matcher.find(sequence), is(find));
+	}
+
+	/**
+	 * Asserts that the matcher agrees with the expression's pattern on
+	 * <var>count</var> random strings of up to <var>maximumLength</var>
+	 * characters from <var>alphabet</var>.
+	 */
+	public static void assertAgreesWithPattern(
+			final Expression expression,
+			final ExpressionMatcher matcher,
+			final String alphabet,
+			final Random random,
+			final int count,
+			final int maximumLength
+		)
+	{
+		final Pattern pattern = expression.toPattern();
+		for (int i = 0; i < count; i++)
+			assertAgreesWithPattern(expression.toString(), pattern, matcher, randomString(random, alphabet, maximumLength));
+	}
+}
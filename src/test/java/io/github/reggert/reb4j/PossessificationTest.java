@@ -0,0 +1,116 @@
+package io.github.reggert.reb4j;
+
+import static io.github.reggert.reb4j.PatternAgreement.randomString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+
+
+public class PossessificationTest
+{
+	private static String render(final Expression expression)
+	{return Possessification.possessify(expression).toString();}
+
+	private static String matches(final Expression expression, final String input)
+	{
+		final StringBuilder result = new StringBuilder();
+		final Matcher matcher = expression.toPattern().matcher(input);
+		while (matcher.find())
+			for (int group = 0; group <= matcher.groupCount(); group++)
+				result.append(matcher.start(group)).append('-').append(matcher.end(group)).append(' ');
+		return result.append(expression.toPattern().matcher(input).matches()).toString();
+	}
+
+	@Test
+	public void testDisjointFollowerMakesQuantifierPossessive()
+	{
+		assertThat(render(Perl.DIGIT.atLeastOnce().andThen(Literal.literal('.'))), is("\\d++\\."));
+		assertThat(render(Literal.literal('x').andThen(CharClass.range('0', '9').anyTimes())), is("x[0-9]*+"));
+		assertThat(
+				render(Perl.WORD.repeat(1, 8).andThen(Perl.SPACE.optional()).andThen(Literal.literal('='))),
+				is("\\w{1,8}+\\s?+\\=")
+			);
+	}
+
+	@Test
+	public void testOverlappingFollowerIsLeftAlone()
+	{
+		final Expression overlapping = Perl.WORD.atLeastOnce().andThen(Perl.DIGIT);
+		assertThat(Possessification.possessify(overlapping), sameInstance(overlapping));
+		// The optional letter can be skipped, so a digit may follow the first quantifier.
+		assertThat(
+				render(Perl.DIGIT.anyTimes().andThen(CharClass.range('a', 'c').optional()).andThen(Perl.DIGIT)),
+				is("\\d*[a-c]?+\\d")
+			);
+	}
+
+	@Test
+	public void testRepetitionFollowsItself()
+	{
+		// Another repetition of the group may begin with 'a'.
+		assertThat(
+				render(Group.nonCapturing(Literal.literal('a').anyTimes().andThen(Literal.literal('b').optional())).atLeastOnce()),
+				is("(?:a*b?)+")
+			);
+		assertThat(
+				render(Group.nonCapturing(Literal.literal('a').anyTimes().andThen(Literal.literal('b'))).atLeastOnce()),
+				is("(?:a*+b)+")
+			);
+	}
+
+	@Test
+	public void testAssertionsAndOpaqueGroupsAreLeftAlone()
+	{
+		final Expression[] expressions = {
+				Perl.DIGIT.atLeastOnce().andThen(Entity.WORD_BOUNDARY),
+				Perl.DIGIT.atLeastOnce().andThen(Group.positiveLookAhead(Literal.literal('x'))),
+				Perl.DIGIT.atLeastOnce().andThen(Group.enableFlags(Literal.literal('x'), Flag.CASE_INSENSITIVE)),
+				Group.positiveLookAhead(Perl.DIGIT.atLeastOnce().andThen(Literal.literal('x'))),
+				Perl.DIGIT.atLeastOnce(Quantified.Mode.RELUCTANT).andThen(Literal.literal('x'))
+			};
+		for (final Expression expression : expressions)
+			assertThat(expression.toString(), Possessification.possessify(expression), sameInstance(expression));
+	}
+
+	@Test
+	public void testSurrogatesOverlapSupplementaryCharacters()
+	{
+		final Expression expression = CharClass.range('\ud800', '\udbff').anyTimes()
+			.andThen(Literal.literal("\ud83d\ude00"));
+		assertThat(Possessification.possessify(expression), sameInstance(expression));
+	}
+
+	@Test
+	public void testMatchesAreUnchanged()
+	{
+		final Expression[] expressions = {
+				Group.capture(Perl.DIGIT.atLeastOnce()).andThen(Literal.literal('.')).andThen(Group.capture(Perl.DIGIT.anyTimes())),
+				Group.nonCapturing(
+						Group.capture(CharClass.range('a', 'b').repeat(0, 2)).andThen(Literal.literal('c').optional())
+					).atLeastOnce().andThen(Literal.literal('d')),
+				Entity.ANY_CHAR.anyTimes().andThen(Literal.literal('\n')).andThen(Literal.literal('a').atLeastOnce()),
+				Group.independent(Literal.literal('a').anyTimes()).andThen(Group.nonCapturing(Literal.literal('b').or(Literal.literal("")))),
+				Sequence.sequence(Literal.literal('a').anyTimes(), Group.capture(Literal.literal('b').anyTimes()), Literal.literal('a'))
+			};
+		final String alphabet = "abcd.0\n";
+		final Random random = new Random(21);
+		for (final Expression expression : expressions)
+		{
+			final Expression possessified = Possessification.possessify(expression);
+			for (int i = 0; i < 2000; i++)
+			{
+				final String string = randomString(random, alphabet, 11);
+				assertThat(possessified + " on " + string, matches(possessified, string), is(matches(expression, string)));
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package io.github.reggert.reb4j;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+
+
+public class QuantifiedTest
+{
+	@Test
+	public void testRepeatedGroupOfFixedCountIsBounded() throws UnboundedLookBehindException
+	{
+		final Quantified.RepeatExactly repeated = Group.capture(Literal.literal('a').repeat(2, 2)).repeat(2);
+		assertThat(repeated.boundedLength(), is(4));
+		assertThat(Group.positiveLookBehind(repeated).toPattern().pattern(), is("(?<=(a{2,2}){2})"));
+	}
+
+	@Test
+	public void testRepeatedGroupOfVaryingCountIsUnbounded()
+	{
+		final Expression[] expressions = {
+				Group.capture(Entity.INPUT_BEGIN.repeat(1, 3)).repeat(1),
+				Group.nonCapturing(Literal.literal('a').repeat(1, 3)).repeat(2, 4),
+				Group.nonCapturing(Literal.literal('b').andThen(Literal.literal('a').repeat(1, 3))).repeat(2)
+			};
+		for (final Expression expression : expressions)
+		{
+			assertThat(expression.toString(), expression.boundedLength(), is(nullValue()));
+			try
+			{
+				Group.positiveLookBehind(expression);
+				fail("Expected UnboundedLookBehindException for " + expression);
+			}
+			catch (final UnboundedLookBehindException e)
+			{
+				// expected
+			}
+		}
+	}
+}
@@ -64,4 +64,35 @@ public class SequenceTest
 		assertThat(abc1.equals(null), is(false));
 	}
 	
+	@Test
+	public void testBuilderMatchesChainedAndThen()
+	{
+		final CharLiteral a = Literal.literal('a');
+		final CharLiteral b = Literal.literal('b');
+		final CharLiteral c = Literal.literal('c');
+		final Sequence ab = a.andThen(b);
+		
+		Sequence chained = ab.andThen(c);
+		final Sequence.Builder builder = Sequence.builder().andThen(ab).andThen(c);
+		for (int i = 0; i < 500; i++)
+		{
+			chained = chained.andThen(Literal.literal("x" + i));
+			builder.andThen(Literal.literal("x" + i));
+		}
+		final Sequence built = builder.build();
+		assertThat(built, is(chained));
+		assertThat(built.components, is(chained.components));
+		assertThat(built.toString(), is(chained.toString()));
+		
+		builder.andThen(a);
+		assertThat(built, is(chained));
+		assertThat(builder.build(), is(chained.andThen(a)));
+	}
+	
+	@Test(expected = IllegalStateException.class)
+	public void testBuilderRejectsSingleComponent()
+	{
+		Sequence.builder().andThen(Literal.literal('a')).build();
+	}
+	
 }
@@ -9,6 +9,7 @@ import io.github.reggert.reb4j.Literal;
 import io.github.reggert.reb4j.StringLiteral;
 
 import java.util.HashSet;
+import java.util.regex.Pattern;
 
 import org.junit.Test;
 
@@ -35,5 +36,41 @@ public class StringLiteralTest
 		assertThat(literal1.equals(null), is(false));
 		assertThat(literal1.equals(Entity.ANY_CHAR), is(false));
 	}
+	
+	@Test
+	public void testEscapesPunctuation()
+	{
+		assertThat(Literal.literal("a.b*").toString(), is("a\\.b\\*"));
+		assertThat(Literal.literal("\t\n").toString(), is("\\t\\n"));
+	}
+	
+	@Test
+	public void testQuotesWhenShorter()
+	{
+		final String unescaped = "(*.*)[+]";
+		final StringLiteral literal = Literal.literal(unescaped);
+		assertThat(literal.toString(), is("\\Q(*.*)[+]\\E"));
+		assertThat(Pattern.matches(literal.toString(), unescaped), is(true));
+		assertThat(Pattern.matches(literal.toString(), "(x.x)[+]"), is(false));
+	}
+	
+	@Test
+	public void testDoesNotQuoteWhenUnsafe()
+	{
+		final String withQuoteEnd = "(*.*)\\E[+]";
+		assertThat(Literal.literal(withQuoteEnd).toString(), is("\\(\\*\\.\\*\\)\\\\E\\[\\+\\]"));
+		assertThat(Pattern.matches(Literal.literal(withQuoteEnd).toString(), withQuoteEnd), is(true));
+		final String withSpace = "(*.*) [+]";
+		assertThat(Literal.literal(withSpace).toString().contains("\\Q"), is(false));
+		assertThat(Pattern.matches(Literal.literal(withSpace).toString(), withSpace), is(true));
+	}
+	
+	@Test
+	public void testEscapesNulBeforeDigit()
+	{
+		final String unescaped = "\0" + "1";
+		assertThat(Literal.literal(unescaped).toString(), is("\\x001"));
+		assertThat(Pattern.matches(Literal.literal(unescaped).toString(), unescaped), is(true));
+	}
 
 }
@@ -0,0 +1,221 @@
+package io.github.reggert.reb4j.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.github.reggert.reb4j.CharLiteral;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Quantified;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.analysis.Backtracking.Complexity;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import org.junit.Test;
+
+
+
+public class BacktrackingTest
+{
+	private static Complexity complexity(final Expression expression)
+	{return Backtracking.analyze(expression).complexity;}
+
+	@Test
+	public void testLinear()
+	{
+		final Expression[] expressions = {
+				Literal.literal("abc"),
+				Perl.DIGIT.atLeastOnce().andThen(Literal.literal('.')).andThen(Perl.DIGIT.atLeastOnce()),
+				Group.nonCapturing(Perl.WORD.atLeastOnce().andThen(Perl.SPACE)).anyTimes(),
+				Group.nonCapturing(Literal.literal("ab").or(Literal.literal("ac"))).anyTimes(),
+				Group.nonCapturing(Literal.literal('a').or(Literal.literal("ab"))).atLeastOnce(),
+				Perl.DIGIT.atLeastOnce().andThen(Perl.DIGIT),
+				DottedDecimalIPv4Address.dottedDecimalIPAddress
+			};
+		for (final Expression expression : expressions)
+		{
+			final Backtracking result = Backtracking.analyze(expression);
+			assertThat(expression.toString(), result.complexity, is(Complexity.LINEAR));
+			assertThat(result.degree, is(1));
+			assertThat(result.culprit, is(nullValue()));
+		}
+	}
+
+	@Test
+	public void testAdjacentLoopsArePolynomial()
+	{
+		final Sequence twoLoops = Perl.DIGIT.atLeastOnce().andThen(Perl.DIGIT.atLeastOnce());
+		final Backtracking result = Backtracking.analyze(twoLoops.andThen(Literal.literal('x')));
+		assertThat(result.complexity, is(Complexity.POLYNOMIAL));
+		assertThat(result.degree, is(2));
+
+		// Both "x" and the optional '-' can be given up to the loop that follows them.
+		final Expression dots = Sequence.sequence(
+				Entity.ANY_CHAR.anyTimes(),
+				Literal.literal('x'),
+				Entity.ANY_CHAR.anyTimes(),
+				Literal.literal('-').optional(),
+				Entity.ANY_CHAR.anyTimes()
+			);
+		final Backtracking chain = Backtracking.analyze(dots);
+		assertThat(chain.complexity, is(Complexity.POLYNOMIAL));
+		assertThat(chain.degree, is(3));
+		assertThat(chain.culprit, sameInstance(dots));
+	}
+
+	@Test
+	public void testSeparatedLoopsAreLinear()
+	{
+		assertThat(
+				complexity(Perl.DIGIT.atLeastOnce().andThen(Literal.literal('x')).andThen(Perl.DIGIT.atLeastOnce())),
+				is(Complexity.LINEAR)
+			);
+		assertThat(
+				complexity(Perl.DIGIT.atLeastOnce(Quantified.Mode.POSSESSIVE).andThen(Perl.DIGIT.atLeastOnce())),
+				is(Complexity.LINEAR)
+			);
+		assertThat(
+				complexity(Group.independent(Perl.DIGIT.atLeastOnce()).andThen(Perl.DIGIT.atLeastOnce())),
+				is(Complexity.LINEAR)
+			);
+	}
+
+	@Test
+	public void testNestedLoopsAreExponential()
+	{
+		final Quantified.AtLeastOnce nested = Group.capture(Literal.literal('a').anyTimes()).atLeastOnce();
+		final Backtracking result = Backtracking.analyze(nested.andThen(Literal.literal('b')));
+		assertThat(result.complexity, is(Complexity.EXPONENTIAL));
+		assertThat(result.culprit, sameInstance((Expression) nested));
+		assertThat(
+				complexity(Group.nonCapturing(Perl.WORD.atLeastOnce().andThen(Perl.SPACE.optional())).anyTimes()),
+				is(Complexity.EXPONENTIAL)
+			);
+		assertThat(
+				complexity(Group.nonCapturing(Literal.literal('a').andThen(Literal.literal('a').atLeastOnce())).atLeastOnce()),
+				is(Complexity.EXPONENTIAL)
+			);
+		assertThat(
+				complexity(Group.nonCapturing(Perl.DIGIT.atLeastOnce().andThen(Perl.DIGIT.atLeastOnce()).andThen(Literal.literal(','))).anyTimes()),
+				is(Complexity.EXPONENTIAL)
+			);
+	}
+
+	@Test
+	public void testOverlappingAlternativesUnderRepetitionAreExponential()
+	{
+		final Expression[] expressions = {
+				Group.nonCapturing(Literal.literal('a').or(Literal.literal('a'))).anyTimes(),
+				Group.nonCapturing(Literal.literal('a').or(Literal.literal("aa"))).atLeastOnce(),
+				Group.nonCapturing(Perl.WORD.or(Perl.DIGIT)).atLeast(2),
+				Group.nonCapturing(Entity.ANY_CHAR.or(Perl.SPACE)).anyTimes().andThen(Literal.literal('x'))
+			};
+		for (final Expression expression : expressions)
+			assertThat(expression.toString(), complexity(expression), is(Complexity.EXPONENTIAL));
+		// Without repetition, the ambiguity is harmless.
+		assertThat(complexity(Perl.WORD.or(Perl.DIGIT)), is(Complexity.LINEAR));
+		// Possessive repetition does not revisit earlier choices.
+		assertThat(
+				complexity(Group.nonCapturing(Perl.WORD.or(Perl.DIGIT)).anyTimes(Quantified.Mode.POSSESSIVE)),
+				is(Complexity.LINEAR)
+			);
+	}
+
+	@Test
+	public void testBoundedQuantifiersUnderRepetitionAreExponential()
+	{
+		final CharLiteral a = Literal.literal('a');
+		final Expression[] expressions = {
+				Group.nonCapturing(a.optional().andThen(a)).anyTimes().andThen(Literal.literal('c')),
+				Group.nonCapturing(a.or(a.optional())).atLeastOnce(),
+				Group.nonCapturing(a.andThen(a.optional())).anyTimes(),
+				Group.nonCapturing(a.repeat(1, 3)).atLeastOnce(),
+				Group.nonCapturing(Perl.DIGIT.repeat(1, 3).andThen(Literal.literal(',').optional())).anyTimes(),
+				Group.nonCapturing(a.optional().andThen(a.optional())).anyTimes()
+			};
+		for (final Expression expression : expressions)
+			assertThat(expression.toString(), complexity(expression), is(Complexity.EXPONENTIAL));
+		final Expression[] linear = {
+				a.optional().andThen(a),
+				Perl.DIGIT.atLeastOnce().andThen(Perl.DIGIT.optional()),
+				Group.nonCapturing(a.optional()).anyTimes(),
+				Group.nonCapturing(a.optional().andThen(Literal.literal('b'))).anyTimes(),
+				Group.nonCapturing(a.andThen(Literal.literal('b').optional())).anyTimes(),
+				Group.nonCapturing(a.repeat(1, 3).andThen(Literal.literal(','))).anyTimes()
+			};
+		for (final Expression expression : linear)
+			assertThat(expression.toString(), complexity(expression), is(Complexity.LINEAR));
+	}
+
+	@Test
+	public void testContentsOfOpaqueGroupsAreAnalyzed()
+	{
+		final Expression exponential = Group.nonCapturing(Literal.literal('a').atLeastOnce()).atLeastOnce()
+			.andThen(Literal.literal('b'));
+		assertThat(complexity(Group.positiveLookAhead(exponential)), is(Complexity.EXPONENTIAL));
+		assertThat(complexity(Group.independent(exponential)), is(Complexity.EXPONENTIAL));
+	}
+
+	@Test
+	public void testBoundedRepetitionMultipliesDegree()
+	{
+		final Backtracking result = Backtracking.analyze(
+				Group.nonCapturing(Perl.DIGIT.atLeastOnce().andThen(Literal.literal(',').optional())).repeat(3)
+			);
+		assertThat(result.complexity, is(Complexity.POLYNOMIAL));
+		assertThat(result.degree, is(3));
+	}
+
+	@Test
+	public void testStrictModeRejectsExponentialQuantifiers()
+	{
+		final Group.NonCapturing loop = Group.nonCapturing(CharClass.range('a', 'z').atLeastOnce());
+		assertThat(Backtracking.isStrict(), is(false));
+		Backtracking.setStrict(true);
+		try
+		{
+			loop.repeat(0, 5);
+			loop.atLeastOnce(Quantified.Mode.POSSESSIVE);
+			Perl.DIGIT.atLeastOnce().andThen(Perl.DIGIT.atLeastOnce());
+			try
+			{
+				loop.atLeastOnce();
+				fail("Expected CatastrophicBacktrackingException");
+			}
+			catch (final CatastrophicBacktrackingException e)
+			{
+				assertThat(e.getCulprit(), is(e.getExpression()));
+			}
+			try
+			{
+				loop.atLeast(1);
+				fail("Expected CatastrophicBacktrackingException");
+			}
+			catch (final CatastrophicBacktrackingException e)
+			{
+				// expected
+			}
+			try
+			{
+				Group.nonCapturing(Literal.literal('a').optional().andThen(Literal.literal('a'))).anyTimes();
+				fail("Expected CatastrophicBacktrackingException");
+			}
+			catch (final CatastrophicBacktrackingException e)
+			{
+				// expected
+			}
+		}
+		finally
+		{
+			Backtracking.setStrict(false);
+		}
+		loop.anyTimes();
+	}
+}
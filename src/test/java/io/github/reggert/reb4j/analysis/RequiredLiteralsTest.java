@@ -0,0 +1,107 @@
+package io.github.reggert.reb4j.analysis;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Flag;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import fj.data.List;
+
+
+
+public class RequiredLiteralsTest
+{
+	@Test
+	public void testPrefixAndSuffix()
+	{
+		final Expression expression = Sequence.sequence(
+				Entity.LINE_BEGIN,
+				Literal.literal("id="),
+				Perl.DIGIT.atLeastOnce(),
+				Literal.literal(';'),
+				Group.capture(Literal.literal("end"))
+			);
+		final RequiredLiterals literals = RequiredLiterals.of(expression);
+		assertThat(literals.exact, is(nullValue()));
+		assertThat(literals.prefix, is("id="));
+		assertThat(literals.suffix, is(";end"));
+		assertThat(literals.longest(), is(";end"));
+	}
+
+	@Test
+	public void testLiteralBetweenUnknowns()
+	{
+		final Expression expression = Sequence.sequence(
+				Perl.WORD.atLeastOnce(),
+				Literal.literal("::"),
+				Literal.literal('x'),
+				Perl.WORD.anyTimes()
+			);
+		final RequiredLiterals literals = RequiredLiterals.of(expression);
+		assertThat(literals.prefix, is(""));
+		assertThat(literals.suffix, is(""));
+		assertThat(literals.required, is(List.list("::x")));
+	}
+
+	@Test
+	public void testExactRepetition()
+	{
+		final RequiredLiterals literals = RequiredLiterals.of(
+				Literal.literal('a').andThen(Group.nonCapturing(Literal.literal("bc")).repeat(2))
+			);
+		assertThat(literals.exact, is("abcbc"));
+	}
+
+	@Test
+	public void testAlternationKeepsCommonAffixes()
+	{
+		final RequiredLiterals literals = RequiredLiterals.of(
+				Literal.literal("prefix-one.txt").or(Literal.literal("prefix-two.txt"))
+			);
+		assertThat(literals.exact, is(nullValue()));
+		assertThat(literals.prefix, is("prefix-"));
+		assertThat(literals.suffix, is(".txt"));
+	}
+
+	@Test
+	public void testOptionalContributesNothing()
+	{
+		final RequiredLiterals literals = RequiredLiterals.of(
+				Group.nonCapturing(Literal.literal("abc")).optional().andThen(Literal.literal("def"))
+			);
+		assertThat(literals.prefix, is(""));
+		assertThat(literals.suffix, is("def"));
+	}
+
+	@Test
+	public void testCaseInsensitiveGroupIsOpaque()
+	{
+		final RequiredLiterals literals = RequiredLiterals.of(
+				Literal.literal("abc").andThen(Group.enableFlags(Literal.literal("def"), Flag.CASE_INSENSITIVE))
+			);
+		assertThat(literals.prefix, is("abc"));
+		assertThat(literals.suffix, is(""));
+	}
+
+	@Test
+	public void testAdoptedDisablesAnalysis()
+	{
+		final RequiredLiterals literals = RequiredLiterals.of(
+				Group.nonCapturing(Adopted.fromPattern(Pattern.compile("x(?i)")))
+					.andThen(Literal.literal("abc"))
+			);
+		assertThat(literals.isEmpty(), is(true));
+	}
+}
@@ -0,0 +1,102 @@
+package io.github.reggert.reb4j.automaton;
+
+import static io.github.reggert.reb4j.PatternAgreement.assertAgreesWithPattern;
+import static io.github.reggert.reb4j.PatternAgreement.randomString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Alternation;
+import io.github.reggert.reb4j.Alternative;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.charclass.CharClass;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+
+public class AhoCorasickTest
+{
+	private static void assertFirstMatchesAgreeWithPattern(final AhoCorasick matcher, final String input)
+	{
+		final Pattern pattern = matcher.expression.toPattern();
+		final String description = matcher.expression + " on " + input;
+		assertAgreesWithPattern(matcher.expression.toString(), pattern, matcher, input);
+		for (int from = 0; from <= input.length(); from++)
+		{
+			final Matcher expected = pattern.matcher(input);
+			final AhoCorasick.Match actual = matcher.firstMatch(input, from);
+			if (!expected.find(from))
+				assertThat(description, actual, is(nullValue()));
+			else
+			{
+				assertThat(description, actual.start(), is(expected.start()));
+				assertThat(description, actual.end(), is(expected.end()));
+				assertThat(description, actual.group(), is(expected.group()));
+			}
+		}
+	}
+
+	@Test
+	public void testAgreesWithPattern()
+	{
+		final String alphabet = "ab.c\ud83d\ude00";
+		final Random random = new Random(42);
+		for (int i = 0; i < 300; i++)
+		{
+			final Alternative[] keywords = new Alternative[1 + random.nextInt(6)];
+			for (int j = 0; j < keywords.length; j++)
+				keywords[j] = Literal.literal(randomString(random, alphabet, 3));
+			final AhoCorasick matcher = AhoCorasick.compile(
+					Alternation.alternatives(Literal.literal(randomString(random, alphabet, 3)), keywords[0], keywords)
+				);
+			for (int j = 0; j < 20; j++)
+				assertFirstMatchesAgreeWithPattern(matcher, randomString(random, alphabet, 10));
+		}
+	}
+
+	@Test
+	public void testLeftmostFirst()
+	{
+		final AhoCorasick matcher = AhoCorasick.compile(
+				Alternation.alternatives(Literal.literal("hers"), Literal.literal("he"), Literal.literal("she"))
+			);
+		final AhoCorasick.Match match = matcher.firstMatch("ushers", 0);
+		assertThat(match.group(), is("she"));
+		assertThat(match.alternative, is(2));
+		final AhoCorasick.Match next = matcher.firstMatch("ushers", 2);
+		assertThat(next.group(), is("hers"));
+		assertThat(next.alternative, is(0));
+		assertThat(matcher.firstMatch("ushers", 5), is(nullValue()));
+		assertThat(matcher.matches("he"), is(true));
+		assertThat(matcher.matches("her"), is(false));
+	}
+
+	@Test
+	public void testEmptyKeywordMatchesEverywhere()
+	{
+		final AhoCorasick matcher = AhoCorasick.compile(Alternation.alternatives(Literal.literal(""), Literal.literal("ab")));
+		final AhoCorasick.Match match = matcher.firstMatch("xab", 1);
+		assertThat(match.start(), is(1));
+		assertThat(match.end(), is(1));
+		assertThat(match.alternative, is(0));
+	}
+
+	@Test
+	public void testIsApplicable()
+	{
+		assertThat(AhoCorasick.isApplicable(Literal.literal("a").or(Literal.literal("b"))), is(true));
+		assertThat(AhoCorasick.isApplicable(Literal.literal("a").or(CharClass.range('0', '9'))), is(false));
+		assertThat(AhoCorasick.isApplicable(Literal.literal("a")), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testCompileRejectsNonLiterals()
+	{
+		AhoCorasick.compile(Literal.literal("a").or(CharClass.range('0', '9')));
+	}
+}
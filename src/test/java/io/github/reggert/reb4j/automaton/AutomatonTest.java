@@ -0,0 +1,119 @@
+package io.github.reggert.reb4j.automaton;
+
+import static io.github.reggert.reb4j.PatternAgreement.assertAgreesWithPattern;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+
+public class AutomatonTest
+{
+	@Test
+	public void testAgreesWithPattern()
+	{
+		final Expression expression = Sequence.sequence(
+				Literal.literal('a'),
+				Group.capture(Perl.DIGIT.repeat(1, 3).or(Literal.literal("xy"))).anyTimes(),
+				CharClass.range('a', 'c').negated().optional(),
+				Entity.ANY_CHAR,
+				Literal.literal('b')
+			);
+		final Automaton automaton = Automaton.compile(expression);
+		assertThat(automaton.isDeterministic(), is(true));
+		assertAgreesWithPattern(expression, automaton, "abcxy012\n\u00e9", new Random(expression.hashCode()), 2000, 9);
+	}
+
+	@Test
+	public void testUnsupportedExpressionFallsBack()
+	{
+		final Expression expression = Entity.LINE_BEGIN.andThen(Literal.literal("ab")).andThen(Entity.WORD_BOUNDARY);
+		final Automaton automaton = Automaton.compile(expression);
+		assertThat(automaton.isDeterministic(), is(false));
+		assertAgreesWithPattern(expression, automaton, "ab -", new Random(expression.hashCode()), 2000, 9);
+	}
+
+	@Test
+	public void testSurrogateInputFallsBack()
+	{
+		final Automaton automaton = Automaton.compile(Literal.literal('a').andThen(Entity.ANY_CHAR).andThen(Literal.literal('b')));
+		assertThat(automaton.matches("a\ud83d\ude00b"), is(true));
+		assertThat(automaton.find("-a\ud83d\ude00b-"), is(true));
+	}
+
+	@Test
+	public void testNestedQuantifiersRunInLinearTime()
+	{
+		// (a+)+b takes exponential time in a backtracking engine.
+		final Expression expression = Group.capture(Literal.literal('a').atLeastOnce())
+			.atLeastOnce()
+			.andThen(Literal.literal('b'));
+		final Automaton automaton = Automaton.compile(expression);
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 100000; i++)
+			input.append('a');
+		input.append('!');
+		assertThat(automaton.matches(input), is(false));
+		assertThat(automaton.find(input), is(false));
+		input.setCharAt(input.length() - 1, 'b');
+		assertThat(automaton.matches(input), is(true));
+	}
+
+	@Test
+	public void testStateLimitBoundsCache()
+	{
+		// The DFA for (a|b)*a(a|b){18}c must remember the last 19 characters,
+		// so random input reaches far more than MAX_STATES states.
+		final CharClass ab = CharClass.range('a', 'b');
+		final Expression expression = ab.anyTimes()
+			.andThen(Literal.literal('a'))
+			.andThen(ab.repeat(18))
+			.andThen(Literal.literal('c'));
+		final Dfa dfa = new Dfa(Nfa.compile(expression), false);
+		final Pattern pattern = expression.toPattern();
+		final Random random = new Random(18);
+		for (int i = 0; i < 2000; i++)
+		{
+			final StringBuilder input = new StringBuilder();
+			for (int j = 0; j < 60; j++)
+				input.append(random.nextBoolean() ? 'a' : 'b');
+			if (random.nextBoolean())
+				input.append('c');
+			final boolean expected = pattern.matcher(input).matches();
+			assertThat(input.toString(), dfa.run(input, false), is(expected ? Dfa.MATCH : Dfa.NO_MATCH));
+		}
+		// Only cached states are reachable through cached transitions.
+		final Set<Dfa.State> reachable = Collections.newSetFromMap(new IdentityHashMap<Dfa.State, Boolean>());
+		final ArrayDeque<Dfa.State> pending = new ArrayDeque<Dfa.State>();
+		reachable.add(dfa.initial);
+		pending.add(dfa.initial);
+		while (!pending.isEmpty())
+		{
+			final Dfa.State state = pending.remove();
+			for (final char c : new char[] {'a', 'b', 'c'})
+			{
+				final Dfa.State next = state.transition(c);
+				if (next != null && reachable.add(next))
+					pending.add(next);
+			}
+		}
+		assertThat(reachable.size() > Dfa.MAX_STATES / 2, is(true));
+		assertThat(reachable.size() <= Dfa.MAX_STATES, is(true));
+	}
+}
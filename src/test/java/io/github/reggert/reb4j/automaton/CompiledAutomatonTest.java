@@ -0,0 +1,146 @@
+package io.github.reggert.reb4j.automaton;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.PatternAgreement;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.matching.MatchBudget;
+import io.github.reggert.reb4j.matching.MatchBudgetExceededException;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+
+public class CompiledAutomatonTest
+{
+	private static void assertAgreesWithPattern(final CompiledAutomaton automaton, final String alphabet)
+	{
+		final Random random = new Random(automaton.expression.hashCode());
+		PatternAgreement.assertAgreesWithPattern(automaton.expression, automaton, alphabet, random, 2000, 11);
+	}
+
+	@Test
+	public void testAgreesWithPattern()
+	{
+		final Expression expression = Sequence.sequence(
+				Literal.literal('a'),
+				Group.capture(Perl.DIGIT.repeat(1, 3).or(Literal.literal("xy"))).anyTimes(),
+				CharClass.range('a', 'c').negated().optional(),
+				Entity.ANY_CHAR,
+				Literal.literal('b')
+			);
+		final CompiledAutomaton automaton = CompiledAutomaton.compile(expression);
+		assertThat(automaton.isCompiled(), is(true));
+		assertAgreesWithPattern(automaton, "abcxy012\n\r\u0085\u2028\u00e9\uffff");
+	}
+
+	@Test
+	public void testCharacterClasses()
+	{
+		final Expression expression = Perl.WORD.atLeastOnce()
+			.andThen(Group.nonCapturing(Perl.SPACE.or(CharClass.range('\u00c0', '\u00ff').negated())))
+			.andThen(Perl.DIGIT.negated().anyTimes());
+		final CompiledAutomaton automaton = CompiledAutomaton.compile(expression);
+		assertThat(automaton.isCompiled(), is(true));
+		assertAgreesWithPattern(automaton, "a_9 \t\u00bf\u00c0\u00ff\u0100\u0000");
+	}
+
+	@Test
+	public void testPrefab()
+	{
+		final CompiledAutomaton automaton = CompiledAutomaton.compile(DottedDecimalIPv4Address.dottedDecimalIPAddress);
+		assertThat(automaton.isCompiled(), is(true));
+		assertThat(automaton.matches("192.168.0.1"), is(true));
+		assertThat(automaton.matches("255.255.255.255"), is(true));
+		assertThat(automaton.matches("256.1.1.1"), is(false));
+		assertThat(automaton.matches("1.2.3"), is(false));
+		assertThat(automaton.find("host 10.0.0.254 up"), is(true));
+		assertAgreesWithPattern(automaton, "0125.9");
+	}
+
+	@Test
+	public void testSurrogateInputFallsBack()
+	{
+		final CompiledAutomaton automaton =
+			CompiledAutomaton.compile(Literal.literal('a').andThen(Entity.ANY_CHAR).andThen(Literal.literal('b')));
+		assertThat(automaton.isCompiled(), is(true));
+		assertThat(automaton.matches("a\ud83d\ude00b"), is(true));
+		assertThat(automaton.find("-a\ud83d\ude00b-"), is(true));
+		assertThat(automaton.matches("a\ud83db"), is(true));
+	}
+
+	@Test
+	public void testUnsupportedExpressionFallsBack()
+	{
+		final CompiledAutomaton automaton =
+			CompiledAutomaton.compile(Entity.LINE_BEGIN.andThen(Literal.literal("ab")).andThen(Entity.WORD_BOUNDARY));
+		assertThat(automaton.isCompiled(), is(false));
+		assertAgreesWithPattern(automaton, "ab -");
+	}
+
+	@Test
+	public void testLargeAutomatonFallsBack()
+	{
+		// The DFA for (a|b)*a(a|b){12} must remember the last 13 characters.
+		final CharClass ab = CharClass.range('a', 'b');
+		final CompiledAutomaton automaton =
+			CompiledAutomaton.compile(ab.anyTimes().andThen(Literal.literal('a')).andThen(ab.repeat(12)));
+		assertThat(automaton.isCompiled(), is(false));
+		assertThat(automaton.matches("baaaaaaaaaaaaa"), is(true));
+		assertThat(automaton.matches("bbbbbbbbbbbbbb"), is(false));
+	}
+
+	@Test
+	public void testNullInput()
+	{
+		final CompiledAutomaton automaton = CompiledAutomaton.compile(Literal.literal("ab"));
+		try
+		{
+			automaton.matches(null);
+			fail("Expected NullPointerException");
+		}
+		catch (final NullPointerException e)
+		{
+			assertThat(e.getMessage(), is("input"));
+		}
+		try
+		{
+			automaton.find(null);
+			fail("Expected NullPointerException");
+		}
+		catch (final NullPointerException e)
+		{
+			assertThat(e.getMessage(), is("input"));
+		}
+	}
+
+	@Test
+	public void testBudget()
+	{
+		final CompiledAutomaton automaton = CompiledAutomaton.compile(Literal.literal('a').atLeastOnce());
+		final StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 10000; i++)
+			input.append('a');
+		assertThat(automaton.matches(input, MatchBudget.steps(20000)), is(true));
+		try
+		{
+			automaton.matches(input, MatchBudget.steps(5000));
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(e.getSteps(), is(5000L));
+		}
+	}
+}
@@ -0,0 +1,110 @@
+package io.github.reggert.reb4j.automaton;
+
+import static io.github.reggert.reb4j.PatternAgreement.randomString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Quantified;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+
+
+public class ExpressionSetTest
+{
+	private static final Expression[] EXPRESSIONS = {
+			Literal.literal("ab"),
+			Perl.DIGIT.atLeastOnce(),
+			Sequence.sequence(Literal.literal('a'), Entity.ANY_CHAR.anyTimes(), Literal.literal('b')),
+			Group.capture(Literal.literal("ab").or(Literal.literal('c'))).repeat(2, 3),
+			CharClass.range('a', 'c').negated().optional(),
+			Entity.LINE_BEGIN.andThen(Literal.literal('a')),
+			Literal.literal('b').andThen(Entity.WORD_BOUNDARY),
+			Group.nonCapturing(Literal.literal("a\u00e9")).anyTimes(Quantified.Mode.POSSESSIVE)
+		};
+
+	private static BitSet expected(final Expression[] expressions, final String input, final boolean wholeInput)
+	{
+		final BitSet expected = new BitSet();
+		for (int i = 0; i < expressions.length; i++)
+		{
+			final Matcher matcher = expressions[i].toPattern().matcher(input);
+			if (wholeInput ? matcher.matches() : matcher.find())
+				expected.set(i);
+		}
+		return expected;
+	}
+
+	@Test
+	public void testAgreesWithPatterns()
+	{
+		final ExpressionSet set = ExpressionSet.compile(EXPRESSIONS);
+		assertThat(set.size(), is(EXPRESSIONS.length));
+		assertThat(set.isInAutomaton(0), is(true));
+		assertThat(set.isInAutomaton(3), is(true));
+		assertThat(set.isInAutomaton(5), is(false));
+		assertThat(set.isInAutomaton(6), is(false));
+		final String alphabet = "abc01 \n\u00e9";
+		final Random random = new Random(19);
+		final BitSet reused = new BitSet();
+		for (int i = 0; i < 5000; i++)
+		{
+			final String string = randomString(random, alphabet, 11);
+			assertThat(string, set.matches(string), is(expected(EXPRESSIONS, string, true)));
+			assertThat(string, set.find(string), is(expected(EXPRESSIONS, string, false)));
+			set.find(string, reused);
+			assertThat(string, reused, is(expected(EXPRESSIONS, string, false)));
+		}
+	}
+
+	@Test
+	public void testManyKeywords()
+	{
+		final Expression[] keywords = new Expression[2000];
+		for (int i = 0; i < keywords.length; i++)
+			keywords[i] = Literal.literal("k" + i + ";");
+		final ExpressionSet set = ExpressionSet.compile(Arrays.asList(keywords));
+		final BitSet matched = set.find("x k7; k1999; k12k13; k20000;");
+		final BitSet expected = new BitSet();
+		expected.set(7);
+		expected.set(1999);
+		expected.set(13);
+		assertThat(matched, is(expected));
+		assertThat(set.matches("k42;").cardinality(), is(1));
+	}
+
+	@Test
+	public void testSurrogateInputFallsBack()
+	{
+		final ExpressionSet set = ExpressionSet.compile(
+				Literal.literal('a').andThen(Entity.ANY_CHAR).andThen(Literal.literal('b')),
+				Literal.literal('z')
+			);
+		final String input = "-a\ud83d\ude00b-";
+		assertThat(set.find(input), is(expected(new Expression[] {
+				Literal.literal('a').andThen(Entity.ANY_CHAR).andThen(Literal.literal('b')),
+				Literal.literal('z')
+			}, input, false)));
+		assertThat(set.find(input).get(0), is(true));
+	}
+
+	@Test
+	public void testEmptySet()
+	{
+		final ExpressionSet set = ExpressionSet.compile();
+		assertThat(set.find("abc").isEmpty(), is(true));
+		assertThat(set.matches("").isEmpty(), is(true));
+	}
+}
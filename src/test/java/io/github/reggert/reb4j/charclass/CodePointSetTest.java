@@ -0,0 +1,108 @@
+package io.github.reggert.reb4j.charclass;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+public class CodePointSetTest
+{
+	private static void assertAgreesWithPattern(final CharClass charClass)
+	{
+		final Pattern pattern = charClass.toPattern();
+		final int[] codePoints = {0, '\t', ' ', '0', 'A', '_', 'a', 0xE9, 0xFF, 0x100, 0x3B1, 0xD800, 0xFFFF, 0x1F600, Character.MAX_CODE_POINT};
+		for (final int codePoint : codePoints)
+			assertThat(
+					charClass + " on " + Integer.toHexString(codePoint),
+					charClass.contains(codePoint),
+					is(pattern.matcher(new String(Character.toChars(codePoint))).matches())
+				);
+	}
+
+	@Test
+	public void testSetOperations()
+	{
+		final CodePointSet digits = CodePointSet.range('0', '9');
+		final CodePointSet high = CodePointSet.range(0x100, 0x10000);
+		final CodePointSet union = digits.union(high).union(CodePointSet.of(':'));
+		assertThat(union.rangeCount(), is(2));
+		assertThat(union.last(0), is((int) ':'));
+		assertThat(union.contains('5'), is(true));
+		assertThat(union.contains(0x10000), is(true));
+		assertThat(union.contains(0x10001), is(false));
+		assertThat(union.intersect(CodePointSet.range('5', 0x200)), is(CodePointSet.range('5', ':').union(CodePointSet.range(0x100, 0x200))));
+		assertThat(union.complement().complement(), is(union));
+		assertThat(union.intersect(union.complement()).isEmpty(), is(true));
+		assertThat(union.union(union.complement()), is(CodePointSet.ALL));
+		assertThat(CodePointSet.ALL.contains(-1), is(false));
+		assertThat(CodePointSet.ALL.contains(Character.MAX_CODE_POINT + 1), is(false));
+	}
+
+	@Test
+	public void testContainsAgreesWithPattern()
+	{
+		assertAgreesWithPattern(CharClass.characters('a', '_', '\u00e9'));
+		assertAgreesWithPattern(CharClass.range('0', '\u0100').negated());
+		assertAgreesWithPattern(CharClass.Perl.WORD.union(CharClass.Perl.SPACE.negated()));
+		assertAgreesWithPattern(CharClass.Perl.DIGIT.union(CharClass.range('a', 'z').intersect(CharClass.Posix.UPPER.negated())));
+		assertAgreesWithPattern(CharClass.Unicode.Letter.LOWER_CASE.intersect(CharClass.character('a').negated()).negated());
+		assertAgreesWithPattern(CharClass.Unicode.Other.SURROGATE);
+	}
+
+	@Test
+	public void testRenderingIsNormalized()
+	{
+		final CharClass letters = CharClass.characters('a', 'b', 'c', 'd', 'e', 'f', 'g');
+		final CharClass digits = CharClass.characters('0', '1', '2', '3', '4', '5', '6', '7', '8', '9');
+		assertThat(letters.expression().toStringEager(), is("[a-g]"));
+		assertThat(CharClass.range('a', 'a').expression().toStringEager(), is("[a]"));
+		assertThat(CharClass.range('a', 'b').expression().toStringEager(), is("[ab]"));
+		final CharClass union = letters.union(digits).union(CharClass.range('a', 'c'));
+		assertThat(union.expression().toStringEager(), is("[0-9a-g]"));
+		// Characters and ranges are merged across nested unions, and other
+		// members follow them.
+		final CharClass mixed = CharClass.character('x')
+			.union(CharClass.Perl.DIGIT.union(CharClass.range('w', 'y')))
+			.union(CharClass.character('-'));
+		assertThat(mixed.expression().toStringEager(), is("[\\-w-y\\d]"));
+		assertAgreesWithPattern(mixed);
+	}
+
+	@Test
+	public void testNegatedIntersectionIsPortable()
+	{
+		// Java 8 reads [^\p{Ll}&&[^a]] as [^\p{Ll}]&&[^a].
+		final CharClass negated = CharClass.Unicode.Letter.LOWER_CASE.intersect(CharClass.character('a').negated()).negated();
+		assertThat(negated.expression().toStringEager(), is("[\\P{Ll}a]"));
+		final CharClass doubly = CharClass.range('a', 'z').intersect(CharClass.Perl.DIGIT.union(CharClass.character('x')).negated()).negated();
+		assertThat(doubly.expression().toStringEager(), is("[[^a-z][x\\d]]"));
+		assertAgreesWithPattern(doubly);
+	}
+
+	@Test
+	public void testNegatedUnionOfNestedClassesIsPortable()
+	{
+		// Java 8 reads [^[^c-e][^x]] as the union of [^c-e] and [^x].
+		final CharClass nested = CharClass.range('c', 'e').negated().union(CharClass.character('x').negated()).negated();
+		assertThat(nested.expression().toStringEager(), is("[[c-e]&&x]"));
+		final CharClass union = CharClass.character('a').union(nested);
+		assertThat(union.expression().toStringEager(), is("[a[[c-e]&&x]]"));
+		assertAgreesWithPattern(union);
+		final CharClass mixed = CharClass.range('0', '9').union(CharClass.Perl.SPACE).union(CharClass.character('a').negated()).negated();
+		assertThat(mixed.expression().toStringEager(), is("[[^0-9]&&\\S&&a]"));
+		assertAgreesWithPattern(mixed);
+		assertThat(CharClass.range('0', '9').union(CharClass.Perl.SPACE).negated().expression().toStringEager(), is("[^0-9\\s]"));
+	}
+
+	@Test
+	public void testRenderedSurrogatesAreNotPaired()
+	{
+		final CharClass surrogates = CharClass.character('\ud83d').union(CharClass.range('\ude00', '\ude02'));
+		assertThat(surrogates.expression().toStringEager(), is("[\\x{d83d}\\x{de00}-\\x{de02}]"));
+		assertAgreesWithPattern(surrogates);
+		assertAgreesWithPattern(CharClass.characters('\ud83d', '\ude00').negated());
+	}
+}
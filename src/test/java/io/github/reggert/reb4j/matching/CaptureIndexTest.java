@@ -0,0 +1,108 @@
+package io.github.reggert.reb4j.matching;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+
+public class CaptureIndexTest
+{
+	private static final Group.Capture YEAR = Group.capture(Perl.DIGIT.repeat(4));
+	private static final Group.Capture MONTH = Group.capture(Perl.DIGIT.repeat(2));
+	private static final Group.Capture DATE = Group.capture(Sequence.sequence(YEAR, Literal.literal('-'), MONTH));
+
+	@Test
+	public void testNumbersGroupsInOpeningOrder()
+	{
+		final Expression expression = Literal.literal("on ").andThen(DATE);
+		final CaptureIndex index = expression.captureIndex();
+		assertThat(index.groupCount, is(3));
+		assertThat(index.indexOf(DATE), is(1));
+		assertThat(index.indexOf(YEAR), is(2));
+		assertThat(index.indexOf(MONTH), is(3));
+		final Matcher matcher = expression.toPattern().matcher("on 2024-06");
+		assertThat(matcher.matches(), is(true));
+		assertThat(matcher.group(index.indexOf(YEAR)), is("2024"));
+		assertThat(matcher.group(index.indexOf(MONTH)), is("06"));
+	}
+
+	@Test
+	public void testCompositionShiftsNumbers()
+	{
+		final Expression expression = Group.capture(Perl.WORD.atLeastOnce())
+			.andThen(Literal.literal(' '))
+			.andThen(Group.nonCapturing(Adopted.fromPattern(Pattern.compile("(a)|(b)"))))
+			.andThen(DATE);
+		final CaptureIndex index = CaptureIndex.of(expression);
+		assertThat(index.groupCount, is(expression.toPattern().matcher("").groupCount()));
+		assertThat(index.indexOf(DATE), is(4));
+		assertThat(index.indexOf(YEAR), is(5));
+		final CaptureView view = new Captures(expression).matches("due a1999-12");
+		assertThat(view.parseInt(YEAR), is(1999));
+		assertThat(view.group(MONTH).toString(), is("12"));
+		assertThat(view.start(DATE), is(5));
+	}
+
+	@Test
+	public void testIsComputedOncePerExpression()
+	{
+		assertThat(DATE.captureIndex(), sameInstance(DATE.captureIndex()));
+	}
+
+	@Test
+	public void testRepeatedNodes()
+	{
+		final Expression expression = Sequence.sequence(MONTH, Literal.literal('/'), MONTH);
+		final CaptureIndex index = expression.captureIndex();
+		assertThat(Arrays.toString(index.indicesOf(MONTH)), is("[1, 2]"));
+		try
+		{
+			index.indexOf(MONTH);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testEqualNodesAreDistinct()
+	{
+		final Group.Capture other = Group.capture(Perl.DIGIT.repeat(4));
+		assertThat(other, is(YEAR));
+		final CaptureIndex index = Sequence.sequence(YEAR, Literal.literal('-'), other).captureIndex();
+		assertThat(index.indexOf(YEAR), is(1));
+		assertThat(index.indexOf(other), is(2));
+		assertThat(index.contains(MONTH), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsAbsentNodes()
+	{
+		DATE.captureIndex().indexOf(Group.capture(Perl.DIGIT));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testViewsWithoutIndexOnlyUseNumbers()
+	{
+		final Matcher matcher = YEAR.toPattern().matcher("2024");
+		assertThat(matcher.matches(), is(true));
+		new CaptureView(matcher, "2024").start(YEAR);
+	}
+}
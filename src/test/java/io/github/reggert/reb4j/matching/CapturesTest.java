@@ -0,0 +1,162 @@
+package io.github.reggert.reb4j.matching;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.github.reggert.reb4j.Adopted;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.UnboundedLookBehindException;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.prefab.DottedDecimalIPv4Address;
+
+import java.net.InetAddress;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+
+public class CapturesTest
+{
+	private static final Expression KEY_VALUE = Sequence.sequence(
+			Group.capture(Perl.WORD.atLeastOnce()),
+			Literal.literal('='),
+			Group.nonCapturing(
+					Group.capture(
+							Group.capture(CharClass.characters('+', '-')).optional()
+								.andThen(Perl.DIGIT.atLeastOnce())
+						).or(Group.capture(Perl.WORD.anyTimes()))
+				)
+		);
+
+	@Test
+	public void testGroupCountAgreesWithPattern() throws UnboundedLookBehindException
+	{
+		final Expression[] expressions = {
+				Literal.literal("abc"),
+				KEY_VALUE,
+				DottedDecimalIPv4Address.dottedDecimalIPAddress,
+				Group.positiveLookBehind(Group.capture(Literal.literal('a'))).andThen(Group.capture(Perl.DIGIT)),
+				Group.nonCapturing(Adopted.fromPattern(Pattern.compile("(a)(?:b)(c(d))"))).andThen(Group.capture(Perl.DIGIT))
+			};
+		for (final Expression expression : expressions)
+			assertThat(
+					expression.toString(),
+					Captures.groupCount(expression),
+					is(expression.toPattern().matcher("").groupCount())
+				);
+	}
+
+	@Test
+	public void testOffsetsAndViews()
+	{
+		final Captures captures = new Captures(KEY_VALUE);
+		assertThat(captures.groupCount, is(4));
+		final CaptureView view = captures.matches("port=-8080");
+		assertThat(view.groupCount(), is(4));
+		assertThat(view.start(0), is(0));
+		assertThat(view.end(0), is(10));
+		assertThat(view.start(1), is(0));
+		assertThat(view.end(1), is(4));
+		assertThat(view.group(1).toString(), is("port"));
+		assertThat(view.group(2).length(), is(5));
+		assertThat(view.group(2).charAt(1), is('8'));
+		assertThat(view.group(2).subSequence(1, 3).toString(), is("80"));
+		assertThat(view.group(3).toString(), is("-"));
+		assertThat(view.matched(4), is(false));
+		assertThat(view.start(4), is(-1));
+		assertThat(view.group(4), is(nullValue()));
+		assertThat(view.parseInt(2), is(-8080));
+		assertThat(captures.matches("port=8.0"), is(nullValue()));
+	}
+
+	@Test
+	public void testFind()
+	{
+		final Captures captures = new Captures(KEY_VALUE);
+		final CaptureView view = captures.find("  timeout=30;");
+		assertThat(view.start(0), is(2));
+		assertThat(view.group(1).toString(), is("timeout"));
+		assertThat(view.parseInt(2), is(30));
+		assertThat(captures.find("  ;"), is(nullValue()));
+	}
+
+	@Test
+	public void testParseIntAgreesWithInteger()
+	{
+		final Captures captures = new Captures(Group.capture(CharClass.characters('+', '-').union(Perl.WORD).anyTimes()));
+		final String[] inputs = {
+				"0", "7", "-7", "+7", "0042", "2147483647", "-2147483648", "2147483648", "-2147483649",
+				"99999999999", "", "-", "+", "1-2", "12a", "--1"
+			};
+		for (final String input : inputs)
+		{
+			final CaptureView view = captures.matches(input);
+			for (final int radix : new int[] {10, 16})
+			{
+				Integer expected;
+				try
+				{
+					expected = Integer.parseInt(input, radix);
+				}
+				catch (final NumberFormatException e)
+				{
+					expected = null;
+				}
+				try
+				{
+					final int actual = view.parseInt(1, radix);
+					assertThat(input, (Integer) actual, is(expected));
+				}
+				catch (final NumberFormatException e)
+				{
+					assertThat(input, expected, is(nullValue()));
+				}
+			}
+		}
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testParseIntOfMissingGroup()
+	{
+		new Captures(KEY_VALUE).matches("a=b").parseInt(3);
+	}
+
+	@Test
+	public void testRejectsNonexistentGroups()
+	{
+		final CaptureView view = new Captures(KEY_VALUE).matches("a=1");
+		for (final int group : new int[] {-1, 5})
+		{
+			try
+			{
+				view.start(group);
+				fail("Expected IndexOutOfBoundsException for group " + group);
+			}
+			catch (final IndexOutOfBoundsException e)
+			{
+				// expected
+			}
+		}
+	}
+
+	@Test
+	public void testDottedDecimalParse() throws Exception
+	{
+		assertThat(
+				Arrays.equals(
+						DottedDecimalIPv4Address.parse("192.168.0.255").get().getAddress(),
+						InetAddress.getByName("192.168.0.255").getAddress()
+					),
+				is(true)
+			);
+		assertThat(DottedDecimalIPv4Address.parse("192.168.0.256").isPresent(), is(false));
+	}
+}
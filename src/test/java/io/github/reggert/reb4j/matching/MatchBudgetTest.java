@@ -0,0 +1,176 @@
+package io.github.reggert.reb4j.matching;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.automaton.Automaton;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+
+
+public class MatchBudgetTest
+{
+	/*
+	 * (?:a|a){0,100}b takes exponential time on a run of 'a's without a 'b'.
+	 * (Bounded rather than unbounded repetition, which newer versions of
+	 * Pattern memoize.)
+	 */
+	private static final Expression EXPONENTIAL = Group.nonCapturing(Literal.literal('a').or(Literal.literal('a')))
+		.repeat(0, 100)
+		.andThen(Literal.literal('b'));
+
+	private static String repeat(final char c, final int count)
+	{
+		final StringBuilder builder = new StringBuilder(count);
+		for (int i = 0; i < count; i++)
+			builder.append(c);
+		return builder.toString();
+	}
+
+	@Test
+	public void testStepBudget()
+	{
+		final MatcherPool pool = EXPONENTIAL.matching();
+		final MatchBudget budget = MatchBudget.steps(100000);
+		assertThat(pool.matches("aaab", budget), is(true));
+		assertThat(pool.find("xaaabx", budget), is(true));
+		assertThat(pool.find("aaaa", budget), is(false));
+		try
+		{
+			pool.matches(repeat('a', 40), budget);
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(e.getSteps(), is(100000L));
+		}
+		// The pool remains usable.
+		assertThat(pool.matches("ab", budget), is(true));
+	}
+
+	@Test
+	public void testSmallBudgetsAreExact()
+	{
+		final MatcherPool pool = Literal.literal("abc").matching();
+		assertThat(pool.matches("abc", MatchBudget.steps(3)), is(true));
+		try
+		{
+			pool.matches("abc", MatchBudget.steps(2));
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(e.getSteps(), is(2L));
+		}
+	}
+
+	@Test
+	public void testTimeout()
+	{
+		final long started = System.nanoTime();
+		try
+		{
+			EXPONENTIAL.matching().find(repeat('a', 60), MatchBudget.timeout(50, TimeUnit.MILLISECONDS));
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(e.getSteps() > 0, is(true));
+		}
+		assertThat(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(10), is(true));
+	}
+
+	@Test
+	public void testInterruption()
+	{
+		Thread.currentThread().interrupt();
+		try
+		{
+			EXPONENTIAL.matching().matches(repeat('a', 60), MatchBudget.UNLIMITED);
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(Thread.currentThread().isInterrupted(), is(true));
+		}
+		finally
+		{
+			Thread.interrupted();
+		}
+	}
+
+	@Test
+	public void testOtherMatchers()
+	{
+		final String input = repeat('a', 10000);
+		final MatchBudget budget = MatchBudget.steps(5000);
+		final ExpressionMatcher[] matchers = {
+				Automaton.compile(Literal.literal('a').atLeastOnce()),
+				new PrefilteredMatcher(Literal.literal('a').atLeastOnce())
+			};
+		for (final ExpressionMatcher matcher : matchers)
+		{
+			assertThat(matcher.matches(input, MatchBudget.steps(20000)), is(true));
+			try
+			{
+				matcher.matches(input, budget);
+				fail("Expected MatchBudgetExceededException");
+			}
+			catch (final MatchBudgetExceededException e)
+			{
+				// expected
+			}
+		}
+		// Input rejected by the prefilter never reaches the pattern.
+		assertThat(new PrefilteredMatcher(EXPONENTIAL).find(input, MatchBudget.steps(0)), is(false));
+	}
+
+	@Test
+	public void testGuardedInput()
+	{
+		final CharSequence guarded = MatchBudget.steps(1).guard("abc");
+		assertThat(guarded.length(), is(3));
+		assertThat(guarded.toString(), is("abc"));
+		assertThat(guarded.subSequence(1, 3).toString(), is("bc"));
+		assertThat(guarded.charAt(2), is('c'));
+		try
+		{
+			guarded.charAt(0);
+			fail("Expected MatchBudgetExceededException");
+		}
+		catch (final MatchBudgetExceededException e)
+		{
+			assertThat(e.getSteps(), is(1L));
+		}
+	}
+
+	@Test
+	public void testInvalidBudgets()
+	{
+		try
+		{
+			MatchBudget.steps(-1);
+			fail("Expected IllegalArgumentException");
+		}
+		catch (final IllegalArgumentException e)
+		{
+			// expected
+		}
+		try
+		{
+			MatchBudget.timeout(1, null);
+			fail("Expected NullPointerException");
+		}
+		catch (final NullPointerException e)
+		{
+			// expected
+		}
+	}
+}
@@ -0,0 +1,124 @@
+package io.github.reggert.reb4j.matching;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+
+
+public class MatcherPoolTest
+{
+	private static final Expression EXPRESSION = Sequence.sequence(
+			Literal.literal("id"),
+			Literal.literal('='),
+			Group.capture(Perl.DIGIT.atLeastOnce())
+		);
+
+	@Test
+	public void testMatchesAndFind()
+	{
+		final MatcherPool pool = EXPRESSION.matching();
+		assertThat(pool.matches("id=42"), is(true));
+		assertThat(pool.matches("id=42;"), is(false));
+		assertThat(pool.find("x id=42;"), is(true));
+		assertThat(pool.find("id=;"), is(false));
+		assertThat(pool.idleCount(), is(1));
+	}
+
+	@Test
+	public void testExpressionReturnsSamePool()
+	{
+		assertThat(EXPRESSION.matching(), sameInstance(EXPRESSION.matching()));
+		assertThat(EXPRESSION.matching().expression, sameInstance(EXPRESSION));
+	}
+
+	@Test
+	public void testReusesReleasedMatchers()
+	{
+		final MatcherPool pool = new MatcherPool(EXPRESSION, 1);
+		final Matcher first = pool.acquire("id=1");
+		assertThat(first.matches(), is(true));
+		assertThat(first.group(1), is("1"));
+		pool.release(first);
+		final Matcher second = pool.acquire("id=23");
+		assertThat(second, sameInstance(first));
+		assertThat(second.matches(), is(true));
+		assertThat(second.group(1), is("23"));
+		final Matcher third = pool.acquire("id=4");
+		assertThat(third, not(sameInstance(second)));
+		pool.release(second);
+		pool.release(third);
+		assertThat(pool.idleCount(), is(1));
+	}
+
+	@Test
+	public void testIsBounded()
+	{
+		final MatcherPool pool = new MatcherPool(EXPRESSION, 2);
+		final Matcher[] matchers = new Matcher[5];
+		for (int i = 0; i < matchers.length; i++)
+			matchers[i] = pool.acquire("");
+		for (final Matcher matcher : matchers)
+			pool.release(matcher);
+		assertThat(pool.idleCount(), is(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsForeignMatchers()
+	{
+		new MatcherPool(EXPRESSION).release(Pattern.compile(EXPRESSION.toString()).matcher(""));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNonPositiveCapacity()
+	{
+		new MatcherPool(EXPRESSION, 0);
+	}
+
+	@Test
+	public void testConcurrentUse() throws InterruptedException
+	{
+		final MatcherPool pool = new MatcherPool(EXPRESSION, 2);
+		final AtomicInteger failures = new AtomicInteger();
+		final Thread[] threads = new Thread[8];
+		for (int t = 0; t < threads.length; t++)
+		{
+			final int id = t;
+			threads[t] = new Thread()
+			{
+				@Override
+				public void run()
+				{
+					for (int i = 0; i < 2000; i++)
+					{
+						final String value = Integer.toString(id * 10000 + i);
+						final Matcher matcher = pool.acquire("id=" + value);
+						if (!matcher.matches() || !matcher.group(1).equals(value))
+							failures.incrementAndGet();
+						pool.release(matcher);
+						if (pool.matches("id=" + value + "x"))
+							failures.incrementAndGet();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (final Thread thread : threads)
+			thread.join();
+		assertThat(failures.get(), is(0));
+		assertThat(pool.idleCount() <= 2, is(true));
+	}
+}
@@ -0,0 +1,147 @@
+package io.github.reggert.reb4j.matching;
+
+import static io.github.reggert.reb4j.PatternAgreement.randomString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Entity;
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.UnboundedLookBehindException;
+import io.github.reggert.reb4j.charclass.CharClass;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+
+
+public class ParallelScannerTest
+{
+	private static String sequential(final Expression expression, final CharSequence input)
+	{
+		final StringBuilder result = new StringBuilder();
+		final Matcher matcher = expression.toPattern().matcher(input);
+		while (matcher.find())
+		{
+			result.append(matcher.start()).append('-').append(matcher.end());
+			for (int group = 1; group <= matcher.groupCount(); group++)
+				result.append(',').append(matcher.start(group));
+			result.append(' ');
+		}
+		return result.toString();
+	}
+
+	private static String parallel(final ParallelScanner scanner, final CharSequence input)
+	{
+		final StringBuilder result = new StringBuilder();
+		for (final CaptureView view : scanner.findAll(input))
+		{
+			result.append(view.start(0)).append('-').append(view.end(0));
+			for (int group = 1; group <= view.groupCount(); group++)
+				result.append(',').append(view.start(group));
+			result.append(' ');
+		}
+		return result.toString();
+	}
+
+	@Test
+	public void testOverlappingChunksAgreeWithSequentialScan() throws UnboundedLookBehindException
+	{
+		final Expression[] expressions = {
+				Literal.literal("abab"),
+				Literal.literal('a').repeat(0, 3),
+				Group.capture(Literal.literal("ab").or(Literal.literal('b'))).andThen(Literal.literal('a').optional()),
+				Sequence.sequence(Entity.WORD_BOUNDARY, Perl.WORD.repeat(1, 4), Entity.WORD_BOUNDARY),
+				Group.positiveLookBehind(Literal.literal('a')).andThen(Literal.literal("ba")),
+				Entity.LINE_BEGIN.andThen(Literal.literal('b')),
+				Entity.ANY_CHAR.repeat(2)
+			};
+		final ForkJoinPool pool = new ForkJoinPool(4);
+		try
+		{
+			final Random random = new Random(20);
+			for (final Expression expression : expressions)
+				for (int chunkSize = 1; chunkSize <= 9; chunkSize++)
+				{
+					final ParallelScanner scanner = ParallelScanner.overlapping(expression)
+						.withChunkSize(chunkSize)
+						.withPool(pool);
+					for (int i = 0; i < 100; i++)
+					{
+						final String input = randomString(random, "abab \n\ud83d\ude00", 39);
+						assertThat(
+								expression + " in chunks of " + chunkSize + " on " + input,
+								parallel(scanner, input),
+								is(sequential(expression, input))
+							);
+					}
+				}
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testRecordChunksAgreeWithSequentialScan()
+	{
+		final Expression[] expressions = {
+				Group.capture(Perl.DIGIT.atLeastOnce()).andThen(Literal.literal(';').optional()),
+				CharClass.character('\n').negated().anyTimes(),
+				Entity.LINE_BEGIN.andThen(Literal.literal('x')),
+				Literal.literal("x\n")
+			};
+		final Random random = new Random(20);
+		for (final Expression expression : expressions)
+			for (int chunkSize = 1; chunkSize <= 9; chunkSize++)
+			{
+				final ParallelScanner scanner = ParallelScanner.records(expression, '\n').withChunkSize(chunkSize);
+				for (int i = 0; i < 100; i++)
+				{
+					final String input = randomString(random, "x12;\n\n", 39);
+					assertThat(
+							expression + " in chunks of " + chunkSize + " on " + input,
+							parallel(scanner, input),
+							is(sequential(expression, input))
+						);
+				}
+			}
+	}
+
+	@Test
+	public void testLargeInput()
+	{
+		final Expression expression = Literal.literal("id=").andThen(Group.capture(Perl.DIGIT.repeat(1, 6)));
+		final StringBuilder input = new StringBuilder();
+		final Random random = new Random(20);
+		while (input.length() < 1 << 20)
+			input.append("id=").append(random.nextInt(10000000)).append(random.nextBoolean() ? ' ' : '\n');
+		final ParallelScanner overlapping = ParallelScanner.overlapping(expression).withChunkSize(4096);
+		final ParallelScanner records = ParallelScanner.records(expression, '\n').withChunkSize(4096);
+		final String expected = sequential(expression, input);
+		assertThat(parallel(overlapping, input), is(expected));
+		assertThat(parallel(records, input), is(expected));
+		final Matcher matcher = expression.toPattern().matcher(input);
+		matcher.find();
+		assertThat(overlapping.findAll(input).head().parseInt(1), is(Integer.parseInt(matcher.group(1))));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsUnboundedExpressionsWithoutRecords()
+	{
+		ParallelScanner.overlapping(Perl.DIGIT.atLeastOnce());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsEndOfPreviousMatch()
+	{
+		ParallelScanner.records(Entity.MATCH_END.andThen(Perl.DIGIT), '\n');
+	}
+}
@@ -0,0 +1,56 @@
+package io.github.reggert.reb4j.matching;
+
+import static io.github.reggert.reb4j.PatternAgreement.assertAgreesWithPattern;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.github.reggert.reb4j.Expression;
+import io.github.reggert.reb4j.Group;
+import io.github.reggert.reb4j.Literal;
+import io.github.reggert.reb4j.Sequence;
+import io.github.reggert.reb4j.charclass.CharClass.Perl;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+
+
+public class PrefilteredMatcherTest
+{
+	private static final Expression EXPRESSION = Sequence.sequence(
+			Literal.literal("ab"),
+			Perl.DIGIT.anyTimes(),
+			Group.capture(Literal.literal("xy").or(Literal.literal("xz"))),
+			Literal.literal('b')
+		);
+
+	@Test
+	public void testAgreesWithPattern()
+	{
+		final PrefilteredMatcher matcher = new PrefilteredMatcher(EXPRESSION);
+		assertAgreesWithPattern(EXPRESSION, matcher, "abxyz01", new Random(1L), 5000, 11);
+		assertThat(matcher.filteredCount() + matcher.evaluatedCount(), is(20000L));
+		assertThat(matcher.filteredCount() > 0, is(true));
+	}
+
+	@Test
+	public void testCountsFilteredInput()
+	{
+		final PrefilteredMatcher matcher = new PrefilteredMatcher(EXPRESSION);
+		assertThat(matcher.find("no match here"), is(false));
+		assertThat(matcher.matches("ab12xyb"), is(true));
+		assertThat(matcher.find("--ab12xzb--"), is(true));
+		assertThat(matcher.filteredCount(), is(1L));
+		assertThat(matcher.evaluatedCount(), is(2L));
+	}
+
+	@Test
+	public void testHorspoolSearchOnNonStringInput()
+	{
+		final PrefilteredMatcher matcher = new PrefilteredMatcher(Literal.literal("needle"));
+		assertThat(matcher.find(new StringBuilder("haystack with a needle in it")), is(true));
+		assertThat(matcher.find(new StringBuilder("haystack with a needl")), is(false));
+		assertThat(matcher.find(new StringBuilder("eedle needle")), is(true));
+	}
+}
@@ -3,12 +3,13 @@ package io.github.reggert.reb4j.prefab;
 import io.github.reggert.reb4j.*;
 import io.github.reggert.reb4j.charclass.CharClass;
 import io.github.reggert.reb4j.charclass.CharClass.Perl;
+import io.github.reggert.reb4j.matching.CaptureView;
+import io.github.reggert.reb4j.matching.Captures;
 
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.Optional;
-import java.util.regex.Matcher;
 
 public final class DottedDecimalIPv4Address {
     private DottedDecimalIPv4Address() {
@@ -33,15 +34,22 @@ public final class DottedDecimalIPv4Address {
         threeDigitOctet
     );
     private static final CharLiteral dot = Literal.literal('.');
-    public static final Sequence dottedDecimalIPAddress = Sequence.sequence(
+    private static final Group.Capture[] octets = {
         Group.capture(octet),
-        dot,
         Group.capture(octet),
-        dot,
         Group.capture(octet),
-        dot,
         Group.capture(octet)
+    };
+    public static final Sequence dottedDecimalIPAddress = Sequence.sequence(
+        octets[0],
+        dot,
+        octets[1],
+        dot,
+        octets[2],
+        dot,
+        octets[3]
     );
+    private static final Captures captures = new Captures(dottedDecimalIPAddress);
 
     /**
      * Parses the specified string as an IPv4 address in dotted-decimal notation.
@@ -50,16 +58,14 @@ public final class DottedDecimalIPv4Address {
      * @return the parsed {@link Inet4Address}, or {@link Optional#empty()} if the string is invalid.
      */
     public static Optional<Inet4Address> parse(final String s) {
-        final Matcher matcher = dottedDecimalIPAddress.toPattern().matcher(s);
-        if (matcher.matches()) {
-            final byte[] octets = new byte[]{
-                (byte) Integer.parseInt(matcher.group(1)),
-                (byte) Integer.parseInt(matcher.group(2)),
-                (byte) Integer.parseInt(matcher.group(3)),
-                (byte) Integer.parseInt(matcher.group(4))
-            };
+        final CaptureView view = captures.matches(s);
+        if (view != null) {
+            final byte[] address = new byte[octets.length];
+            for (int i = 0; i < octets.length; i++) {
+                address[i] = (byte) view.parseInt(octets[i]);
+            }
             try {
-                return Optional.of((Inet4Address) InetAddress.getByAddress(s, octets));
+                return Optional.of((Inet4Address) InetAddress.getByAddress(s, address));
             }
             catch (final UnknownHostException e) {
                 throw new AssertionError("Unreachable", e);
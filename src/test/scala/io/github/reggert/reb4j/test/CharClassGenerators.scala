@@ -86,6 +86,13 @@ trait CharClassGenerators extends UtilGenerators {
 	}
 	
 	
+	/**
+		* Generates the kinds of character class that are merged into a single set of ranges when rendered within
+		* a union.
+		*/
+	def genMergeable : Gen[CharClass] = Gen.oneOf(genSingleChar, genCharRange, Gen.choose(2, 8) flatMap genMultiChar)
+
+
 	def genSingleChar : Gen[SingleChar] = for {
 		c <- arbitrary[Char]
 	} yield CharClass.character(c)
@@ -1,11 +1,51 @@
 package io.github.reggert.reb4j.test
 
 import io.github.reggert.reb4j.charclass.CharClass
-import org.scalacheck.{Gen, Shrink}
+import org.scalacheck.{Gen, Prop, Shrink}
 import Shrink._
+import org.scalacheck.Arbitrary.arbitrary
 import org.scalacheck.Prop.forAll
 
 trait CharClassProperties[E <: CharClass] {
 	def symmetricNegation(g : Gen[E]) (implicit s : Shrink[E]) = 
 		forAll(g) {e => e.negated.negated == e}
-}
\ No newline at end of file
+
+	/**
+		* Checks that the rendered class matches exactly the characters in its code point set, which is computed
+		* from the structure of the class rather than from its (normalized) rendering. The characters tried are
+		* arbitrary ones, and those on either side of each boundary of the set.
+		*/
+	def matchesCodePoints(g : Gen[E])(implicit s : Shrink[E]) : Prop =
+		forAll(g, Gen.listOfN(16, arbitrary[Char])) {(e, chars) =>
+			val pattern = e.toPattern
+			val codePoints = e.codePoints
+			val edges = for {
+				i <- 0 until codePoints.rangeCount
+				c <- Seq(codePoints.first(i) - 1, codePoints.first(i), codePoints.last(i), codePoints.last(i) + 1)
+				if c >= 0 && c <= Char.MaxValue
+			} yield c.toChar
+			(chars ++ edges) forall {c => pattern.matcher(c.toString).matches == e.contains(c)}
+		}
+
+	/**
+		* Checks that a union matches a character exactly when one of its members does.
+		*/
+	def unionMatchesMembers(g : Gen[List[E]]) : Prop =
+		forAll(g, arbitrary[Char]) {(members, c) =>
+			members.length < 2 || {
+				val union = members.reduceLeft[CharClass](_ union _)
+				union.toPattern.matcher(c.toString).matches == members.exists(_.toPattern.matcher(c.toString).matches)
+			}
+		}
+
+	/**
+		* Checks that the rendering of a union of characters, ranges and sets of characters is canonical: it does
+		* not depend on the order of the members.
+		*/
+	def canonicalUnion(g : Gen[List[E]]) : Prop =
+		forAll(g) {members =>
+			members.length < 2 ||
+				members.reduceLeft[CharClass](_ union _).expression.toStringEager ==
+					members.reverse.reduceLeft[CharClass](_ union _).expression.toStringEager
+		}
+}
@@ -2,6 +2,7 @@ package io.github.reggert.reb4j.test
 
 import io.github.reggert.reb4j.charclass.CharClass
 import org.scalacheck.Arbitrary.arbitrary
+import org.scalacheck.Gen
 import io.github.reggert.reb4j.charclass.SingleChar
 import io.github.reggert.reb4j.charclass.MultiChar
 import io.github.reggert.reb4j.charclass.CharRange
@@ -21,6 +22,9 @@ class CharClassProps extends JUnitSuite with Checkers
 {
 	@Test def toPattern() : Unit = check(toPattern(arbitrary[CharClass]), minSuccessful(100000), maxDiscardedFactor(1.0))
 	@Test def symmetricNegation() : Unit = check(symmetricNegation(arbitrary[CharClass]))
+	@Test def matchesCodePoints() : Unit = check(matchesCodePoints(arbitrary[CharClass]), minSuccessful(10000), maxDiscardedFactor(1.0))
+	@Test def unionMatchesMembers() : Unit = check(unionMatchesMembers(Gen.listOf(genMergeable)), minSuccessful(10000))
+	@Test def canonicalUnion() : Unit = check(canonicalUnion(Gen.listOf(genMergeable)), minSuccessful(10000))
 }
 
 
@@ -44,6 +48,7 @@ class MultiCharProps extends JUnitSuite with Checkers
 {
 	@Test def toPattern() : Unit = check(toPattern(arbitrary[MultiChar]), minSuccessful(100000), maxDiscardedFactor(1.0))
 	@Test def symmetricNegation() : Unit = check(symmetricNegation(arbitrary[MultiChar]))
+	@Test def matchesCodePoints() : Unit = check(matchesCodePoints(arbitrary[MultiChar]), minSuccessful(10000), maxDiscardedFactor(5.0))
 }
 
 
@@ -55,6 +60,7 @@ class CharRangeProps extends JUnitSuite with Checkers
 {
 	@Test def toPattern() : Unit = check(toPattern(arbitrary[CharRange]), minSuccessful(100000), maxDiscardedFactor(5.0))
 	@Test def symmetricNegation() : Unit = check(symmetricNegation(arbitrary[CharRange]))
+	@Test def matchesCodePoints() : Unit = check(matchesCodePoints(arbitrary[CharRange]), minSuccessful(10000), maxDiscardedFactor(5.0))
 }
 
 
@@ -79,6 +85,7 @@ class UnionProps extends JUnitSuite with Checkers
 {
 	@Test def toPattern() : Unit = check(toPattern(arbitrary[Union]), minSuccessful(100000), maxDiscardedFactor(5.0))
 	@Test def symmetricNegation() : Unit = check(symmetricNegation(arbitrary[Union]))
+	@Test def matchesCodePoints() : Unit = check(matchesCodePoints(arbitrary[Union]), minSuccessful(10000), maxDiscardedFactor(5.0))
 }
 
 
@@ -136,6 +136,11 @@ trait ExpressionGenerators extends CharClassGenerators
 		}
 	}
 	
+	/**
+		* Generates the counts used by bounded quantifiers, which may be arbitrarily large.
+		*/
+	def genRepetitions : Gen[Int] = arbitrary[Int]
+	
 	def genQuantified(size : Int) : Gen[Quantified] = {
 		require(size > 0)
 		for {
@@ -146,15 +151,15 @@ trait ExpressionGenerators extends CharClassGenerators
 					quantifiableGen map (_.atLeastOnce(mode)),
 					quantifiableGen map (_.optional(mode)),
 					for {
-						n <- arbitrary[Int] if n > 0
+						n <- genRepetitions if n > 0
 						quantifiable <- quantifiableGen
 					} yield quantifiable.repeat(n, mode),
 					for {
-						List(n, m) <- Gen.listOfN(2, arbitrary[Int]) if n >= 0 && m > n
+						List(n, m) <- Gen.listOfN(2, genRepetitions) if n >= 0 && m > n
 							quantifiable <- quantifiableGen
 					} yield quantifiable.repeat(n, m, mode),
 					for {
-						n <- arbitrary[Int] if n > 0
+						n <- genRepetitions if n > 0
 						quantifiable <- quantifiableGen
 					} yield quantifiable.atLeast(n, mode)
 				)
@@ -0,0 +1,75 @@
+package io.github.reggert.reb4j.test
+
+import java.util.concurrent.TimeUnit
+
+import io.github.reggert.reb4j.matching.{MatchBudget, MatchBudgetExceededException}
+import io.github.reggert.reb4j.{Expression, Possessification}
+import org.junit.Test
+import org.scalacheck.Arbitrary.arbitrary
+import org.scalacheck.Prop.forAll
+import org.scalacheck.{Gen, Prop}
+import org.scalatestplus.junit.JUnitSuite
+import org.scalatestplus.scalacheck.Checkers
+
+
+class PossessificationProps extends JUnitSuite with Checkers
+	with ExpressionGenerators with ExpressionShrinkers
+{
+	/**
+		* Generates short inputs from the characters of the rendered expression, so that they have a fair chance
+		* of matching it.
+		*/
+	def genInput(expression : Expression) : Gen[String] = {
+		val alphabet = (expression.toString + "a0_ \n").distinct
+		for {
+			length <- Gen.choose(0, 12)
+			chars <- Gen.listOfN(length, Gen.oneOf(alphabet.toVector))
+		} yield chars.mkString
+	}
+
+	/**
+		* Keeps repetition counts small. Pattern repeats a zero-width group up to its minimum count without
+		* reading any input, so a count near Int.MaxValue takes minutes even on empty input, and the budget
+		* below cannot interrupt it.
+		*/
+	override def genRepetitions : Gen[Int] = Gen.choose(0, 4)
+
+	/**
+		* Limits the work done matching each input. Arbitrary expressions include ones that backtrack
+		* catastrophically, which would otherwise keep the property from ever finishing.
+		*/
+	val budget : MatchBudget = MatchBudget.steps(100000).withTimeout(1, TimeUnit.SECONDS)
+
+	/**
+		* Lists the offsets of every group of every match that a find loop produces, followed by the result of
+		* matching the entire input, or returns None if matching exceeds the budget.
+		*/
+	def results(expression : Expression, input : String) : Option[List[Any]] =
+		try {
+			val matcher = expression.toPattern.matcher(budget.guard(input))
+			val found = List.newBuilder[Any]
+			while (matcher.find())
+				for (group <- 0 to matcher.groupCount)
+					found += ((matcher.start(group), matcher.end(group)))
+			found += expression.toPattern.matcher(budget.guard(input)).matches
+			Some(found.result())
+		}
+		catch {
+			case _ : MatchBudgetExceededException => None
+		}
+
+	/**
+		* Inputs on which either side exceeds the budget are discarded.
+		*/
+	def sameMatches : Prop = forAll(arbitrary[Expression]) { expression =>
+		val possessified = Possessification.possessify(expression)
+		forAll(genInput(expression)) { input =>
+			(results(possessified, input), results(expression, input)) match {
+				case (Some(actual), Some(expected)) => Prop(actual == expected)
+				case _ => Prop.undecided
+			}
+		}
+	}
+
+	@Test def testSameMatches() : Unit = check(sameMatches, minSuccessful(10000), maxDiscardedFactor(5.0))
+}